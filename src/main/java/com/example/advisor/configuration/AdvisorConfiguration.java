@@ -1,6 +1,8 @@
 package com.example.advisor.configuration;
 
 import com.example.advisor.advisor.CustomLoggingAdvisor;
+import com.example.advisor.embedding.EmbeddingSnapshot;
+import com.example.advisor.embedding.SnapshotEmbeddingModel;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SafeGuardAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
@@ -19,6 +21,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.ai.embedding.EmbeddingModel;
 
+import java.nio.file.Path;
 import java.util.List;
 
 @Configuration
@@ -27,9 +30,18 @@ public class AdvisorConfiguration {
     @Value("classpath:rag-docs/mars_colonization_guide.txt")
     private Resource ragDocument;
 
+    @Value("${embedding.snapshot.dir}")
+    private Path snapshotDir;
+
+    @Value("${embedding.snapshot.model-id}")
+    private String embeddingModelId;
+
     @Bean
     public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+        // Reuse vectors from the last boot; only changed chunks are re-embedded
+        SnapshotEmbeddingModel snapshotModel = new SnapshotEmbeddingModel(embeddingModel,
+                EmbeddingSnapshot.open(snapshotDir.resolve("rag-docs.snapshot"), embeddingModelId));
+        SimpleVectorStore vectorStore = SimpleVectorStore.builder(snapshotModel).build();
 
         // Load documents
         if (ragDocument.exists()) {
@@ -38,6 +50,7 @@ public class AdvisorConfiguration {
             TokenTextSplitter tokenTextSplitter = new TokenTextSplitter();
             List<Document> splitDocuments = tokenTextSplitter.apply(documents);
             vectorStore.add(splitDocuments);
+            snapshotModel.saveSnapshot();
         }
 
         return vectorStore;
@@ -0,0 +1,123 @@
+package com.example.advisor.embedding;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+/**
+ * EmbeddingModel decorator that caches query embeddings in memory.
+ *
+ * Vector stores embed the user's query through {@link #embed(String)} on every
+ * search, so identical questions ("how do I reset my password?") would each
+ * cost a remote round-trip. This cache answers repeats locally. Keys are
+ * normalized (Unicode NFKC, lower case, collapsed whitespace, no trailing
+ * punctuation) so trivial variations share an entry.
+ *
+ * The cache is bounded by entry count and evicts entries after a TTL. Hits,
+ * misses and evictions are published under {@code cache.*} with
+ * {@code cache=supportbot.query.embeddings}. Document embeddings pass
+ * straight through to the delegate.
+ *
+ * A miss is embedded on the caller's thread, outside any cache lock. The
+ * cache holds a future for it, so concurrent misses for the same query wait
+ * for that one call, and a virtual thread waiting on it is not pinned.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    public static final String CACHE_NAME = "supportbot.query.embeddings";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\s]+$");
+
+    private final EmbeddingModel delegate;
+    private final AsyncCache<String, float[]> cache;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, long maximumSize, Duration timeToLive) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Registers hit/miss/eviction/size meters for this cache.
+     */
+    public CachingEmbeddingModel bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        return this;
+    }
+
+    /**
+     * Returns the cached embedding for the normalized text, or embeds it.
+     * The returned array is shared between callers and must not be modified.
+     */
+    @Override
+    public float[] embed(String text) {
+        CompletableFuture<float[]> miss = new CompletableFuture<>();
+        CompletableFuture<float[]> embedding = cache.get(normalize(text), (key, executor) -> miss);
+        if (embedding == miss) {
+            try {
+                miss.complete(delegate.embed(text));
+            } catch (RuntimeException e) {
+                // Failed futures are removed from the cache
+                miss.completeExceptionally(e);
+            }
+        }
+        try {
+            return embedding.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options,
+            BatchingStrategy batchingStrategy) {
+        return delegate.embed(documents, options, batchingStrategy);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * Approximate number of cached queries.
+     */
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.advisor.embedding;
+
+import com.example.advisor.supportbot.concurrency.AdaptiveConcurrencyLimiter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * EmbeddingModel decorator that puts single embeddings (queries) behind an
+ * {@link AdaptiveConcurrencyLimiter}.
+ *
+ * Over the limit, a query embedding fails at once with
+ * {@link com.example.advisor.supportbot.exception.SupportBotBusyException}
+ * instead of waiting on a slow provider. Document batches pass straight
+ * through; ingestion bounds its own requests in flight.
+ */
+public class ConcurrencyLimitedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedEmbeddingModel(EmbeddingModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return limiter.call(() -> delegate.embed(text));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return limiter.call(() -> delegate.embed(document));
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return limiter.call(() -> delegate.call(request));
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options,
+            BatchingStrategy batchingStrategy) {
+        return delegate.embed(documents, options, batchingStrategy);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
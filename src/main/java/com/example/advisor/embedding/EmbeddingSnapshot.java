@@ -0,0 +1,237 @@
+package com.example.advisor.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk snapshot of chunk embeddings, keyed by the SHA-256 hash of the text
+ * that was sent to the embedding model.
+ *
+ * The snapshot remembers which embedding model produced the vectors. When the
+ * configured model id changes, or the file fails its checksum, the snapshot
+ * starts empty and is rebuilt on the next {@link #save()}.
+ *
+ * File layout (big-endian):
+ *
+ * <pre>
+ * int    magic ("EMBS")
+ * int    format version
+ * UTF    embedding model id
+ * int    dimensions
+ * int    entry count
+ * entry* 32-byte SHA-256 hash + dimensions x float
+ * long   CRC32 of all preceding bytes
+ * </pre>
+ */
+public class EmbeddingSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingSnapshot.class);
+
+    private static final int MAGIC = 0x454D4253; // "EMBS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_BYTES = 32;
+
+    private final Path file;
+    private final String modelId;
+    private final Map<String, float[]> vectors = new ConcurrentHashMap<>();
+
+    // Hashes used since the snapshot was opened and not removed since; only
+    // these are written back, so chunks that were removed from the knowledge
+    // base drop out on save.
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+    private volatile int dimensions = -1;
+
+    private EmbeddingSnapshot(Path file, String modelId) {
+        this.file = file;
+        this.modelId = modelId;
+    }
+
+    /**
+     * Opens the snapshot at the given path. A missing, corrupt or
+     * foreign-model file yields an empty snapshot instead of an error.
+     */
+    public static EmbeddingSnapshot open(Path file, String modelId) {
+        EmbeddingSnapshot snapshot = new EmbeddingSnapshot(file, modelId);
+        if (Files.exists(file)) {
+            try {
+                snapshot.read(Files.readAllBytes(file));
+            } catch (IOException | IllegalStateException e) {
+                logger.warn("Discarding embedding snapshot {}: {}", file, e.getMessage());
+                snapshot.vectors.clear();
+                snapshot.dimensions = -1;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the stored vector for the given text, or null when the text has
+     * not been embedded with the current model.
+     */
+    public float[] get(String text) {
+        String hash = hash(text);
+        float[] vector = vectors.get(hash);
+        if (vector != null) {
+            touched.add(hash);
+        }
+        return vector;
+    }
+
+    /**
+     * Records a freshly computed vector for the given text.
+     */
+    public void put(String text, float[] vector) {
+        if (dimensions < 0) {
+            dimensions = vector.length;
+        } else if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        String hash = hash(text);
+        vectors.put(hash, vector);
+        touched.add(hash);
+    }
+
+    /**
+     * Drops the vector stored under the given text hash, for a chunk that is
+     * no longer indexed.
+     */
+    void remove(String hash) {
+        vectors.remove(hash);
+        touched.remove(hash);
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    /**
+     * Writes every vector used since the snapshot was opened. The file is
+     * streamed to a temporary sibling and moved into place so a crash never
+     * leaves a half-written snapshot behind.
+     */
+    public synchronized void save() {
+        List<Map.Entry<String, float[]>> live = new ArrayList<>();
+        for (String hash : touched) {
+            float[] vector = vectors.get(hash);
+            if (vector != null) {
+                live.add(Map.entry(hash, vector));
+            }
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            CRC32 crc = new CRC32();
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(modelId);
+                out.writeInt(Math.max(dimensions, 0));
+                out.writeInt(live.size());
+                for (Map.Entry<String, float[]> entry : live) {
+                    out.write(HexFormat.of().parseHex(entry.getKey()));
+                    for (float value : entry.getValue()) {
+                        out.writeFloat(value);
+                    }
+                }
+                out.flush();
+                // The checksum covers everything before it
+                new DataOutputStream(stream).writeLong(crc.getValue());
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.info("Saved embedding snapshot {} ({} vectors, model {})", file, live.size(), modelId);
+        } catch (IOException e) {
+            // A failed save only costs us re-embedding on the next boot
+            logger.warn("Could not save embedding snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Parses and validates the snapshot file contents.
+     */
+    private void read(byte[] data) throws IOException {
+        if (data.length < Long.BYTES + 4 * Integer.BYTES) {
+            throw new IllegalStateException("file is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - Long.BYTES);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        long storedCrc = ByteBuffer.wrap(data, data.length - Long.BYTES, Long.BYTES).getLong();
+        if (storedCrc != crc.getValue()) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+        if (in.readInt() != MAGIC) {
+            throw new IllegalStateException("not an embedding snapshot");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("unsupported format version " + version);
+        }
+        String storedModelId = in.readUTF();
+        if (!storedModelId.equals(modelId)) {
+            logger.info("Embedding model changed from {} to {}, rebuilding snapshot {}", storedModelId, modelId, file);
+            return;
+        }
+        int dims = in.readInt();
+        int count = in.readInt();
+        long expected = (long) count * (HASH_BYTES + (long) dims * Float.BYTES);
+        if (expected > in.available() - Long.BYTES) {
+            throw new IllegalStateException("entry count does not match file size");
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        for (int i = 0; i < count; i++) {
+            in.readFully(hash);
+            float[] vector = new float[dims];
+            for (int d = 0; d < dims; d++) {
+                vector[d] = in.readFloat();
+            }
+            vectors.put(HexFormat.of().formatHex(hash), vector);
+        }
+        dimensions = count > 0 ? dims : -1;
+        logger.info("Loaded embedding snapshot {} ({} vectors, model {})", file, count, modelId);
+    }
+
+    /**
+     * SHA-256 of the text, hex encoded.
+     */
+    static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
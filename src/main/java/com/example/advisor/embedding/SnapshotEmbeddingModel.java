@@ -0,0 +1,167 @@
+package com.example.advisor.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EmbeddingModel decorator that serves document embeddings from an
+ * {@link EmbeddingSnapshot}.
+ *
+ * Vector stores embed their documents through {@link #embed(Document)} (or the
+ * batched variant), so unchanged chunks are answered from the snapshot and only
+ * new or edited chunks reach the remote model. Plain text requests - the
+ * user's query at search time - always go straight to the delegate and are
+ * never written to the snapshot.
+ *
+ * The model remembers which text each document id was embedded from. When a
+ * document is re-embedded with new text, or {@link #forget(Collection)}
+ * removes it, its old vector is dropped from the snapshot unless another
+ * document still has the same text.
+ */
+public class SnapshotEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingSnapshot snapshot;
+
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong embedded = new AtomicLong();
+
+    private final ReentrantLock ownersLock = new ReentrantLock();
+    // guarded by ownersLock: text hash per document id, and documents per hash
+    private final Map<String, String> hashById = new HashMap<>();
+    private final Map<String, Integer> owners = new HashMap<>();
+
+    public SnapshotEmbeddingModel(EmbeddingModel delegate, EmbeddingSnapshot snapshot) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        String text = document.getFormattedContent(MetadataMode.EMBED);
+        float[] cached = snapshot.get(text);
+        if (cached != null) {
+            reused.incrementAndGet();
+            owned(document.getId(), text);
+            return cached;
+        }
+        float[] vector = delegate.embed(document);
+        snapshot.put(text, vector);
+        owned(document.getId(), text);
+        embedded.incrementAndGet();
+        return vector;
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options,
+            BatchingStrategy batchingStrategy) {
+        float[][] results = new float[documents.size()][];
+        List<Document> missing = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+
+        for (int i = 0; i < documents.size(); i++) {
+            String text = documents.get(i).getFormattedContent(MetadataMode.EMBED);
+            float[] cached = snapshot.get(text);
+            if (cached != null) {
+                results[i] = cached;
+                owned(documents.get(i).getId(), text);
+            } else {
+                missing.add(documents.get(i));
+                missingPositions.add(i);
+            }
+        }
+        reused.addAndGet(documents.size() - missing.size());
+
+        // Only the chunks we have never seen go to the remote model
+        if (!missing.isEmpty()) {
+            List<float[]> fresh = delegate.embed(missing, options, batchingStrategy);
+            for (int i = 0; i < missing.size(); i++) {
+                String text = missing.get(i).getFormattedContent(MetadataMode.EMBED);
+                snapshot.put(text, fresh.get(i));
+                owned(missing.get(i).getId(), text);
+                results[missingPositions.get(i)] = fresh.get(i);
+            }
+            embedded.addAndGet(missing.size());
+        }
+        return List.of(results);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * Drops the vectors of documents that are no longer indexed.
+     *
+     * @param documentIds Ids of the removed documents
+     */
+    public void forget(Collection<String> documentIds) {
+        ownersLock.lock();
+        try {
+            for (String id : documentIds) {
+                release(hashById.remove(id));
+            }
+        } finally {
+            ownersLock.unlock();
+        }
+    }
+
+    /**
+     * Records that the document now has this text, releasing its old text.
+     */
+    private void owned(String id, String text) {
+        String hash = EmbeddingSnapshot.hash(text);
+        ownersLock.lock();
+        try {
+            String previous = hashById.put(id, hash);
+            if (!hash.equals(previous)) {
+                owners.merge(hash, 1, Integer::sum);
+                release(previous);
+            }
+        } finally {
+            ownersLock.unlock();
+        }
+    }
+
+    private void release(String hash) {
+        if (hash != null && owners.merge(hash, -1, Integer::sum) == 0) {
+            owners.remove(hash);
+            snapshot.remove(hash);
+        }
+    }
+
+    /**
+     * Persists the snapshot and returns a one-line summary for the startup log.
+     */
+    public String saveSnapshot() {
+        snapshot.save();
+        return reused.get() + " reused from snapshot, " + embedded.get() + " newly embedded";
+    }
+
+    public long getReusedCount() {
+        return reused.get();
+    }
+
+    public long getEmbeddedCount() {
+        return embedded.get();
+    }
+}
@@ -12,6 +12,8 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.prompt.Prompt;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,8 +36,11 @@ import java.util.Optional;
  * 
  *           IMPLEMENTATION DETAILS:
  *           - We retrieve the `customerId` from the Advisor Context (passed at
- *           runtime).
- *           - We look up the Customer entity from the H2 database.
+ *           runtime under {@link #CUSTOMER_ID}). The advisor is a singleton
+ *           shared by concurrent requests, so it keeps no per-request fields.
+ *           - We look up the Customer entity from the H2 database. In a
+ *           stream the lookup runs on the bounded elastic scheduler, never
+ *           on the thread that subscribes.
  *           - We perform **Prompt Engineering** by appending a "System
  *           Extension" to the prompt.
  */
@@ -43,18 +48,33 @@ public class CustomerContextAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final String ADVISOR_NAME = "CustomerContextAdvisor";
 
+    /**
+     * Advisor context key for the customer ID ({@code Long}) of the request.
+     * Set it with {@code .advisors(a -> a.param(CUSTOMER_ID, id))}.
+     */
+    public static final String CUSTOMER_ID = "support_customer_id";
+
+    /**
+     * Advisor context key for a customer the caller already looked up, as an
+     * {@code Optional<Customer>}. When present the advisor uses it and does
+     * not query the database; an empty value means "no customer context".
+     */
+    public static final String CUSTOMER = "support_customer";
+
     private final CustomerRepository customerRepository;
-    private Long currentCustomerId = null;
 
     public CustomerContextAdvisor(CustomerRepository customerRepository) {
         this.customerRepository = customerRepository;
     }
 
     /**
-     * Sets the customer ID for context injection.
+     * Reads the customer ID from the request's advisor context.
+     *
+     * @return the customer ID, or null for an anonymous request
      */
-    public void setCustomerId(Long customerId) {
-        this.currentCustomerId = customerId;
+    static Long customerIdOf(ChatClientRequest request) {
+        Object customerId = request.context().get(CUSTOMER_ID);
+        return customerId instanceof Long id ? id : null;
     }
 
     @Override
@@ -69,11 +89,7 @@ public class CustomerContextAdvisor implements CallAdvisor, StreamAdvisor {
 
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
-        if (currentCustomerId == null) {
-            return chain.nextCall(request);
-        }
-
-        Optional<Customer> customerOpt = customerRepository.findById(currentCustomerId);
+        Optional<Customer> customerOpt = customerOf(request);
         if (customerOpt.isEmpty()) {
             return chain.nextCall(request);
         }
@@ -92,30 +108,52 @@ public class CustomerContextAdvisor implements CallAdvisor, StreamAdvisor {
 
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
-        if (currentCustomerId == null) {
-            return chain.nextStream(request);
-        }
-
-        Optional<Customer> customerOpt = customerRepository.findById(currentCustomerId);
-        if (customerOpt.isEmpty()) {
-            return chain.nextStream(request);
-        }
+        // The repository is blocking JDBC, so a lookup must not run on the
+        // thread that subscribes to the stream
+        Mono<Optional<Customer>> customerOpt = needsLookup(request)
+                ? Mono.fromCallable(() -> customerOf(request)).subscribeOn(Schedulers.boundedElastic())
+                : Mono.just(customerOf(request));
+
+        return customerOpt.flatMapMany(customer -> {
+            if (customer.isEmpty()) {
+                return chain.nextStream(request);
+            }
+            String customerContext = buildCustomerContext(customer.get());
+            ChatClientRequest enhancedRequest = addSystemContext(request, customerContext);
+            return chain.nextStream(enhancedRequest);
+        });
+    }
 
-        Customer customer = customerOpt.get();
-        String customerContext = buildCustomerContext(customer);
-        ChatClientRequest enhancedRequest = addSystemContext(request, customerContext);
+    /**
+     * True if the request names a customer the caller has not looked up.
+     */
+    private static boolean needsLookup(ChatClientRequest request) {
+        return !(request.context().get(CUSTOMER) instanceof Optional<?>) && customerIdOf(request) != null;
+    }
 
-        return chain.nextStream(enhancedRequest);
+    /**
+     * Uses the prefetched customer if the caller supplied one, otherwise
+     * looks up the customer ID.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<Customer> customerOf(ChatClientRequest request) {
+        if (request.context().get(CUSTOMER) instanceof Optional<?> prefetched) {
+            return (Optional<Customer>) prefetched;
+        }
+        Long customerId = customerIdOf(request);
+        return customerId == null ? Optional.empty() : customerRepository.findById(customerId);
     }
 
     /**
      * Adds customer context to the system message.
      */
     private ChatClientRequest addSystemContext(ChatClientRequest request, String context) {
-        // For now, just log the context - the actual prompt modification may need
-        // different approach based on Spring AI version
         System.out.println("📝 Adding customer context to prompt");
-        return request;
+        return request.mutate()
+                .prompt(request.prompt().augmentSystemMessage(system -> system.mutate()
+                        .text(system.getText().isEmpty() ? context : system.getText() + "\n\n" + context)
+                        .build()))
+                .build();
     }
 
     /**
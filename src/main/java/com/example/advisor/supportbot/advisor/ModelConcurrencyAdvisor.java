@@ -0,0 +1,91 @@
+package com.example.advisor.supportbot.advisor;
+
+import com.example.advisor.supportbot.concurrency.AdaptiveConcurrencyLimiter;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * 🚥 MODEL CONCURRENCY ADVISOR (Order: just before the model)
+ *
+ * @learning PATTERN: BACK-PRESSURE
+ *           This advisor wraps the model call itself with an
+ *           {@link AdaptiveConcurrencyLimiter}.
+ *
+ *           WHY IS THIS IMPORTANT?
+ *           When the provider slows down, every request waits on it and
+ *           nothing else gets served. The limiter lowers the number of calls
+ *           let through as latency rises, and turns the rest away at once
+ *           with a clear "busy" error.
+ *
+ *           IMPLEMENTATION DETAILS:
+ *           - It is the innermost advisor, so the memory and context advisors
+ *           do not count towards model latency.
+ *           - For streams the latency sample is the time to the first chunk;
+ *           the slot is held until the stream ends or is cancelled.
+ *           - Behind a {@code PlanAdmissionScheduler} that follows the same
+ *           limiter, calls have already waited for their slot: the advisor
+ *           only tracks them, so no plan is turned away by the limiter.
+ */
+public class ModelConcurrencyAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private static final String ADVISOR_NAME = "ModelConcurrencyAdvisor";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean admittedUpstream;
+
+    public ModelConcurrencyAdvisor(AdaptiveConcurrencyLimiter limiter) {
+        this(limiter, false);
+    }
+
+    /**
+     * @param admittedUpstream True if calls were admitted against the
+     *                         limiter before reaching the chain, so they are
+     *                         tracked instead of rejected over the limit
+     */
+    public ModelConcurrencyAdvisor(AdaptiveConcurrencyLimiter limiter, boolean admittedUpstream) {
+        this.limiter = limiter;
+        this.admittedUpstream = admittedUpstream;
+    }
+
+    @Override
+    public String getName() {
+        return ADVISOR_NAME;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1; // Right before the model call
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        if (admittedUpstream) {
+            return limiter.track(() -> chain.nextCall(request));
+        }
+        return limiter.call(() -> chain.nextCall(request));
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        return Flux.defer(() -> {
+            AdaptiveConcurrencyLimiter.Call call = admittedUpstream ? limiter.track() : limiter.acquire();
+            return chain.nextStream(request)
+                    .doOnNext(response -> call.responded())
+                    .doOnError(error -> call.failed())
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            call.ignored();
+                        } else {
+                            call.succeeded();
+                        }
+                    });
+        });
+    }
+}
@@ -9,6 +9,10 @@ import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
 import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
 import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 📝 RESPONSE FORMATTING ADVISOR (Order: 1000)
@@ -55,10 +59,24 @@ public class ResponseFormattingAdvisor implements CallAdvisor, StreamAdvisor {
         return response;
     }
 
+    /**
+     * Streams are logged once, when they end, with the totals of all chunks.
+     */
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
-        return chain.nextStream(request)
-                .doOnNext(this::logResponse);
+        return Flux.defer(() -> {
+            long started = System.nanoTime();
+            AtomicInteger chunks = new AtomicInteger();
+            AtomicLong length = new AtomicLong();
+            return chain.nextStream(request)
+                    .doOnNext(response -> {
+                        chunks.incrementAndGet();
+                        length.addAndGet(lengthOf(response));
+                    })
+                    .doFinally(signal -> logger.info("📤 Stream {} - {} chunks, {} chars in {} ms",
+                            signal == SignalType.ON_COMPLETE ? "completed" : signal, chunks.get(), length.get(),
+                            (System.nanoTime() - started) / 1_000_000));
+        });
     }
 
     /**
@@ -69,11 +87,19 @@ public class ResponseFormattingAdvisor implements CallAdvisor, StreamAdvisor {
                 response.chatResponse().getResult() != null &&
                 response.chatResponse().getResult().getOutput() != null) {
 
-            String content = response.chatResponse().getResult().getOutput().getText();
-            int length = content != null ? content.length() : 0;
+            int length = lengthOf(response);
 
             logger.info("📤 Response Formatted - Length: {} chars", length);
             System.out.println("📤 Response sent - " + length + " characters");
         }
     }
+
+    private static int lengthOf(ChatClientResponse response) {
+        if (response.chatResponse() == null || response.chatResponse().getResult() == null
+                || response.chatResponse().getResult().getOutput() == null) {
+            return 0;
+        }
+        String content = response.chatResponse().getResult().getOutput().getText();
+        return content != null ? content.length() : 0;
+    }
 }
@@ -1,5 +1,10 @@
 package com.example.advisor.supportbot.advisor;
 
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.KeywordMatcher;
+import com.example.advisor.supportbot.keyword.KeywordMatches;
+import com.example.advisor.supportbot.keyword.KeywordTag;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
 import com.example.advisor.supportbot.model.enums.SentimentType;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
@@ -9,50 +14,50 @@ import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
 import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
 import reactor.core.publisher.Flux;
 
-import java.util.List;
-
 /**
  * 📊 SENTIMENT ANALYSIS ADVISOR (Order: 20)
  * 
- * @learning PATTERN: STATEFUL ADVISOR + METADATA EXTRACTION
- *           This advisor demonstrates how to analyze the interaction and store
- *           state *outside* the LLM response.
+ * @learning PATTERN: METADATA EXTRACTION
+ *           This advisor demonstrates how to analyze the interaction and return
+ *           results *alongside* the LLM response.
  * 
  *           WHY IS THIS IMPORTANT?
  *           1. **Metadata**: We don't just want text back; we want to know
  *           *how* the user feels.
- *           2. **Statefulness**: This advisor holds state (`lastSentiment`)
- *           that can be queried by other components (like the UI).
+ *           2. **Request Scope**: The result travels in the advisor context,
+ *           not in a field, so concurrent requests never see each other's
+ *           sentiment.
  *           3. **Shadow Logic**: It runs analysis *in parallel* (conceptually)
  *           to the main chat flow.
  * 
  *           IMPLEMENTATION DETAILS:
  *           - It inspects the `userMessage` using keyword matching (could use a
- *           separate small LLM call).
- *           - It updates a `lastDetectedSentiment` field.
- *           - The `SupportBotService` queries this advisor *after* the call to
- *           get the sentiment for the UI.
+ *           separate small LLM call). All three word lists are matched in one
+ *           pass by the shared {@link KeywordMatcher}.
+ *           - It puts the sentiment under {@link #SENTIMENT} in the request
+ *           context (for later advisors) and in the response context.
+ *           - The `SupportBotService` reads it from the `ChatClientResponse`
+ *           to show it in the UI.
  */
 public class SentimentAnalysisAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final String ADVISOR_NAME = "SentimentAnalysisAdvisor";
 
-    private SentimentType lastDetectedSentiment = SentimentType.NEUTRAL;
+    /**
+     * Advisor context key for the detected {@link SentimentType}. A caller
+     * that already analyzed the message may set it to skip the analysis.
+     */
+    public static final String SENTIMENT = "support_sentiment";
 
-    // Positive sentiment indicators
-    private static final List<String> POSITIVE_WORDS = List.of(
-            "thanks", "thank you", "great", "awesome", "excellent", "perfect",
-            "love", "amazing", "helpful", "appreciate", "wonderful", "fantastic");
+    private final KeywordLexicon lexicon;
 
-    // Frustrated sentiment indicators
-    private static final List<String> FRUSTRATED_WORDS = List.of(
-            "frustrated", "annoying", "disappointed", "unhappy", "waste of time",
-            "not happy", "terrible", "awful", "ridiculous", "unacceptable");
+    public SentimentAnalysisAdvisor() {
+        this(KeywordLexicon.of(SupportLexicon.defaultMatcher()));
+    }
 
-    // Angry sentiment indicators
-    private static final List<String> ANGRY_WORDS = List.of(
-            "angry", "furious", "outraged", "hate", "worst", "horrible",
-            "disgusting", "fed up", "sick of", "never again", "demand");
+    public SentimentAnalysisAdvisor(KeywordLexicon lexicon) {
+        this.lexicon = lexicon;
+    }
 
     @Override
     public String getName() {
@@ -65,42 +70,50 @@ public class SentimentAnalysisAdvisor implements CallAdvisor, StreamAdvisor {
     }
 
     /**
-     * Gets the last detected sentiment.
+     * Reads the sentiment an advisor chain put in the response context.
+     *
+     * @return the sentiment, or NEUTRAL if the advisor did not run (e.g. the
+     *         request was blocked first)
      */
-    public SentimentType getLastSentiment() {
-        return lastDetectedSentiment;
+    public static SentimentType sentimentOf(ChatClientResponse response) {
+        Object sentiment = response.context().get(SENTIMENT);
+        return sentiment instanceof SentimentType type ? type : SentimentType.NEUTRAL;
     }
 
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-
-        // Analyze sentiment
-        SentimentType sentiment = analyzeSentiment(userMessage);
-        lastDetectedSentiment = sentiment;
+        // Analyze sentiment (unless the caller already did)
+        SentimentType sentiment = sentimentOf(request);
 
         // Log sentiment
         logSentiment(sentiment);
 
-        return chain.nextCall(request);
+        ChatClientResponse response = chain.nextCall(request.mutate().context(SENTIMENT, sentiment).build());
+        return response.mutate().context(SENTIMENT, sentiment).build();
     }
 
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-        SentimentType sentiment = analyzeSentiment(userMessage);
-        lastDetectedSentiment = sentiment;
+        SentimentType sentiment = sentimentOf(request);
         logSentiment(sentiment);
 
-        return chain.nextStream(request);
+        return chain.nextStream(request.mutate().context(SENTIMENT, sentiment).build())
+                .map(response -> response.mutate().context(SENTIMENT, sentiment).build());
+    }
+
+    private SentimentType sentimentOf(ChatClientRequest request) {
+        if (request.context().get(SENTIMENT) instanceof SentimentType precomputed) {
+            return precomputed;
+        }
+        return analyzeSentiment(extractUserMessage(request));
     }
 
     /**
      * Extracts the user message from the request.
      */
     private String extractUserMessage(ChatClientRequest request) {
-        if (request.prompt() != null && request.prompt().getContents() != null) {
-            return request.prompt().getContents();
+        if (request.prompt() != null && request.prompt().getUserMessage().getText() != null) {
+            return request.prompt().getUserMessage().getText();
         }
         return "";
     }
@@ -108,22 +121,27 @@ public class SentimentAnalysisAdvisor implements CallAdvisor, StreamAdvisor {
     /**
      * Analyzes the sentiment of the user message.
      */
+    public SentimentType analyzeSentiment(String message) {
+        return sentimentOf(lexicon.current().match(message));
+    }
+
     /**
-     * Analyzes the sentiment of the user message.
+     * Derives the sentiment from keyword matches already computed for the
+     * message.
      */
-    public SentimentType analyzeSentiment(String message) {
+    public static SentimentType sentimentOf(KeywordMatches matches) {
         // Check for angry sentiment first (highest priority)
-        if (containsAny(message, ANGRY_WORDS)) {
+        if (matches.has(KeywordTag.ANGRY)) {
             return SentimentType.ANGRY;
         }
 
         // Check for frustrated sentiment
-        if (containsAny(message, FRUSTRATED_WORDS)) {
+        if (matches.has(KeywordTag.FRUSTRATED)) {
             return SentimentType.FRUSTRATED;
         }
 
         // Check for positive sentiment
-        if (containsAny(message, POSITIVE_WORDS)) {
+        if (matches.has(KeywordTag.POSITIVE)) {
             return SentimentType.POSITIVE;
         }
 
@@ -138,11 +156,4 @@ public class SentimentAnalysisAdvisor implements CallAdvisor, StreamAdvisor {
         String icon = sentiment.requiresAttention() ? "⚠️" : "📊";
         System.out.println(icon + " Sentiment Analysis: " + sentiment.getEmoji() + " " + sentiment.getDisplayName());
     }
-
-    /**
-     * Checks if text contains any of the given words.
-     */
-    private boolean containsAny(String text, List<String> words) {
-        return words.stream().anyMatch(word -> text.contains(word.toLowerCase()));
-    }
 }
@@ -1,5 +1,10 @@
 package com.example.advisor.supportbot.advisor;
 
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.KeywordMatcher;
+import com.example.advisor.supportbot.keyword.KeywordMatches;
+import com.example.advisor.supportbot.keyword.KeywordTag;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
@@ -11,6 +16,7 @@ import org.springframework.ai.chat.model.Generation;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 🛡️ SAFETY ADVISOR (Order: 0)
@@ -31,20 +37,13 @@ import java.util.List;
  *           - If validation fails, we return a `ChatClientResponse` immediately
  *           (without calling `chain.nextCall()`).
  *           - If validation passes, we delegate to the next link in the chain.
+ *           - Blocked words and abusive phrases are found in one pass by the
+ *           shared {@link KeywordMatcher}.
  */
 public class SupportSafetyAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final String ADVISOR_NAME = "SupportSafetyAdvisor";
 
-    // Words that should trigger content filtering
-    private static final List<String> BLOCKED_WORDS = List.of(
-            "competitor", "hack", "exploit", "lawsuit", "internal",
-            "confidential", "admin access");
-
-    // Phrases indicating abusive behavior
-    private static final List<String> ABUSIVE_PHRASES = List.of(
-            "you idiot", "stupid bot", "worthless", "useless piece");
-
     private static final String BLOCKED_RESPONSE = "I'm here to help with TaskFlow-related questions. " +
             "If you have a specific issue or question about our product, " +
             "I'd be happy to assist you. For sensitive matters, please " +
@@ -55,6 +54,16 @@ public class SupportSafetyAdvisor implements CallAdvisor, StreamAdvisor {
             "However, I'm not able to continue if the conversation becomes disrespectful. " +
             "Let's try again - what specific issue can I help you with today?";
 
+    private final KeywordLexicon lexicon;
+
+    public SupportSafetyAdvisor() {
+        this(KeywordLexicon.of(SupportLexicon.defaultMatcher()));
+    }
+
+    public SupportSafetyAdvisor(KeywordLexicon lexicon) {
+        this.lexicon = lexicon;
+    }
+
     @Override
     public String getName() {
         return ADVISOR_NAME;
@@ -67,16 +76,10 @@ public class SupportSafetyAdvisor implements CallAdvisor, StreamAdvisor {
 
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-
-        // Check for abusive language
-        if (containsAbusiveLanguage(userMessage)) {
-            return createBlockedResponse(ABUSIVE_RESPONSE);
-        }
-
-        // Check for blocked content
-        if (containsBlockedContent(userMessage)) {
-            return createBlockedResponse(BLOCKED_RESPONSE);
+        // Check for abusive language, then blocked content
+        Optional<String> blocked = responseFor(lexicon.current().match(extractUserMessage(request)));
+        if (blocked.isPresent()) {
+            return createBlockedResponse(blocked.get());
         }
 
         // Continue with the chain
@@ -85,40 +88,45 @@ public class SupportSafetyAdvisor implements CallAdvisor, StreamAdvisor {
 
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-
-        if (containsAbusiveLanguage(userMessage) || containsBlockedContent(userMessage)) {
-            String response = containsAbusiveLanguage(userMessage) ? ABUSIVE_RESPONSE : BLOCKED_RESPONSE;
-            return Flux.just(createBlockedResponse(response));
+        Optional<String> blocked = responseFor(lexicon.current().match(extractUserMessage(request)));
+        if (blocked.isPresent()) {
+            return Flux.just(createBlockedResponse(blocked.get()));
         }
 
         return chain.nextStream(request);
     }
 
     /**
-     * Extracts the user message from the request.
+     * Checks a raw user message against the same rules as the advisor, for
+     * callers that want to stop a request before doing any work for it.
+     *
+     * @return the canned response if the message would be blocked
      */
-    private String extractUserMessage(ChatClientRequest request) {
-        if (request.prompt() != null && request.prompt().getContents() != null) {
-            return request.prompt().getContents();
-        }
-        return "";
+    public Optional<String> screen(String message) {
+        return responseFor(lexicon.current().match(message));
     }
 
     /**
-     * Checks if the message contains abusive language.
+     * Abusive language takes precedence over blocked topics.
      */
-    private boolean containsAbusiveLanguage(String message) {
-        return ABUSIVE_PHRASES.stream()
-                .anyMatch(phrase -> message.contains(phrase.toLowerCase()));
+    private Optional<String> responseFor(KeywordMatches matches) {
+        if (matches.has(KeywordTag.ABUSIVE)) {
+            return Optional.of(ABUSIVE_RESPONSE);
+        }
+        if (matches.has(KeywordTag.BLOCKED)) {
+            return Optional.of(BLOCKED_RESPONSE);
+        }
+        return Optional.empty();
     }
 
     /**
-     * Checks if the message contains blocked content.
+     * Extracts the user message from the request.
      */
-    private boolean containsBlockedContent(String message) {
-        return BLOCKED_WORDS.stream()
-                .anyMatch(word -> message.contains(word.toLowerCase()));
+    private String extractUserMessage(ChatClientRequest request) {
+        if (request.prompt() != null && request.prompt().getUserMessage().getText() != null) {
+            return request.prompt().getUserMessage().getText();
+        }
+        return "";
     }
 
     /**
@@ -1,5 +1,9 @@
 package com.example.advisor.supportbot.advisor;
 
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.KeywordMatcher;
+import com.example.advisor.supportbot.keyword.KeywordTag;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
 import com.example.advisor.supportbot.model.entity.Customer;
 import com.example.advisor.supportbot.model.entity.Ticket;
 import com.example.advisor.supportbot.model.enums.TicketPriority;
@@ -14,7 +18,6 @@ import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
 import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
 import reactor.core.publisher.Flux;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -37,8 +40,11 @@ import java.util.Optional;
  *           where the LLM *decides* to call `createTicket()` itself.
  * 
  *           IMPLEMENTATION DETAILS:
- *           - Scans message for trigger words ("refund", "manager").
- *           - If triggered, calls `ticketRepository.save()`.
+ *           - Scans message for trigger words ("refund", "manager") with the
+ *           shared {@link KeywordMatcher}.
+ *           - If triggered, calls `ticketRepository.save()` for the customer in
+ *           the advisor context and returns the ticket under
+ *           {@link #CREATED_TICKET} in the response context.
  *           - Injects a "System Message" into the prompt telling the LLM: "A
  *           ticket has been created... inform the user."
  */
@@ -46,38 +52,36 @@ public class TicketEscalationAdvisor implements CallAdvisor, StreamAdvisor {
 
     private static final String ADVISOR_NAME = "TicketEscalationAdvisor";
 
-    // Escalation trigger phrases
-    private static final List<String> ESCALATION_PHRASES = List.of(
-            "speak to human", "talk to human", "human agent", "real person",
-            "speak to someone", "talk to someone", "speak with someone",
-            "manager", "supervisor", "escalate", "cancel my subscription",
-            "cancel account", "want a refund", "need a refund", "get my money back",
-            "close my account", "delete my account", "legal action", "lawyer");
+    /**
+     * Response context key for the escalation {@link Ticket} created for the
+     * request, if any.
+     */
+    public static final String CREATED_TICKET = "support_created_ticket";
 
     private final TicketRepository ticketRepository;
     private final CustomerRepository customerRepository;
-
-    private Long currentCustomerId = null;
-    private Ticket lastCreatedTicket = null;
+    private final KeywordLexicon lexicon;
 
     public TicketEscalationAdvisor(TicketRepository ticketRepository,
             CustomerRepository customerRepository) {
-        this.ticketRepository = ticketRepository;
-        this.customerRepository = customerRepository;
+        this(ticketRepository, customerRepository, KeywordLexicon.of(SupportLexicon.defaultMatcher()));
     }
 
-    /**
-     * Sets the customer ID for ticket creation.
-     */
-    public void setCustomerId(Long customerId) {
-        this.currentCustomerId = customerId;
+    public TicketEscalationAdvisor(TicketRepository ticketRepository,
+            CustomerRepository customerRepository, KeywordLexicon lexicon) {
+        this.ticketRepository = ticketRepository;
+        this.customerRepository = customerRepository;
+        this.lexicon = lexicon;
     }
 
     /**
-     * Gets the last created ticket.
+     * Reads the ticket an advisor chain put in the response context.
+     *
+     * @return the created ticket, or null if none was created
      */
-    public Ticket getLastCreatedTicket() {
-        return lastCreatedTicket;
+    public static Ticket createdTicketOf(ChatClientResponse response) {
+        Object ticket = response.context().get(CREATED_TICKET);
+        return ticket instanceof Ticket created ? created : null;
     }
 
     @Override
@@ -92,49 +96,57 @@ public class TicketEscalationAdvisor implements CallAdvisor, StreamAdvisor {
 
     @Override
     public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-        lastCreatedTicket = null;
-
-        // Check for escalation triggers
-        Optional<String> escalationTrigger = detectEscalationTrigger(userMessage);
-
-        if (escalationTrigger.isPresent() && currentCustomerId != null) {
-            lastCreatedTicket = createEscalationTicket(currentCustomerId, escalationTrigger.get(), userMessage);
-        }
+        Ticket ticket = escalate(request);
 
-        return chain.nextCall(request);
+        ChatClientResponse response = chain.nextCall(request);
+        return ticket == null ? response : response.mutate().context(CREATED_TICKET, ticket).build();
     }
 
     @Override
     public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
-        String userMessage = extractUserMessage(request).toLowerCase();
-        lastCreatedTicket = null;
+        Ticket ticket = escalate(request);
 
-        Optional<String> escalationTrigger = detectEscalationTrigger(userMessage);
-        if (escalationTrigger.isPresent() && currentCustomerId != null) {
-            lastCreatedTicket = createEscalationTicket(currentCustomerId, escalationTrigger.get(), userMessage);
+        Flux<ChatClientResponse> responses = chain.nextStream(request);
+        return ticket == null ? responses
+                : responses.map(response -> response.mutate().context(CREATED_TICKET, ticket).build());
+    }
+
+    /**
+     * Creates an escalation ticket if the message contains a trigger and the
+     * request carries a customer ID.
+     *
+     * @return the created ticket, or null
+     */
+    private Ticket escalate(ChatClientRequest request) {
+        Long customerId = CustomerContextAdvisor.customerIdOf(request);
+        if (customerId == null) {
+            return null;
         }
+        String userMessage = extractUserMessage(request).toLowerCase();
 
-        return chain.nextStream(request);
+        // Check for escalation triggers
+        Optional<String> escalationTrigger = detectEscalationTrigger(userMessage);
+        return escalationTrigger
+                .map(trigger -> createEscalationTicket(customerId, trigger, userMessage))
+                .orElse(null);
     }
 
     /**
      * Extracts the user message from the request.
      */
     private String extractUserMessage(ChatClientRequest request) {
-        if (request.prompt() != null && request.prompt().getContents() != null) {
-            return request.prompt().getContents();
+        if (request.prompt() != null && request.prompt().getUserMessage().getText() != null) {
+            return request.prompt().getUserMessage().getText();
         }
         return "";
     }
 
     /**
-     * Detects if the message contains an escalation trigger.
+     * Detects if the message contains an escalation trigger. When several
+     * match, the one listed first wins.
      */
     private Optional<String> detectEscalationTrigger(String message) {
-        return ESCALATION_PHRASES.stream()
-                .filter(phrase -> message.contains(phrase.toLowerCase()))
-                .findFirst();
+        return lexicon.current().match(message).first(KeywordTag.ESCALATION);
     }
 
     /**
@@ -0,0 +1,199 @@
+package com.example.advisor.supportbot.cache;
+
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseChange;
+import com.example.advisor.supportbot.vectorstore.VectorMath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches chat answers by the meaning of the question.
+ *
+ * Many support questions are the same FAQ in different words ("how do I
+ * export to CSV?" / "can I download my tasks as CSV"). An answer is stored
+ * with the unit-length embedding of its question. A later question in the
+ * same category whose embedding has cosine similarity of at least
+ * {@code threshold} with a stored question gets the stored answer, with no
+ * retrieval or LLM call.
+ *
+ * Each entry remembers the knowledge base chunks its answer was built from.
+ * When the knowledge base changes, entries that used a changed chunk, or that
+ * belong to a category that received new chunks, are dropped. Entries also
+ * expire after a TTL, and the oldest entry is evicted when the cache is full.
+ *
+ * Callers decide what is cacheable. Answers that depend on the customer or on
+ * tool calls must not be stored.
+ *
+ * The entries are guarded by a {@link ReentrantLock} rather than a monitor,
+ * so virtual threads that contend for it unmount instead of pinning their
+ * carrier.
+ */
+public class SemanticAnswerCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final double threshold;
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock; insertion order, so the first entry is the oldest
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter invalidations;
+
+    public SemanticAnswerCache(EmbeddingModel embeddingModel, double threshold, int maxEntries,
+            Duration timeToLive) {
+        this(embeddingModel, threshold, maxEntries, timeToLive, Clock.systemUTC());
+    }
+
+    SemanticAnswerCache(EmbeddingModel embeddingModel, double threshold, int maxEntries, Duration timeToLive,
+            Clock clock) {
+        this.embeddingModel = embeddingModel;
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers hit/miss/invalidation counters and a size gauge under
+     * {@code supportbot.answer.cache.*}.
+     */
+    public SemanticAnswerCache bindTo(MeterRegistry registry) {
+        hits = Counter.builder("supportbot.answer.cache.requests").tag("result", "hit")
+                .description("Chat requests answered from the semantic answer cache")
+                .register(registry);
+        misses = Counter.builder("supportbot.answer.cache.requests").tag("result", "miss")
+                .description("Cacheable chat requests that needed the LLM")
+                .register(registry);
+        invalidations = Counter.builder("supportbot.answer.cache.invalidations")
+                .description("Answers dropped because their knowledge base chunks changed")
+                .register(registry);
+        Gauge.builder("supportbot.answer.cache.size", this, SemanticAnswerCache::size)
+                .description("Cached answers")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Embeds a question for {@link #get} and {@link #put}. Goes through the
+     * query embedding cache, so the retrieval that follows a miss reuses it.
+     */
+    public float[] embed(String question) {
+        return VectorMath.normalize(embeddingModel.embed(question));
+    }
+
+    /**
+     * Returns the answer to the most similar cached question in the category,
+     * if it is similar enough.
+     */
+    public Optional<String> get(float[] question, String category) {
+        Instant now = clock.instant();
+        Entry best = null;
+        float bestScore = (float) threshold;
+        lock.lock();
+        try {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (entry.expiresAt.isBefore(now)) {
+                    it.remove();
+                    continue;
+                }
+                if (!entry.category.equals(category)) {
+                    continue;
+                }
+                float score = VectorMath.dot(question, entry.question);
+                if (score >= bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        increment(best != null ? hits : misses);
+        return Optional.ofNullable(best).map(Entry::answer);
+    }
+
+    /**
+     * Stores an answer.
+     *
+     * @param question         Unit-length question embedding from {@link #embed}
+     * @param category         Category of the question
+     * @param sourceChunkIds   Knowledge base chunks the answer was built from
+     * @param sourceCategories Categories of those chunks
+     */
+    public void put(float[] question, String category, String answer, Set<String> sourceChunkIds,
+            Set<String> sourceCategories) {
+        Entry added = new Entry(question, category, answer, Set.copyOf(sourceChunkIds),
+                Set.copyOf(sourceCategories), clock.instant().plus(timeToLive));
+        lock.lock();
+        try {
+            entries.put(nextId.getAndIncrement(), added);
+            Iterator<Entry> oldest = entries.values().iterator();
+            while (entries.size() > maxEntries) {
+                oldest.next();
+                oldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops answers built from changed chunks or from a category that
+     * received new chunks.
+     */
+    public void invalidate(KnowledgeBaseChange change) {
+        int removed;
+        lock.lock();
+        try {
+            int before = entries.size();
+            entries.values().removeIf(entry -> change.categories().contains(entry.category)
+                    || !Collections.disjoint(change.categories(), entry.sourceCategories)
+                    || !Collections.disjoint(change.chunkIds(), entry.sourceChunkIds));
+            removed = before - entries.size();
+        } finally {
+            lock.unlock();
+        }
+        if (invalidations != null) {
+            invalidations.increment(removed);
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private record Entry(float[] question, String category, String answer, Set<String> sourceChunkIds,
+            Set<String> sourceCategories, Instant expiresAt) {
+    }
+}
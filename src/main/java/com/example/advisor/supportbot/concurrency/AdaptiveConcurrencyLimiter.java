@@ -0,0 +1,280 @@
+package com.example.advisor.supportbot.concurrency;
+
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limits concurrent calls to a remote model, adapting the limit to the
+ * latency it observes (latency-based AIMD).
+ *
+ * The limiter keeps the mean latency of healthy calls as its baseline, and
+ * compares the median of the last {@value #RECENT_SAMPLES} calls against it.
+ * Latency varies with answer length and tool round-trips, so no single call
+ * is judged on its own: a long answer or a tool call among short ones moves
+ * neither the median nor the mean much, while a provider that slows down
+ * moves the median within a few calls. A call that ends with the median
+ * within {@code tolerance} times the baseline, while the limit is in use,
+ * raises the limit by {@code 1/limit}: about one per round of calls. A slow
+ * median or a failed call multiplies the limit by {@code backoffRatio}, at
+ * most once per observed latency, so a burst of slow responses does not
+ * collapse the limit. The baseline is re-measured every
+ * {@value #BASELINE_WINDOW} calls, so the limiter follows a provider that
+ * has become slower for good.
+ *
+ * A call over the limit is rejected at once with
+ * {@link SupportBotBusyException} instead of queueing behind a provider
+ * that is already slow. Calls admitted upstream against the limit (see
+ * {@link PlanAdmissionScheduler}) are only tracked, never rejected: the
+ * scheduler queues them instead. The limit, calls in flight and rejections are
+ * published under {@code supportbot.model.*}, tagged with the model name.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final int BASELINE_WINDOW = 250;
+    static final int RECENT_SAMPLES = 5;
+
+    private final String name;
+    private final Settings settings;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limit;
+    // guarded by lock
+    private double baselineNanos;
+    private int baselineSamples;
+    private final long[] recentNanos = new long[RECENT_SAMPLES];
+    private int recentCount;
+    private long windowSumNanos;
+    private int windowSamples;
+    private long lastDecreaseNanos;
+
+    private Counter rejected;
+
+    public AdaptiveConcurrencyLimiter(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.limit = settings.initialLimit();
+    }
+
+    /**
+     * Registers {@code supportbot.model.concurrency.limit},
+     * {@code supportbot.model.in.flight} and
+     * {@code supportbot.model.rejected}, tagged with the model name.
+     */
+    public AdaptiveConcurrencyLimiter bindTo(MeterRegistry registry) {
+        Gauge.builder("supportbot.model.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Concurrent model calls currently allowed")
+                .tag("model", name)
+                .register(registry);
+        Gauge.builder("supportbot.model.in.flight", inFlight, AtomicInteger::get)
+                .description("Model calls in flight")
+                .tag("model", name)
+                .register(registry);
+        rejected = Counter.builder("supportbot.model.rejected")
+                .description("Model calls rejected over the concurrency limit")
+                .tag("model", name)
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Runs the call if it fits under the limit, and learns from its latency.
+     *
+     * @throws SupportBotBusyException if the limit is reached
+     */
+    public <T> T call(Supplier<T> work) {
+        return run(acquire(), work);
+    }
+
+    /**
+     * Runs a call already admitted against the limit, and learns from its
+     * latency.
+     */
+    public <T> T track(Supplier<T> work) {
+        return run(track(), work);
+    }
+
+    private <T> T run(Call call, Supplier<T> work) {
+        try {
+            T result = work.get();
+            call.succeeded();
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.failed();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a slot for a call whose end is reported later (a stream).
+     * Report exactly one of {@link Call#succeeded()}, {@link Call#failed()}
+     * or {@link Call#ignored()}.
+     *
+     * @throws SupportBotBusyException if the limit is reached
+     */
+    public Call acquire() {
+        int current = (int) limit;
+        while (true) {
+            int running = inFlight.get();
+            if (running >= current) {
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                throw new SupportBotBusyException("The " + name + " model is at its concurrency limit ("
+                        + current + " calls in flight)", Duration.ofSeconds(1));
+            }
+            if (inFlight.compareAndSet(running, running + 1)) {
+                return new Call(running + 1);
+            }
+        }
+    }
+
+    /**
+     * Takes a slot without checking the limit, for a call already admitted
+     * against it. Report its end as for {@link #acquire()}.
+     */
+    public Call track() {
+        return new Call(inFlight.incrementAndGet());
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void onSample(long latencyNanos, int inFlightAtStart, boolean dropped) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            boolean slow = false;
+            if (!dropped) {
+                recentNanos[recentCount++ % RECENT_SAMPLES] = latencyNanos;
+                slow = baselineSamples > 0 && recentMedian() > baselineNanos * settings.tolerance();
+                if (!slow) {
+                    // Running mean at first, then an average over about a window
+                    baselineSamples = Math.min(baselineSamples + 1, BASELINE_WINDOW);
+                    baselineNanos += (latencyNanos - baselineNanos) / baselineSamples;
+                }
+                windowSumNanos += latencyNanos;
+                if (++windowSamples >= BASELINE_WINDOW) {
+                    baselineNanos = (double) windowSumNanos / windowSamples;
+                    windowSumNanos = 0;
+                    windowSamples = 0;
+                }
+            }
+            if (dropped || slow) {
+                // One decrease per round trip
+                if (now - lastDecreaseNanos >= latencyNanos) {
+                    limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightAtStart * 2 >= limit) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(settings.maxLimit(), limit + 1.0 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long recentMedian() {
+        int samples = Math.min(recentCount, RECENT_SAMPLES);
+        long[] sorted = Arrays.copyOf(recentNanos, samples);
+        Arrays.sort(sorted);
+        return sorted[samples / 2];
+    }
+
+    /**
+     * Limiter tuning.
+     *
+     * @param initialLimit Concurrent calls allowed at start
+     * @param minLimit     Lowest the limit goes under sustained slowness
+     * @param maxLimit     Highest the limit grows
+     * @param tolerance    Median recent latency over the baseline, as a
+     *                     factor, that still counts as healthy
+     * @param backoffRatio Factor applied to the limit on a slow or failed call
+     */
+    public record Settings(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio) {
+
+        public Settings {
+            if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+            }
+            if (tolerance < 1.0 || backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+                throw new IllegalArgumentException("Tolerance must be >= 1 and backoff ratio in (0, 1)");
+            }
+        }
+    }
+
+    /**
+     * A call holding a slot. Only the first report counts.
+     */
+    public final class Call {
+
+        private final long startedNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long respondedNanos;
+
+        private Call(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The first response arrived. For a stream this, not the end of the
+         * stream, is the latency sample.
+         */
+        public void responded() {
+            if (respondedNanos == 0) {
+                respondedNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * The call finished; its latency is a sample.
+         */
+        public void succeeded() {
+            if (release()) {
+                long endedNanos = respondedNanos != 0 ? respondedNanos : System.nanoTime();
+                onSample(endedNanos - startedNanos, inFlightAtStart, false);
+            }
+        }
+
+        /**
+         * The call failed or timed out; the limit backs off.
+         */
+        public void failed() {
+            if (release()) {
+                onSample(System.nanoTime() - startedNanos, inFlightAtStart, true);
+            }
+        }
+
+        /**
+         * The call ended without telling anything about the provider (e.g.
+         * the client went away).
+         */
+        public void ignored() {
+            release();
+        }
+
+        private boolean release() {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
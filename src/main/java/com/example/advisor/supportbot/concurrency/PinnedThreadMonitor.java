@@ -0,0 +1,83 @@
+package com.example.advisor.supportbot.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes JFR {@code jdk.VirtualThreadPinned} events as metrics.
+ *
+ * A virtual thread that blocks while it holds a monitor (a
+ * {@code synchronized} block) or runs native code cannot unmount, so it keeps
+ * its carrier thread busy. A few pinned carriers are enough to stall every
+ * virtual thread in the JVM. Every pinned interval longer than the threshold
+ * increments {@code supportbot.virtual-threads.pinned} and is timed in
+ * {@code supportbot.virtual-threads.pinned.duration}. The top stack frames
+ * are logged at debug level to find the offending monitor.
+ */
+public class PinnedThreadMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Duration threshold;
+    private final Counter pinned;
+    private final Timer pinnedDuration;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = Counter.builder("supportbot.virtual-threads.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .register(meterRegistry);
+        this.pinnedDuration = Timer.builder("supportbot.virtual-threads.pinned.duration")
+                .description("Time virtual threads spent blocked while pinned")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the JFR event stream in the background.
+     */
+    public synchronized PinnedThreadMonitor start() {
+        if (stream != null) {
+            return this;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {}", threshold);
+        return this;
+    }
+
+    void record(RecordedEvent event) {
+        pinned.increment();
+        pinnedDuration.record(event.getDuration());
+        if (log.isDebugEnabled() && event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            log.debug("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(),
+                    frames.stream().limit(5)
+                            .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                                    + ":" + frame.getLineNumber())
+                            .collect(Collectors.joining(" <- ")));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+}
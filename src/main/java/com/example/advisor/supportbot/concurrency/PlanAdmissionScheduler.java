@@ -0,0 +1,376 @@
+package com.example.advisor.supportbot.concurrency;
+
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Admits model calls by customer plan.
+ *
+ * At most {@code maxConcurrent} calls run at once. Callers beyond that wait
+ * in a bounded queue per plan, and a freed slot goes to the next queue by
+ * smooth weighted round robin, so with weights 6/3/1 ENTERPRISE gets six
+ * slots for every one FREE gets while both are waiting. A caller is turned
+ * away with {@link SupportBotBusyException} when its queue is full or it
+ * has waited its lane's maximum. A sheddable plan (FREE) is turned away
+ * without queueing while a higher plan is waiting, so a FREE spike never
+ * builds a backlog in front of paying customers.
+ *
+ * Built on an {@link AdaptiveConcurrencyLimiter}, the scheduler admits as
+ * many calls as the limiter's current limit: as the limit backs off, callers
+ * wait in their plan's queue rather than being rejected by the limiter, and
+ * as it grows, freed slots admit more of them.
+ *
+ * {@link #acquire} blocks while it waits; on virtual threads that costs no
+ * platform thread. Reactive callers use {@link #acquireAsync}, which waits
+ * without holding any thread and gives up its place in the queue when
+ * cancelled.
+ */
+public class PlanAdmissionScheduler {
+
+    private final IntSupplier maxConcurrent;
+    private final Map<CustomerPlan, LaneState> lanes = new EnumMap<>(CustomerPlan.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int running;
+
+    private MeterRegistry meterRegistry;
+
+    public PlanAdmissionScheduler(int maxConcurrent, Map<CustomerPlan, Lane> lanes) {
+        this(() -> maxConcurrent, lanes);
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+    }
+
+    /**
+     * Admits as many calls at once as the limiter allows. The limiter should
+     * then count the admitted calls without rejecting them
+     * ({@link AdaptiveConcurrencyLimiter#track()}).
+     */
+    public PlanAdmissionScheduler(AdaptiveConcurrencyLimiter limiter, Map<CustomerPlan, Lane> lanes) {
+        this(limiter::getLimit, lanes);
+    }
+
+    private PlanAdmissionScheduler(IntSupplier maxConcurrent, Map<CustomerPlan, Lane> lanes) {
+        this.maxConcurrent = maxConcurrent;
+        for (CustomerPlan plan : CustomerPlan.values()) {
+            Lane lane = lanes.get(plan);
+            if (lane == null) {
+                throw new IllegalArgumentException("No admission lane for plan " + plan);
+            }
+            this.lanes.put(plan, new LaneState(plan, lane));
+        }
+    }
+
+    /**
+     * Registers per plan {@code supportbot.admission.queue.depth},
+     * {@code supportbot.admission.wait} and
+     * {@code supportbot.admission.rejected{reason}}, and
+     * {@code supportbot.admission.running}.
+     */
+    public PlanAdmissionScheduler bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        for (LaneState lane : lanes.values()) {
+            Gauge.builder("supportbot.admission.queue.depth", lane, LaneState::depth)
+                    .description("Chats waiting for a model slot")
+                    .tag("plan", lane.plan.name())
+                    .register(registry);
+            lane.waitTimer = Timer.builder("supportbot.admission.wait")
+                    .description("Time chats waited for a model slot")
+                    .tag("plan", lane.plan.name())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+        }
+        Gauge.builder("supportbot.admission.running", this, PlanAdmissionScheduler::running)
+                .description("Model calls admitted and not yet finished")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Waits for a model slot. Close the permit when the call is done.
+     *
+     * @throws SupportBotBusyException if the call is shed, the plan's queue
+     *                                 is full or the wait runs out
+     */
+    public Permit acquire(CustomerPlan plan) {
+        LaneState lane = laneOf(plan);
+        long started = System.nanoTime();
+        Ticket ticket = enqueue(lane);
+        if (ticket == null) {
+            return admitted(lane, started);
+        }
+
+        try {
+            ticket.granted.get(lane.settings.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+            return admitted(lane, started);
+        } catch (TimeoutException e) {
+            if (withdraw(lane, ticket)) {
+                throw rejected(lane, "timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (withdraw(lane, ticket)) {
+                throw rejected(lane, "interrupted");
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        // Granted while giving up; the slot is ours
+        return admitted(lane, started);
+    }
+
+    /**
+     * Waits for a model slot without blocking. Close the permit when the call
+     * is done. Cancelling while waiting gives up the place in the queue.
+     *
+     * The returned Mono signals {@link SupportBotBusyException} if the call
+     * is shed, the plan's queue is full or the wait runs out.
+     */
+    public Mono<Permit> acquireAsync(CustomerPlan plan) {
+        return Mono.defer(() -> {
+            LaneState lane = laneOf(plan);
+            long started = System.nanoTime();
+            Ticket ticket = enqueue(lane);
+            if (ticket == null) {
+                return Mono.just(admitted(lane, started));
+            }
+            Permit permit = new Permit();
+            return Mono.<Permit>create(sink -> {
+                Disposable timeout = Schedulers.parallel().schedule(() -> {
+                    if (withdraw(lane, ticket)) {
+                        sink.error(rejected(lane, "timeout"));
+                    }
+                }, lane.settings.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+                ticket.granted.thenRun(() -> {
+                    timeout.dispose();
+                    recordWait(lane, started);
+                    sink.success(permit);
+                });
+                sink.onCancel(() -> {
+                    timeout.dispose();
+                    if (!withdraw(lane, ticket)) {
+                        // Granted as the caller went away
+                        permit.close();
+                    }
+                });
+            });
+        });
+    }
+
+    public int running() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued(CustomerPlan plan) {
+        return lanes.get(plan).depth();
+    }
+
+    private LaneState laneOf(CustomerPlan plan) {
+        return lanes.get(plan == null ? CustomerPlan.FREE : plan);
+    }
+
+    /**
+     * Takes a slot at once if one is free and nobody is waiting, or queues a
+     * ticket for one.
+     *
+     * @return null if the slot was taken at once
+     * @throws SupportBotBusyException if the call is shed or the queue is full
+     */
+    private Ticket enqueue(LaneState lane) {
+        lock.lock();
+        try {
+            if (running < maxConcurrent.getAsInt() && nothingWaiting()) {
+                running++;
+                return null;
+            }
+            if (lane.settings.sheddable() && higherPlanWaiting(lane.plan)) {
+                throw rejected(lane, "shed");
+            }
+            if (lane.queue.size() >= lane.settings.queueCapacity()) {
+                throw rejected(lane, "queue-full");
+            }
+            Ticket ticket = new Ticket();
+            lane.queue.addLast(ticket);
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admitted(LaneState lane, long started) {
+        recordWait(lane, started);
+        return new Permit();
+    }
+
+    private static void recordWait(LaneState lane, long started) {
+        if (lane.waitTimer != null) {
+            lane.waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Removes a waiting ticket.
+     *
+     * @return false if the ticket was granted a slot meanwhile
+     */
+    private boolean withdraw(LaneState lane, Ticket ticket) {
+        lock.lock();
+        try {
+            return lane.queue.remove(ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            // Picks up a limit that has moved since the last release
+            int capacity = maxConcurrent.getAsInt();
+            while (running < capacity) {
+                LaneState next = nextLane();
+                if (next == null) {
+                    return;
+                }
+                running++;
+                next.queue.removeFirst().granted.complete(null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Smooth weighted round robin over the lanes with callers waiting.
+     */
+    private LaneState nextLane() {
+        LaneState best = null;
+        int totalWeight = 0;
+        for (LaneState lane : lanes.values()) {
+            if (lane.queue.isEmpty()) {
+                continue;
+            }
+            lane.credit += lane.settings.weight();
+            totalWeight += lane.settings.weight();
+            if (best == null || lane.credit > best.credit) {
+                best = lane;
+            }
+        }
+        if (best != null) {
+            best.credit -= totalWeight;
+        }
+        return best;
+    }
+
+    private boolean nothingWaiting() {
+        return lanes.values().stream().allMatch(lane -> lane.queue.isEmpty());
+    }
+
+    private boolean higherPlanWaiting(CustomerPlan plan) {
+        return lanes.values().stream()
+                .anyMatch(lane -> lane.plan.getPriorityLevel() > plan.getPriorityLevel() && !lane.queue.isEmpty());
+    }
+
+    private SupportBotBusyException rejected(LaneState lane, String reason) {
+        if (meterRegistry != null) {
+            Counter.builder("supportbot.admission.rejected")
+                    .description("Chats turned away before the model call")
+                    .tag("plan", lane.plan.name())
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+        return new SupportBotBusyException("Support bot is busy (" + lane.plan + ", " + reason + ")",
+                lane.settings.retryAfter());
+    }
+
+    /**
+     * Admission settings for one plan.
+     *
+     * @param weight        Share of freed slots while several plans wait
+     * @param queueCapacity Callers that may wait at once
+     * @param maxWait       Longest a caller waits before it is turned away
+     * @param sheddable     Turned away at once while a higher plan waits
+     */
+    public record Lane(int weight, int queueCapacity, Duration maxWait, boolean sheddable) {
+
+        public Lane {
+            if (weight < 1 || queueCapacity < 0) {
+                throw new IllegalArgumentException("Admission lane weight must be positive and capacity not negative");
+            }
+        }
+
+        Duration retryAfter() {
+            return maxWait.compareTo(Duration.ofSeconds(1)) > 0 ? maxWait : Duration.ofSeconds(1);
+        }
+    }
+
+    /**
+     * A model slot. Closing it more than once has no effect.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+
+    private static final class Ticket {
+        final CompletableFuture<Void> granted = new CompletableFuture<>();
+    }
+
+    private final class LaneState {
+        final CustomerPlan plan;
+        final Lane settings;
+        final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+        int credit;
+        Timer waitTimer;
+
+        LaneState(CustomerPlan plan, Lane settings) {
+            this.plan = plan;
+            this.settings = settings;
+        }
+
+        int depth() {
+            lock.lock();
+            try {
+                return queue.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.advisor.supportbot.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent work for the same key.
+ *
+ * The first caller for a key (the leader) does the work. Callers that arrive
+ * while it is in flight wait for the leader's result instead of repeating
+ * it, and get the leader's exception if it fails. Once the work is done the
+ * key is released, so later callers start afresh; this is not a cache.
+ *
+ * For streams, {@link #stream} multicasts one upstream subscription to every
+ * subscriber of the key. Late subscribers replay the elements they missed.
+ * The upstream is cancelled only when all subscribers have cancelled. The
+ * key is released before subscribers see the end of the stream, and a
+ * stream is subscribed to its source at most once: a caller that still
+ * reaches a finished stream gets its replay, never a second run.
+ *
+ * @param <K> Key type
+ * @param <V> Result (or stream element) type
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, SharedStream> streams = new ConcurrentHashMap<>();
+
+    private Counter coalesced;
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Registers a counter of coalesced callers and a gauge of keys in flight
+     * under {@code supportbot.singleflight.*}, tagged with the name.
+     */
+    public SingleFlight<K, V> bindTo(MeterRegistry registry) {
+        coalesced = Counter.builder("supportbot.singleflight.coalesced")
+                .description("Callers served by another caller's in-flight work")
+                .tag("flight", name)
+                .register(registry);
+        Gauge.builder("supportbot.singleflight.in.flight", this, SingleFlight::inFlight)
+                .description("Keys with work in flight")
+                .tag("flight", name)
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Runs the work, or joins the run already in flight for the key.
+     */
+    public Result<V> execute(K key, Supplier<V> work) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, mine);
+        if (inFlight == null) {
+            try {
+                V value = work.get();
+                mine.complete(value);
+                return new Result<>(value, false);
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, mine);
+            }
+        }
+        if (coalesced != null) {
+            coalesced.increment();
+        }
+        try {
+            return new Result<>(inFlight.join(), true);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Subscribes to the stream already in flight for the key, or starts one
+     * from the source.
+     */
+    public Flux<V> stream(K key, Supplier<Flux<V>> source) {
+        return Flux.defer(() -> {
+            while (true) {
+                SharedStream inFlight = streams.get(key);
+                if (inFlight != null && inFlight.join()) {
+                    if (coalesced != null) {
+                        coalesced.increment();
+                    }
+                    return inFlight.subscriber();
+                }
+                // None, or all its subscribers have just cancelled it
+                SharedStream mine = new SharedStream(key, source);
+                mine.join();
+                boolean started = inFlight == null
+                        ? streams.putIfAbsent(key, mine) == null
+                        : streams.replace(key, inFlight, mine);
+                if (started) {
+                    return mine.subscriber();
+                }
+            }
+        });
+    }
+
+    public int inFlight() {
+        return calls.size() + streams.size();
+    }
+
+    /**
+     * One upstream subscription and its replay, shared by the subscribers of
+     * a key.
+     */
+    private final class SharedStream {
+
+        private final K key;
+        private final Flux<V> replay;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // guarded by lock
+        private int subscribers;
+        private boolean cancelled;
+        private Disposable connection;
+
+        SharedStream(K key, Supplier<Flux<V>> source) {
+            this.key = key;
+            this.replay = Flux.defer(source)
+                    // Upstream of the replay, so this runs before any
+                    // subscriber sees the end
+                    .doOnTerminate(this::release)
+                    .replay()
+                    .autoConnect(1, this::connected);
+        }
+
+        /**
+         * Counts a subscriber in.
+         *
+         * @return false if every subscriber has already cancelled the stream
+         */
+        boolean join() {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return false;
+                }
+                subscribers++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Flux<V> subscriber() {
+            return replay.doOnCancel(this::leave);
+        }
+
+        private void connected(Disposable connection) {
+            lock.lock();
+            try {
+                this.connection = connection;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void leave() {
+            Disposable upstream;
+            lock.lock();
+            try {
+                if (--subscribers > 0) {
+                    return;
+                }
+                cancelled = true;
+                upstream = connection;
+            } finally {
+                lock.unlock();
+            }
+            release();
+            if (upstream != null) {
+                upstream.dispose();
+            }
+        }
+
+        private void release() {
+            streams.remove(key, this);
+        }
+    }
+
+    /**
+     * @param value  The result
+     * @param shared True if the result came from another caller's run
+     */
+    public record Result<V>(V value, boolean shared) {
+    }
+}
@@ -1,19 +1,36 @@
 package com.example.advisor.supportbot.config;
 
 import com.example.advisor.supportbot.advisor.CustomerContextAdvisor;
+import com.example.advisor.supportbot.advisor.ModelConcurrencyAdvisor;
 import com.example.advisor.supportbot.advisor.ResponseFormattingAdvisor;
 import com.example.advisor.supportbot.advisor.SentimentAnalysisAdvisor;
 import com.example.advisor.supportbot.advisor.SupportSafetyAdvisor;
 import com.example.advisor.supportbot.advisor.TicketEscalationAdvisor;
+import com.example.advisor.supportbot.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.advisor.supportbot.concurrency.PinnedThreadMonitor;
+import com.example.advisor.supportbot.concurrency.PlanAdmissionScheduler;
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
 import com.example.advisor.supportbot.repository.CustomerRepository;
 import com.example.advisor.supportbot.repository.TicketRepository;
+import com.example.advisor.supportbot.streaming.StreamGuard;
+import com.example.advisor.supportbot.streaming.StreamReplay;
+import com.example.advisor.supportbot.streaming.TokenCoalescer;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.time.Duration;
+import java.util.Map;
 
 /**
  * Main configuration for the Support Bot.
@@ -22,6 +39,104 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class SupportBotConfiguration {
 
+    // Keyword lists for the safety, sentiment and escalation advisors and
+    // query categorization; the built-in list is used while the file is missing
+    @Value("${supportbot.lexicon.location:file:config/supportbot-lexicon.json}")
+    private Resource lexiconLocation;
+
+    @Value("${supportbot.lexicon.watch.enabled:false}")
+    private boolean lexiconWatchEnabled;
+
+    @Value("${supportbot.lexicon.watch.interval:30s}")
+    private Duration lexiconWatchInterval;
+
+    // JFR virtual thread pinning events as metrics
+    @Value("${supportbot.virtual-threads.pinning-monitor.enabled:true}")
+    private boolean pinningMonitorEnabled;
+
+    @Value("${supportbot.virtual-threads.pinning-monitor.threshold:20ms}")
+    private Duration pinningMonitorThreshold;
+
+    // Model slots by customer plan: weight, queue capacity and longest wait
+    @Value("${supportbot.admission.enterprise.weight:6}")
+    private int enterpriseWeight;
+
+    @Value("${supportbot.admission.enterprise.queue-capacity:128}")
+    private int enterpriseQueueCapacity;
+
+    @Value("${supportbot.admission.enterprise.max-wait:30s}")
+    private Duration enterpriseMaxWait;
+
+    @Value("${supportbot.admission.premium.weight:3}")
+    private int premiumWeight;
+
+    @Value("${supportbot.admission.premium.queue-capacity:64}")
+    private int premiumQueueCapacity;
+
+    @Value("${supportbot.admission.premium.max-wait:15s}")
+    private Duration premiumMaxWait;
+
+    @Value("${supportbot.admission.free.weight:1}")
+    private int freeWeight;
+
+    @Value("${supportbot.admission.free.queue-capacity:16}")
+    private int freeQueueCapacity;
+
+    @Value("${supportbot.admission.free.max-wait:3s}")
+    private Duration freeMaxWait;
+
+    // Adaptive concurrency limits towards the chat and embedding models
+    @Value("${supportbot.model-limiter.chat.initial-limit:8}")
+    private int chatInitialLimit;
+
+    @Value("${supportbot.model-limiter.chat.min-limit:1}")
+    private int chatMinLimit;
+
+    @Value("${supportbot.model-limiter.chat.max-limit:32}")
+    private int chatMaxLimit;
+
+    @Value("${supportbot.model-limiter.embedding.initial-limit:16}")
+    private int embeddingInitialLimit;
+
+    @Value("${supportbot.model-limiter.embedding.min-limit:2}")
+    private int embeddingMinLimit;
+
+    @Value("${supportbot.model-limiter.embedding.max-limit:64}")
+    private int embeddingMaxLimit;
+
+    @Value("${supportbot.model-limiter.tolerance:2.0}")
+    private double limiterTolerance;
+
+    @Value("${supportbot.model-limiter.backoff-ratio:0.9}")
+    private double limiterBackoffRatio;
+
+    // SSE frames: tokens are joined for this long, or up to this size
+    @Value("${supportbot.stream.coalesce.window:40ms}")
+    private Duration streamCoalesceWindow;
+
+    @Value("${supportbot.stream.coalesce.max-bytes:512}")
+    private int streamCoalesceMaxBytes;
+
+    // Frames held for a slow client before its stream is cut off
+    @Value("${supportbot.stream.max-buffered-frames:256}")
+    private int streamMaxBufferedFrames;
+
+    // Resumable streams: events kept per stream, and for how long
+    @Value("${supportbot.stream.replay.enabled:true}")
+    private boolean streamReplayEnabled;
+
+    @Value("${supportbot.stream.replay.max-events:512}")
+    private int streamReplayMaxEvents;
+
+    @Value("${supportbot.stream.replay.max-streams:1000}")
+    private int streamReplayMaxStreams;
+
+    @Value("${supportbot.stream.replay.reconnect-window:10s}")
+    private Duration streamReplayReconnectWindow;
+
+    @Value("${supportbot.stream.replay.retention:30s}")
+    private Duration streamReplayRetention;
+
     /**
      * Creates a chat memory specifically for support bot conversations.
      * Uses sliding window of 20 messages to optimize costs while maintaining
@@ -46,12 +161,135 @@ public class SupportBotConfiguration {
         return MessageChatMemoryAdvisor.builder(chatMemory).build();
     }
 
+    /**
+     * All keyword lists (safety, sentiment, escalation, query categories)
+     * compiled into a single-pass matcher shared by the advisors. Edits to
+     * the lexicon file are swapped in without a restart when watching is
+     * enabled, or on {@code POST /support/lexicon/reload}. Until the file
+     * exists the built-in lexicon from the classpath is used.
+     */
+    @Bean(destroyMethod = "close")
+    public KeywordLexicon supportKeywordLexicon(MeterRegistry meterRegistry) {
+        KeywordLexicon lexicon = new KeywordLexicon(SupportLexicon.defaultMatcher(), lexiconLocation,
+                new ClassPathResource(SupportLexicon.DEFAULT_LOCATION)).bindTo(meterRegistry);
+        lexicon.reload();
+        System.out.println("🔤 Support Bot lexicon: " + lexicon.current().size() + " keywords from "
+                + lexicon.location().getDescription());
+        if (lexiconWatchEnabled) {
+            lexicon.watch(lexiconWatchInterval);
+        }
+        return lexicon;
+    }
+
+    /**
+     * Surfaces virtual threads pinned to their carrier (blocking inside
+     * {@code synchronized}) as {@code supportbot.virtual-threads.pinned}.
+     */
+    @Bean(destroyMethod = "close")
+    public PinnedThreadMonitor pinnedThreadMonitor(MeterRegistry meterRegistry) {
+        PinnedThreadMonitor monitor = new PinnedThreadMonitor(meterRegistry, pinningMonitorThreshold);
+        if (pinningMonitorEnabled) {
+            monitor.start();
+            System.out.println("🧵 Virtual thread pinning monitor: threshold " + pinningMonitorThreshold);
+        }
+        return monitor;
+    }
+
+    /**
+     * Admits chat model calls by customer plan: bounded queues per plan,
+     * weighted fair dequeue, and FREE shed first under overload. As many
+     * calls run at once as the chat model limiter allows.
+     */
+    @Bean
+    public PlanAdmissionScheduler planAdmissionScheduler(MeterRegistry meterRegistry,
+            @Qualifier("chatModelLimiter") AdaptiveConcurrencyLimiter chatModelLimiter) {
+        Map<CustomerPlan, PlanAdmissionScheduler.Lane> lanes = Map.of(
+                CustomerPlan.ENTERPRISE, new PlanAdmissionScheduler.Lane(enterpriseWeight, enterpriseQueueCapacity,
+                        enterpriseMaxWait, false),
+                CustomerPlan.PREMIUM, new PlanAdmissionScheduler.Lane(premiumWeight, premiumQueueCapacity,
+                        premiumMaxWait, false),
+                CustomerPlan.FREE, new PlanAdmissionScheduler.Lane(freeWeight, freeQueueCapacity, freeMaxWait, true));
+        System.out.println("🚦 Admission scheduler: " + chatModelLimiter.getLimit()
+                + " model calls to start (adaptive), weights "
+                + enterpriseWeight + "/" + premiumWeight + "/" + freeWeight + " (enterprise/premium/free)");
+        return new PlanAdmissionScheduler(chatModelLimiter, lanes).bindTo(meterRegistry);
+    }
+
+    /**
+     * Adapts the number of concurrent chat model calls to the provider's
+     * latency; the admission scheduler queues calls over the limit.
+     */
+    @Bean
+    @Qualifier("chatModelLimiter")
+    public AdaptiveConcurrencyLimiter chatModelLimiter(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter("chat", new AdaptiveConcurrencyLimiter.Settings(chatInitialLimit,
+                chatMinLimit, chatMaxLimit, limiterTolerance, limiterBackoffRatio)).bindTo(meterRegistry);
+    }
+
+    /**
+     * Adapts the number of concurrent query embedding calls to the
+     * provider's latency; calls over the limit fail fast and retrieval falls
+     * back to BM25.
+     */
+    @Bean
+    @Qualifier("embeddingModelLimiter")
+    public AdaptiveConcurrencyLimiter embeddingModelLimiter(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter("embedding", new AdaptiveConcurrencyLimiter.Settings(
+                embeddingInitialLimit, embeddingMinLimit, embeddingMaxLimit, limiterTolerance, limiterBackoffRatio))
+                .bindTo(meterRegistry);
+    }
+
+    /**
+     * Model concurrency advisor, innermost in the chain. Chat calls have
+     * been admitted against the limiter already, so it only measures them.
+     */
+    @Bean
+    public ModelConcurrencyAdvisor modelConcurrencyAdvisor(
+            @Qualifier("chatModelLimiter") AdaptiveConcurrencyLimiter chatModelLimiter) {
+        return new ModelConcurrencyAdvisor(chatModelLimiter, true);
+    }
+
+    /**
+     * Joins streamed tokens into fewer SSE frames for {@code /support/stream}.
+     */
+    @Bean
+    public TokenCoalescer tokenCoalescer(MeterRegistry meterRegistry) {
+        System.out.println("📦 Stream frames: tokens coalesced for " + streamCoalesceWindow.toMillis() + " ms or "
+                + streamCoalesceMaxBytes + " bytes");
+        return new TokenCoalescer(streamCoalesceWindow, streamCoalesceMaxBytes).bindTo(meterRegistry);
+    }
+
+    /**
+     * Cancels model generation for streams whose client has gone or fallen
+     * too far behind.
+     */
+    @Bean
+    public StreamGuard streamGuard(MeterRegistry meterRegistry) {
+        System.out.println("🔌 Stream guard: up to " + streamMaxBufferedFrames + " frames buffered per client");
+        return new StreamGuard(streamMaxBufferedFrames).bindTo(meterRegistry);
+    }
+
+    /**
+     * Replay buffers that let a dropped {@code /support/stream} connection
+     * resume with {@code Last-Event-ID}.
+     */
+    @Bean
+    public StreamReplay streamReplay(MeterRegistry meterRegistry) {
+        int maxStreams = streamReplayEnabled ? streamReplayMaxStreams : 0;
+        System.out.println("🔁 Stream replay: " + (streamReplayEnabled
+                ? "up to " + maxStreams + " streams of " + streamReplayMaxEvents + " events, kept "
+                        + streamReplayRetention.toSeconds() + "s after completion"
+                : "disabled"));
+        return new StreamReplay(streamReplayMaxEvents, maxStreams, streamReplayReconnectWindow,
+                streamReplayRetention).bindTo(meterRegistry);
+    }
+
     /**
      * Safety advisor for blocking inappropriate content.
      */
     @Bean
-    public SupportSafetyAdvisor supportSafetyAdvisor() {
-        return new SupportSafetyAdvisor();
+    public SupportSafetyAdvisor supportSafetyAdvisor(KeywordLexicon supportKeywordLexicon) {
+        return new SupportSafetyAdvisor(supportKeywordLexicon);
     }
 
     /**
@@ -66,8 +304,8 @@ public class SupportBotConfiguration {
      * Sentiment analysis advisor for tracking customer mood.
      */
     @Bean
-    public SentimentAnalysisAdvisor sentimentAnalysisAdvisor() {
-        return new SentimentAnalysisAdvisor();
+    public SentimentAnalysisAdvisor sentimentAnalysisAdvisor(KeywordLexicon supportKeywordLexicon) {
+        return new SentimentAnalysisAdvisor(supportKeywordLexicon);
     }
 
     /**
@@ -79,8 +317,9 @@ public class SupportBotConfiguration {
      * @Bean
      * public TicketEscalationAdvisor ticketEscalationAdvisor(
      * TicketRepository ticketRepository,
-     * CustomerRepository customerRepository) {
-     * return new TicketEscalationAdvisor(ticketRepository, customerRepository);
+     * CustomerRepository customerRepository, KeywordLexicon supportKeywordLexicon) {
+     * return new TicketEscalationAdvisor(ticketRepository, customerRepository,
+     * supportKeywordLexicon);
      * }
      */
 
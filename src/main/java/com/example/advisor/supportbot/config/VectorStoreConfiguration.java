@@ -1,10 +1,24 @@
 package com.example.advisor.supportbot.config;
 
-import org.springframework.ai.document.Document;
+import com.example.advisor.embedding.CachingEmbeddingModel;
+import com.example.advisor.embedding.ConcurrencyLimitedEmbeddingModel;
+import com.example.advisor.embedding.EmbeddingSnapshot;
+import com.example.advisor.embedding.SnapshotEmbeddingModel;
+import com.example.advisor.supportbot.cache.SemanticAnswerCache;
+import com.example.advisor.supportbot.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.advisor.supportbot.ingestion.IngestionPipeline;
+import com.example.advisor.supportbot.ingestion.IngestionSettings;
+import com.example.advisor.supportbot.ingestion.IngestionSource;
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseIndexer;
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseLock;
+import com.example.advisor.supportbot.ingestion.RefreshResult;
+import com.example.advisor.supportbot.search.Bm25Index;
+import com.example.advisor.supportbot.vectorstore.ExactVectorStore;
+import com.example.advisor.supportbot.vectorstore.HnswVectorStore;
+import com.example.advisor.supportbot.vectorstore.QuantizedVectorStore;
+import com.example.advisor.supportbot.vectorstore.VectorMath;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.reader.TextReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,7 +26,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -31,48 +46,223 @@ public class VectorStoreConfiguration {
     @Value("classpath:supportbot-docs/troubleshooting.txt")
     private Resource troubleshootingResource;
 
+    @Value("${embedding.snapshot.dir}")
+    private Path snapshotDir;
+
+    @Value("${embedding.snapshot.model-id}")
+    private String embeddingModelId;
+
+    // "simple" (exact brute-force scan), "hnsw" (approximate nearest neighbour graph)
+    // or "quantized" (int8 vectors in memory-mapped files, off heap)
+    @Value("${supportbot.vector-store.type:simple}")
+    private String vectorStoreType;
+
+    @Value("${supportbot.vector-store.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${supportbot.vector-store.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${supportbot.vector-store.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+
+    // Share of deleted or replaced entries above which the HNSW and quantized stores compact
+    @Value("${supportbot.vector-store.max-deleted-ratio:0.25}")
+    private double maxDeletedRatio;
+
+    // Metadata keys with a bitmap index for filtered (e.g. per-category) searches
+    @Value("${supportbot.vector-store.indexed-metadata:category,published,tenant}")
+    private List<String> indexedMetadataKeys;
+
+    @Value("${supportbot.query-embedding-cache.max-size:10000}")
+    private long queryCacheMaxSize;
+
+    @Value("${supportbot.query-embedding-cache.ttl:1h}")
+    private Duration queryCacheTtl;
+
+    @Value("${supportbot.answer-cache.similarity-threshold:0.95}")
+    private double answerCacheThreshold;
+
+    @Value("${supportbot.answer-cache.max-size:1000}")
+    private int answerCacheMaxSize;
+
+    @Value("${supportbot.answer-cache.ttl:1h}")
+    private Duration answerCacheTtl;
+
+    @Value("${supportbot.ingestion.read-parallelism:4}")
+    private int ingestionReadParallelism;
+
+    @Value("${supportbot.ingestion.max-batch-tokens:8000}")
+    private int ingestionMaxBatchTokens;
+
+    @Value("${supportbot.ingestion.max-batch-chunks:128}")
+    private int ingestionMaxBatchChunks;
+
+    @Value("${supportbot.ingestion.max-in-flight:4}")
+    private int ingestionMaxInFlight;
+
+    @Value("${supportbot.ingestion.max-attempts:4}")
+    private int ingestionMaxAttempts;
+
+    @Value("${supportbot.ingestion.initial-backoff:500ms}")
+    private Duration ingestionInitialBackoff;
+
+    // Poll the knowledge base documents and re-index changes without a restart
+    @Value("${supportbot.knowledge-base.watch.enabled:false}")
+    private boolean watchEnabled;
+
+    @Value("${supportbot.knowledge-base.watch.interval:30s}")
+    private Duration watchInterval;
+
+    // Updates within this delay share one write of the embedding snapshot
+    @Value("${supportbot.knowledge-base.snapshot-save-delay:5s}")
+    private Duration snapshotSaveDelay;
+
+    @Value("${supportbot.vector-store.quantized.dir:data/vector-store}")
+    private Path quantizedDir;
+
+    @Value("${supportbot.vector-store.quantized.rescore-factor:4}")
+    private int quantizedRescoreFactor;
+
     /**
      * Creates a dedicated VectorStore for the Support Bot knowledge base.
      * This is separate from the main tutorial vector store.
      */
     @Bean
     @Qualifier("supportBotVectorStore")
-    public VectorStore supportBotVectorStore(EmbeddingModel embeddingModel) {
-        SimpleVectorStore vectorStore = SimpleVectorStore.builder(embeddingModel).build();
+    public VectorStore supportBotVectorStore(KnowledgeBaseIndexer supportBotIndexer) {
+        return supportBotIndexer.getVectorStore();
+    }
 
-        List<Document> allDocuments = new ArrayList<>();
+    /**
+     * Document embeddings for the knowledge base, served from an on-disk
+     * snapshot, so a restart only pays for chunks that are new or have
+     * changed since the last boot.
+     *
+     * Not a default candidate, so plain {@code EmbeddingModel} injection
+     * points still get the auto-configured model.
+     */
+    @Bean(defaultCandidate = false)
+    @Qualifier("supportBotSnapshotEmbeddingModel")
+    public SnapshotEmbeddingModel supportBotSnapshotEmbeddingModel(EmbeddingModel embeddingModel) {
+        return new SnapshotEmbeddingModel(embeddingModel,
+                EmbeddingSnapshot.open(snapshotDir.resolve("supportbot-kb.snapshot"), embeddingModelId));
+    }
 
-        // Load all knowledge base documents
-        allDocuments.addAll(loadDocumentWithCategory(productFaqResource, "faq"));
-        allDocuments.addAll(loadDocumentWithCategory(billingPolicyResource, "billing"));
-        allDocuments.addAll(loadDocumentWithCategory(troubleshootingResource, "troubleshooting"));
+    /**
+     * Query embeddings for the knowledge base, cached in memory so repeat
+     * questions skip the embedding round-trip. Misses go through the
+     * embedding concurrency limiter.
+     */
+    @Bean(defaultCandidate = false)
+    @Qualifier("supportBotQueryEmbeddingModel")
+    public CachingEmbeddingModel supportBotQueryEmbeddingModel(
+            @Qualifier("supportBotSnapshotEmbeddingModel") SnapshotEmbeddingModel snapshotModel,
+            @Qualifier("embeddingModelLimiter") AdaptiveConcurrencyLimiter embeddingModelLimiter,
+            MeterRegistry meterRegistry) {
+        return new CachingEmbeddingModel(new ConcurrencyLimitedEmbeddingModel(snapshotModel, embeddingModelLimiter),
+                queryCacheMaxSize, queryCacheTtl).bindTo(meterRegistry);
+    }
 
-        // Split documents for optimal retrieval
-        TokenTextSplitter splitter = new TokenTextSplitter();
-        List<Document> splitDocuments = splitter.apply(allDocuments);
+    /**
+     * Loads the knowledge base and keeps it up to date.
+     *
+     * The same chunks are indexed in the vector store and for BM25 search.
+     * Later refreshes (watcher or {@code POST /support/knowledge-base/refresh})
+     * only embed and publish the chunks that changed.
+     */
+    @Bean(destroyMethod = "close")
+    public KnowledgeBaseIndexer supportBotIndexer(
+            @Qualifier("supportBotSnapshotEmbeddingModel") SnapshotEmbeddingModel snapshotModel,
+            @Qualifier("supportBotQueryEmbeddingModel") CachingEmbeddingModel queryModel,
+            Bm25Index supportBotLexicalIndex, KnowledgeBaseLock knowledgeBaseLock, MeterRegistry meterRegistry) {
+        VectorStore vectorStore = createVectorStore(queryModel);
 
-        vectorStore.add(splitDocuments);
+        // Read, split, batch and embed the knowledge base documents in parallel
+        IngestionPipeline pipeline = new IngestionPipeline(new IngestionSettings(ingestionReadParallelism,
+                ingestionMaxBatchTokens, ingestionMaxBatchChunks, ingestionMaxInFlight, ingestionMaxAttempts,
+                ingestionInitialBackoff), meterRegistry);
+        KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer(vectorStore, supportBotLexicalIndex, snapshotModel,
+                pipeline, knowledgeBaseLock, List.of(
+                        new IngestionSource(productFaqResource, "faq"),
+                        new IngestionSource(billingPolicyResource, "billing"),
+                        new IngestionSource(troubleshootingResource, "troubleshooting")), snapshotSaveDelay);
+        RefreshResult result = indexer.refresh();
 
-        System.out.println("✅ Support Bot Knowledge Base loaded: " + splitDocuments.size() + " document chunks");
+        System.out.println("✅ Support Bot Knowledge Base loaded: " + result.added() + " document chunks in "
+                + result.elapsed().toMillis() + " ms (" + snapshotModel.getEmbeddedCount()
+                + " embedded by the model, the rest served from the snapshot)");
 
-        return vectorStore;
+        if (watchEnabled) {
+            indexer.watch(watchInterval);
+            System.out.println("👀 Support Bot Knowledge Base watching for changes every " + watchInterval);
+        }
+        return indexer;
     }
 
     /**
-     * Loads a document and adds category metadata.
+     * Answers near-duplicate questions without an LLM call. Entries are
+     * dropped when the chunks or categories they were built from change.
      */
-    private List<Document> loadDocumentWithCategory(Resource resource, String category) {
-        if (!resource.exists()) {
-            System.out.println("⚠️ Knowledge base document not found: " + resource.getFilename());
-            return List.of();
-        }
+    @Bean
+    public SemanticAnswerCache supportBotAnswerCache(
+            @Qualifier("supportBotQueryEmbeddingModel") CachingEmbeddingModel queryModel,
+            KnowledgeBaseIndexer supportBotIndexer, MeterRegistry meterRegistry) {
+        SemanticAnswerCache cache = new SemanticAnswerCache(queryModel, answerCacheThreshold, answerCacheMaxSize,
+                answerCacheTtl).bindTo(meterRegistry);
+        supportBotIndexer.addChangeListener(cache::invalidate);
+        return cache;
+    }
 
-        TextReader reader = new TextReader(resource);
-        List<Document> documents = reader.get();
+    /**
+     * Guards the knowledge base indexes so searches never see a half-applied
+     * refresh.
+     */
+    @Bean
+    public KnowledgeBaseLock knowledgeBaseLock() {
+        return new KnowledgeBaseLock();
+    }
 
-        // Add category metadata to each document
-        documents.forEach(doc -> doc.getMetadata().put("category", category));
+    /**
+     * In-memory BM25 index over the knowledge base chunks, used for hybrid
+     * retrieval and as a fallback when the embedding model is unavailable.
+     */
+    @Bean
+    public Bm25Index supportBotLexicalIndex() {
+        return new Bm25Index();
+    }
 
-        return documents;
+    /**
+     * Builds the store selected by {@code supportbot.vector-store.type}.
+     * HNSW trades a little recall for much faster search on large knowledge
+     * bases; the simple store scores every chunk on every query. All stores
+     * score with the {@link VectorMath} SIMD kernel when it is available. The
+     * quantized store keeps vectors and chunk text in mapped files, so the
+     * heap stays flat as the knowledge base grows.
+     */
+    private VectorStore createVectorStore(EmbeddingModel embeddingModel) {
+        if ("hnsw".equalsIgnoreCase(vectorStoreType)) {
+            System.out.println("🧭 Support Bot Knowledge Base using HNSW index (M=" + hnswM
+                    + ", efConstruction=" + hnswEfConstruction + ", efSearch=" + hnswEfSearch + ")");
+            return HnswVectorStore.builder(embeddingModel)
+                    .m(hnswM)
+                    .efConstruction(hnswEfConstruction)
+                    .efSearch(hnswEfSearch)
+                    .maxDeletedRatio(maxDeletedRatio)
+                    .indexedMetadataKeys(indexedMetadataKeys)
+                    .build();
+        }
+        if ("quantized".equalsIgnoreCase(vectorStoreType)) {
+            System.out.println("🗜️ Support Bot Knowledge Base using int8 memory-mapped store in " + quantizedDir
+                    + " (rescore factor " + quantizedRescoreFactor + ")");
+            return QuantizedVectorStore.builder(embeddingModel, quantizedDir)
+                    .rescoreFactor(quantizedRescoreFactor)
+                    .maxDeletedRatio(maxDeletedRatio)
+                    .indexedMetadataKeys(indexedMetadataKeys)
+                    .build();
+        }
+        System.out.println("🧮 Support Bot Knowledge Base using exact search with the " + VectorMath.kernelName()
+                + " similarity kernel");
+        return new ExactVectorStore(embeddingModel);
     }
 }
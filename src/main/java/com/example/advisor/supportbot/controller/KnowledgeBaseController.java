@@ -0,0 +1,31 @@
+package com.example.advisor.supportbot.controller;
+
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseIndexer;
+import com.example.advisor.supportbot.ingestion.RefreshResult;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller for maintaining the support knowledge base.
+ */
+@RestController
+@RequestMapping("/support/knowledge-base")
+public class KnowledgeBaseController {
+
+    private final KnowledgeBaseIndexer indexer;
+
+    public KnowledgeBaseController(KnowledgeBaseIndexer indexer) {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Re-index the knowledge base documents that changed since the last
+     * refresh. Unchanged chunks are not re-embedded.
+     * 
+     * POST /support/knowledge-base/refresh
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<RefreshResult> refresh() {
+        return ResponseEntity.ok(indexer.refresh());
+    }
+}
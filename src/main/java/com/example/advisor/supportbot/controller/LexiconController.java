@@ -0,0 +1,35 @@
+package com.example.advisor.supportbot.controller;
+
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the keyword lexicon used by the advisors.
+ */
+@RestController
+@RequestMapping("/support/lexicon")
+public class LexiconController {
+
+    private final KeywordLexicon lexicon;
+
+    public LexiconController(KeywordLexicon lexicon) {
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * Reload the lexicon file. If it cannot be read or compiled, the current
+     * keywords stay in use.
+     * 
+     * POST /support/lexicon/reload
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        boolean reloaded = lexicon.reload();
+        return ResponseEntity.ok(Map.of(
+                "reloaded", reloaded,
+                "keywords", lexicon.current().size()));
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.advisor.supportbot.controller;
 
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
 import com.example.advisor.supportbot.model.dto.ChatRequest;
 import com.example.advisor.supportbot.model.dto.ChatResponse;
 import com.example.advisor.supportbot.service.SupportBotService;
+import com.example.advisor.supportbot.streaming.StreamGuard;
+import com.example.advisor.supportbot.streaming.StreamReplay;
+import com.example.advisor.supportbot.streaming.TokenCoalescer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -13,10 +22,22 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/support")
 public class SupportChatController {
 
+    // Ends a streamed answer; EventSource ignores events without data
+    private static final ServerSentEvent<String> DONE = ServerSentEvent.builder("done").event("done").build();
+
     private final SupportBotService supportBotService;
+    private final TokenCoalescer tokenCoalescer;
+    private final StreamGuard streamGuard;
+    private final StreamReplay streamReplay;
+    private final ObjectMapper objectMapper;
 
-    public SupportChatController(SupportBotService supportBotService) {
+    public SupportChatController(SupportBotService supportBotService, TokenCoalescer tokenCoalescer,
+            StreamGuard streamGuard, StreamReplay streamReplay, ObjectMapper objectMapper) {
         this.supportBotService = supportBotService;
+        this.tokenCoalescer = tokenCoalescer;
+        this.streamGuard = streamGuard;
+        this.streamReplay = streamReplay;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -33,16 +54,42 @@ public class SupportChatController {
 
     /**
      * Streaming chat endpoint (Level 4.5).
-     * Uses Server-Sent Events (SSE) to push tokens.
+     * Uses Server-Sent Events (SSE) to push tokens. Tokens are coalesced into
+     * frames; each frame's data is a JSON string of answer text. Sentiment
+     * and status go out as named events with plain data, and a {@code done}
+     * event ends the answer. A client that disconnects or falls too far
+     * behind cancels the model's generation, unless it reconnects with
+     * {@code Last-Event-ID} in time to resume where it left off.
      */
     @GetMapping(value = "/stream", produces = org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE)
-    public reactor.core.publisher.Flux<java.util.Map<String, String>> streamChat(
+    public reactor.core.publisher.Flux<ServerSentEvent<String>> streamChat(
             @RequestParam String message,
             @RequestParam(required = false) String customerId,
-            @RequestParam(required = false) String sessionId) {
+            @RequestParam(required = false) String sessionId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
 
         ChatRequest request = new ChatRequest(message, customerId, sessionId);
-        return supportBotService.streamChat(request);
+        return streamGuard.bound(streamReplay
+                .open(lastEventId, () -> streamGuard.generation(supportBotService.streamChat(request),
+                        tokenCoalescer::coalesce))
+                .map(this::toServerSentEvent)
+                // Without it the browser takes the end of the response for a drop
+                .concatWith(reactor.core.publisher.Flux.just(DONE)));
+    }
+
+    private ServerSentEvent<String> toServerSentEvent(StreamReplay.StreamEvent streamEvent) {
+        java.util.Map.Entry<String, String> entry = streamEvent.event().entrySet().iterator().next();
+        if (!"content".equals(entry.getKey())) {
+            return ServerSentEvent.builder(entry.getValue()).id(streamEvent.id()).event(entry.getKey()).build();
+        }
+        // JSON keeps leading spaces, which the SSE "data:" field would drop
+        try {
+            return ServerSentEvent.builder(objectMapper.writeValueAsString(entry.getValue()))
+                    .id(streamEvent.id())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -86,6 +133,17 @@ public class SupportChatController {
         return ResponseEntity.ok(supportBotService.getChatHistory(customerId, sessionId));
     }
 
+    /**
+     * Chats turned away at capacity get 503 with a Retry-After header and
+     * the busy message in the usual response shape.
+     */
+    @ExceptionHandler(SupportBotBusyException.class)
+    public ResponseEntity<ChatResponse> busy(SupportBotBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(ChatResponse.simple(SupportBotService.BUSY_MESSAGE, null));
+    }
+
     /**
      * Health check endpoint.
      */
@@ -0,0 +1,21 @@
+package com.example.advisor.supportbot.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a chat is turned away because the bot is at
+ * capacity. The client should retry after {@link #getRetryAfter()}.
+ */
+public class SupportBotBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public SupportBotBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.advisor.supportbot.ingestion;
+
+import com.example.advisor.supportbot.exception.KnowledgeBaseException;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.reader.TextReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Reads, splits and embeds knowledge base documents.
+ *
+ * Stages:
+ * 1. Read + split ({@link #read}): every source is read and split on its own
+ * worker, so one large file does not hold up the others. A source is cut
+ * on blank lines first and each paragraph is token-split on its own, so an
+ * edit only changes the chunks of the paragraph it touches. Chunk ids are
+ * derived from the source and the chunk text, so an unchanged chunk keeps
+ * its id across reads.
+ * 2. Batch + embed ({@link #process}): chunks are grouped into embedding
+ * batches bounded by token count and chunk count. At most
+ * {@code maxInFlight} batches run at once. A failed batch is retried with
+ * exponential backoff and jitter.
+ *
+ * Progress is published as {@code supportbot.ingestion.*} meters and logged as
+ * chunks/sec.
+ */
+public class IngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern HEADING = Pattern.compile("(?s).*\\n[=-]{3,}");
+
+    private final IngestionSettings settings;
+    private final BatchingStrategy batchingStrategy;
+
+    private final Counter chunksCounter;
+    private final Counter retriesCounter;
+    private final Counter failedBatchesCounter;
+    private final Timer batchTimer;
+
+    public IngestionPipeline(IngestionSettings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.batchingStrategy = new TokenCountBatchingStrategy(EncodingType.CL100K_BASE, settings.maxBatchTokens(),
+                0.1);
+        this.chunksCounter = Counter.builder("supportbot.ingestion.chunks")
+                .description("Chunks embedded")
+                .register(meterRegistry);
+        this.retriesCounter = Counter.builder("supportbot.ingestion.retries")
+                .description("Embedding batch retries")
+                .register(meterRegistry);
+        this.failedBatchesCounter = Counter.builder("supportbot.ingestion.failed.batches")
+                .description("Embedding batches that failed after all retries")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("supportbot.ingestion.batch")
+                .description("Time to embed one batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads and splits all sources in parallel.
+     *
+     * @return chunks per source, in source order
+     * @throws KnowledgeBaseException if a source cannot be read
+     */
+    public Map<IngestionSource, List<Document>> read(List<IngestionSource> sources) {
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, Math.min(sources.size(),
+                settings.readParallelism())));
+        try {
+            List<CompletableFuture<List<Document>>> reads = sources.stream()
+                    .map(source -> CompletableFuture.supplyAsync(() -> readAndSplit(source), readers))
+                    .toList();
+            CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).join();
+            Map<IngestionSource, List<Document>> chunks = new LinkedHashMap<>();
+            for (int i = 0; i < sources.size(); i++) {
+                chunks.put(sources.get(i), reads.get(i).join());
+            }
+            return chunks;
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new KnowledgeBaseException("Failed to read knowledge base sources: " + cause.getMessage(), cause);
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    /**
+     * Splits the chunks into batches and runs {@code embedBatch} on each,
+     * with bounded concurrency and retries. Blocks until all batches are done.
+     *
+     * @throws KnowledgeBaseException if a batch still fails after all retries
+     */
+    public IngestionResult process(List<Document> chunks, Consumer<List<Document>> embedBatch) {
+        long started = System.nanoTime();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        ExecutorService embedders = Executors.newFixedThreadPool(settings.maxInFlight());
+        try {
+            CompletableFuture.allOf(toBatches(chunks).stream()
+                    .map(batch -> CompletableFuture
+                            .runAsync(() -> embedWithRetry(batch, embedBatch, retries), embedders)
+                            .thenRun(() -> progress(batch, processed, batches, started))
+                            .exceptionally(failure -> {
+                                failures.add(failure.getCause() != null ? failure.getCause() : failure);
+                                return null;
+                            }))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            embedders.shutdown();
+        }
+
+        IngestionResult result = new IngestionResult(processed.get(), batches.get(), retries.get(),
+                Duration.ofNanos(System.nanoTime() - started));
+        if (!failures.isEmpty()) {
+            KnowledgeBaseException exception = new KnowledgeBaseException("Knowledge base ingestion failed for "
+                    + failures.size() + " batch(es) after embedding " + result.chunks() + " chunks",
+                    failures.peek());
+            failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+        if (result.chunks() > 0) {
+            log.info("Embedded {} chunks in {} batches ({} retries) in {} ms ({} chunks/sec)",
+                    result.chunks(), result.batches(), result.retries(), result.elapsed().toMillis(),
+                    String.format("%.1f", result.chunksPerSecond()));
+        }
+        return result;
+    }
+
+    /**
+     * Reads a source and splits it into chunks tagged with the source category.
+     * Paragraphs are token-split separately, so chunk boundaries never move
+     * across an edit in another paragraph. A new splitter per source keeps
+     * the workers independent.
+     */
+    private List<Document> readAndSplit(IngestionSource source) {
+        Resource resource = source.resource();
+        if (!resource.exists()) {
+            log.warn("Knowledge base document not found: {}", resource.getFilename());
+            return List.of();
+        }
+        List<Document> documents = new TextReader(resource).get();
+        documents.forEach(doc -> doc.getMetadata().put("category", source.category()));
+        List<Document> paragraphs = documents.stream().flatMap(doc -> paragraphs(doc).stream()).toList();
+        return withStableIds(source, new TokenTextSplitter().apply(paragraphs));
+    }
+
+    /**
+     * Cuts a document on blank lines. An underlined heading is kept with the
+     * paragraph that follows it rather than becoming a chunk of its own.
+     */
+    static List<Document> paragraphs(Document document) {
+        List<Document> paragraphs = new ArrayList<>();
+        StringBuilder heading = new StringBuilder();
+        for (String paragraph : PARAGRAPH_BREAK.split(document.getText())) {
+            String text = paragraph.strip();
+            if (text.isEmpty()) {
+                continue;
+            }
+            if (HEADING.matcher(text).matches()) {
+                heading.append(text).append("\n\n");
+                continue;
+            }
+            paragraphs.add(Document.builder()
+                    .text(heading + text)
+                    .metadata(new HashMap<>(document.getMetadata()))
+                    .build());
+            heading.setLength(0);
+        }
+        if (!heading.isEmpty()) {
+            paragraphs.add(Document.builder()
+                    .text(heading.toString().strip())
+                    .metadata(new HashMap<>(document.getMetadata()))
+                    .build());
+        }
+        return paragraphs;
+    }
+
+    /**
+     * Replaces the splitter's random ids with ids derived from the source and
+     * the chunk text (plus an occurrence counter for repeated text), so
+     * re-reading an unchanged source yields the same ids.
+     */
+    static List<Document> withStableIds(IngestionSource source, List<Document> chunks) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        List<Document> stable = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            int occurrence = occurrences.merge(chunk.getText(), 1, Integer::sum);
+            String key = source.key() + "\n" + occurrence + "\n" + chunk.getText();
+            stable.add(Document.builder()
+                    .id(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString())
+                    .text(chunk.getText())
+                    .metadata(chunk.getMetadata())
+                    .build());
+        }
+        return stable;
+    }
+
+    /**
+     * Groups chunks by token budget, then caps each group at the maximum
+     * chunk count.
+     */
+    List<List<Document>> toBatches(List<Document> chunks) {
+        List<List<Document>> batches = new ArrayList<>();
+        for (List<Document> tokenBatch : batchingStrategy.batch(chunks)) {
+            for (int start = 0; start < tokenBatch.size(); start += settings.maxBatchChunks()) {
+                batches.add(tokenBatch.subList(start, Math.min(tokenBatch.size(),
+                        start + settings.maxBatchChunks())));
+            }
+        }
+        return batches;
+    }
+
+    private void embedWithRetry(List<Document> batch, Consumer<List<Document>> embedBatch, AtomicInteger retries) {
+        Duration backoff = settings.initialBackoff();
+        for (int attempt = 1;; attempt++) {
+            try {
+                batchTimer.record(() -> embedBatch.accept(batch));
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= settings.maxAttempts()) {
+                    failedBatchesCounter.increment();
+                    throw new KnowledgeBaseException("Failed to embed batch of " + batch.size()
+                            + " chunks after " + attempt + " attempts: " + e.getMessage(), e);
+                }
+                retries.incrementAndGet();
+                retriesCounter.increment();
+                long jitter = ThreadLocalRandom.current().nextLong(backoff.toMillis() / 2 + 1);
+                log.warn("Embedding batch of {} chunks failed (attempt {}/{}), retrying in {} ms: {}",
+                        batch.size(), attempt, settings.maxAttempts(), backoff.toMillis() + jitter,
+                        e.getMessage());
+                sleep(backoff.toMillis() + jitter);
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private void progress(List<Document> batch, AtomicInteger chunks, AtomicInteger batches, long started) {
+        chunksCounter.increment(batch.size());
+        int total = chunks.addAndGet(batch.size());
+        int batchCount = batches.incrementAndGet();
+        double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+        log.debug("Ingestion progress: {} chunks in {} batches ({} chunks/sec)", total, batchCount,
+                String.format("%.1f", total / seconds));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KnowledgeBaseException("Interrupted while waiting to retry an embedding batch", e);
+        }
+    }
+}
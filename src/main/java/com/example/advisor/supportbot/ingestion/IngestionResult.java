@@ -0,0 +1,19 @@
+package com.example.advisor.supportbot.ingestion;
+
+import java.time.Duration;
+
+/**
+ * Summary of one {@link IngestionPipeline#process} run.
+ *
+ * @param chunks  Chunks embedded
+ * @param batches Embedding batches sent
+ * @param retries Batch retries after transient failures
+ * @param elapsed Wall-clock time of the run
+ */
+public record IngestionResult(int chunks, int batches, int retries, Duration elapsed) {
+
+    public double chunksPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? chunks / seconds : 0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.advisor.supportbot.ingestion;
+
+import java.time.Duration;
+
+/**
+ * Tuning for {@link IngestionPipeline}.
+ *
+ * @param readParallelism Sources read and split at the same time
+ * @param maxBatchTokens  Token budget of one embedding request
+ * @param maxBatchChunks  Chunk cap of one embedding request
+ * @param maxInFlight     Embedding requests running at the same time
+ * @param maxAttempts     Attempts per batch before ingestion fails
+ * @param initialBackoff  Wait before the first retry; doubles on each retry
+ */
+public record IngestionSettings(int readParallelism, int maxBatchTokens, int maxBatchChunks, int maxInFlight,
+        int maxAttempts, Duration initialBackoff) {
+
+    public IngestionSettings {
+        if (readParallelism < 1 || maxBatchTokens < 1 || maxBatchChunks < 1 || maxInFlight < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Ingestion settings must be positive");
+        }
+    }
+}
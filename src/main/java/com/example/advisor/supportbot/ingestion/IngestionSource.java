@@ -0,0 +1,19 @@
+package com.example.advisor.supportbot.ingestion;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A knowledge base document and the category its chunks are tagged with.
+ *
+ * @param resource The document to read
+ * @param category The category metadata (faq, billing, troubleshooting)
+ */
+public record IngestionSource(Resource resource, String category) {
+
+    /**
+     * Stable identity of the source, used to derive chunk ids.
+     */
+    public String key() {
+        return category + ":" + resource.getDescription();
+    }
+}
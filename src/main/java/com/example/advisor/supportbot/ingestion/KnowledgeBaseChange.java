@@ -0,0 +1,13 @@
+package com.example.advisor.supportbot.ingestion;
+
+import java.util.Set;
+
+/**
+ * Chunks published by one knowledge base update, passed to the listeners
+ * registered with {@link KnowledgeBaseIndexer#addChangeListener}.
+ *
+ * @param categories Categories of the added or replaced chunks
+ * @param chunkIds   Ids of the added, replaced and deleted chunks
+ */
+public record KnowledgeBaseChange(Set<String> categories, Set<String> chunkIds) {
+}
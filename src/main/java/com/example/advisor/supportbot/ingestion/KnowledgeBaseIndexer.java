@@ -0,0 +1,326 @@
+package com.example.advisor.supportbot.ingestion;
+
+import com.example.advisor.embedding.SnapshotEmbeddingModel;
+import com.example.advisor.supportbot.exception.KnowledgeBaseException;
+import com.example.advisor.supportbot.search.Bm25Index;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the support knowledge base in sync with its source documents.
+ *
+ * {@link #refresh()} works in three steps:
+ * 1. Diff: a source whose bytes are unchanged is skipped. A changed source is
+ * re-split, and since chunk ids depend only on source and text, comparing id
+ * sets yields the added and the stale chunks.
+ * 2. Embed: only added chunks are embedded (through the snapshot, with the
+ * pipeline's batching and retries). No lock is held yet.
+ * 3. Publish: under the {@link KnowledgeBaseLock} write lock, added chunks go
+ * into the vector store and BM25 index (their embeddings now come from the
+ * snapshot, so no network call) and stale ids are deleted.
+ *
+ * The cost of a refresh therefore scales with the size of the change. The
+ * startup load is simply the first refresh. Other change feeds (such as the
+ * article sync) publish through {@link #apply}. All updates are serialised.
+ *
+ * The embedding snapshot is saved in the background {@code snapshotSaveDelay}
+ * after an update, so a burst of updates is written once, and once more on
+ * {@link #close()}. Vectors of deleted chunks are dropped from it.
+ */
+public class KnowledgeBaseIndexer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeBaseIndexer.class);
+
+    static final Duration DEFAULT_SNAPSHOT_SAVE_DELAY = Duration.ofSeconds(5);
+
+    private final VectorStore vectorStore;
+    private final Bm25Index lexicalIndex;
+    private final SnapshotEmbeddingModel embeddingModel;
+    private final IngestionPipeline pipeline;
+    private final KnowledgeBaseLock knowledgeBaseLock;
+    private final List<IngestionSource> sources;
+    private final List<Consumer<KnowledgeBaseChange>> changeListeners = new CopyOnWriteArrayList<>();
+    private final Duration snapshotSaveDelay;
+    private final AtomicBoolean snapshotSavePending = new AtomicBoolean();
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    // guarded by refreshLock
+    private final Map<String, SourceState> indexed = new HashMap<>();
+    private ScheduledThreadPoolExecutor snapshotSaver;
+    private ScheduledExecutorService watcher;
+
+    public KnowledgeBaseIndexer(VectorStore vectorStore, Bm25Index lexicalIndex,
+            SnapshotEmbeddingModel embeddingModel, IngestionPipeline pipeline, KnowledgeBaseLock knowledgeBaseLock,
+            List<IngestionSource> sources) {
+        this(vectorStore, lexicalIndex, embeddingModel, pipeline, knowledgeBaseLock, sources,
+                DEFAULT_SNAPSHOT_SAVE_DELAY);
+    }
+
+    /**
+     * @param snapshotSaveDelay How long after an update the embedding
+     *                          snapshot is saved
+     */
+    public KnowledgeBaseIndexer(VectorStore vectorStore, Bm25Index lexicalIndex,
+            SnapshotEmbeddingModel embeddingModel, IngestionPipeline pipeline, KnowledgeBaseLock knowledgeBaseLock,
+            List<IngestionSource> sources, Duration snapshotSaveDelay) {
+        this.vectorStore = vectorStore;
+        this.lexicalIndex = lexicalIndex;
+        this.embeddingModel = embeddingModel;
+        this.pipeline = pipeline;
+        this.knowledgeBaseLock = knowledgeBaseLock;
+        this.sources = List.copyOf(sources);
+        this.snapshotSaveDelay = snapshotSaveDelay;
+    }
+
+    public VectorStore getVectorStore() {
+        return vectorStore;
+    }
+
+    /**
+     * Registers a callback that runs after every published update, e.g. to
+     * invalidate caches built from the changed chunks.
+     */
+    public void addChangeListener(Consumer<KnowledgeBaseChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Brings the index in line with the sources, embedding only what changed.
+     *
+     * @throws KnowledgeBaseException if a source cannot be read or embedding
+     *                                fails; the published index is then
+     *                                left untouched
+     */
+    public RefreshResult refresh() {
+        refreshLock.lock();
+        try {
+            long started = System.nanoTime();
+
+            // 1. Diff
+            Map<IngestionSource, String> changed = new HashMap<>();
+            int unchanged = 0;
+            for (IngestionSource source : sources) {
+                String hash = contentHash(source.resource());
+                SourceState state = indexed.get(source.key());
+                if (state != null && state.contentHash.equals(hash)) {
+                    unchanged += state.chunkIds.size();
+                } else {
+                    changed.put(source, hash);
+                }
+            }
+            if (changed.isEmpty()) {
+                return new RefreshResult(0, 0, 0, unchanged, Duration.ofNanos(System.nanoTime() - started));
+            }
+
+            List<IngestionSource> changedSources = sources.stream().filter(changed::containsKey).toList();
+            Map<IngestionSource, List<Document>> chunksBySource = pipeline.read(changedSources);
+            List<Document> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            Map<String, SourceState> newStates = new HashMap<>();
+            for (Map.Entry<IngestionSource, List<Document>> entry : chunksBySource.entrySet()) {
+                SourceState previous = indexed.getOrDefault(entry.getKey().key(), SourceState.EMPTY);
+                Set<String> ids = new LinkedHashSet<>();
+                for (Document chunk : entry.getValue()) {
+                    ids.add(chunk.getId());
+                    if (previous.chunkIds.contains(chunk.getId())) {
+                        unchanged++;
+                    } else {
+                        added.add(chunk);
+                    }
+                }
+                previous.chunkIds.stream().filter(id -> !ids.contains(id)).forEach(removed::add);
+                newStates.put(entry.getKey().key(), new SourceState(changed.get(entry.getKey()), ids));
+            }
+
+            apply(added, removed);
+            indexed.putAll(newStates);
+
+            RefreshResult result = new RefreshResult(changed.size(), added.size(), removed.size(), unchanged,
+                    Duration.ofNanos(System.nanoTime() - started));
+            log.info("Knowledge base refreshed: {} source(s) changed, {} chunks added, {} removed, {} unchanged "
+                    + "in {} ms", result.changedSources(), result.added(), result.removed(), result.unchanged(),
+                    result.elapsed().toMillis());
+            return result;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Embeds and publishes a set of chunk changes from any source. Upserted
+     * chunks replace existing chunks with the same id. Embedding happens
+     * before the publish lock is taken; if it fails nothing is published.
+     *
+     * @param upserts Chunks to add or replace
+     * @param deletes Ids of chunks to remove
+     */
+    public void apply(List<Document> upserts, List<String> deletes) {
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            // Embed the new chunks into the snapshot, outside the publish lock
+            pipeline.process(upserts, batch -> embeddingModel.embed(batch, EmbeddingOptions.builder().build(),
+                    new TokenCountBatchingStrategy()));
+
+            // Publish atomically
+            knowledgeBaseLock.publish(() -> {
+                if (!deletes.isEmpty()) {
+                    vectorStore.delete(deletes);
+                    lexicalIndex.delete(deletes);
+                }
+                if (!upserts.isEmpty()) {
+                    vectorStore.add(upserts);
+                    lexicalIndex.add(upserts);
+                }
+            });
+            embeddingModel.forget(deletes);
+            scheduleSnapshotSave();
+            notifyListeners(upserts, deletes);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Saves the snapshot after {@code snapshotSaveDelay}, unless a save is
+     * already due. Called under the refresh lock.
+     */
+    private void scheduleSnapshotSave() {
+        if (snapshotSaver == null) {
+            snapshotSaver = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "kb-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // On close the pending save is run by close() itself
+            snapshotSaver.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        if (snapshotSavePending.compareAndSet(false, true)) {
+            snapshotSaver.schedule(this::saveSnapshot, snapshotSaveDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void saveSnapshot() {
+        // Cleared first, so an update made during the save schedules another
+        if (snapshotSavePending.getAndSet(false)) {
+            log.debug("Embedding snapshot saved: {}", embeddingModel.saveSnapshot());
+        }
+    }
+
+    private void notifyListeners(List<Document> upserts, List<String> deletes) {
+        Set<String> categories = new HashSet<>();
+        Set<String> chunkIds = new HashSet<>(deletes);
+        for (Document upsert : upserts) {
+            chunkIds.add(upsert.getId());
+            Object category = upsert.getMetadata().get("category");
+            if (category != null) {
+                categories.add(category.toString());
+            }
+        }
+        KnowledgeBaseChange change = new KnowledgeBaseChange(categories, chunkIds);
+        for (Consumer<KnowledgeBaseChange> listener : changeListeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                log.warn("Knowledge base change listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Polls the sources for changes at a fixed interval.
+     */
+    public synchronized void watch(Duration interval) {
+        if (watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kb-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("Knowledge base refresh failed, keeping the current index: {}", e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Watching {} knowledge base source(s) for changes every {}", sources.size(), interval);
+    }
+
+    /**
+     * Stops watching and writes a snapshot save that is still due.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+        refreshLock.lock();
+        try {
+            if (snapshotSaver != null) {
+                // Lets a save in progress finish; one still waiting is dropped
+                snapshotSaver.shutdown();
+                try {
+                    snapshotSaver.awaitTermination(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                snapshotSaver = null;
+            }
+            saveSnapshot();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static String contentHash(Resource resource) {
+        if (!resource.exists()) {
+            return "";
+        }
+        try (InputStream input = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(input.readAllBytes()));
+        } catch (IOException e) {
+            throw new KnowledgeBaseException("Failed to read " + resource.getDescription(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record SourceState(String contentHash, Set<String> chunkIds) {
+
+        static final SourceState EMPTY = new SourceState("", Set.of());
+    }
+}
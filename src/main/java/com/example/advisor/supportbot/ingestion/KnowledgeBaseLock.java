@@ -0,0 +1,43 @@
+package com.example.advisor.supportbot.ingestion;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Makes knowledge base updates atomic for searches.
+ *
+ * A refresh touches the vector store and the BM25 index in several steps
+ * (add new chunks, delete stale ones). Searches run under the read lock and
+ * the refresh applies its steps under the write lock, so a search sees
+ * either the old or the new knowledge base, never a mix. The slow part of a
+ * refresh (embedding) happens before the write lock is taken.
+ */
+public class KnowledgeBaseLock {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Runs a search against a consistent view of the knowledge base.
+     */
+    public <T> T read(Supplier<T> search) {
+        lock.readLock().lock();
+        try {
+            return search.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a set of index changes as one atomic step.
+     */
+    public void publish(Runnable changes) {
+        lock.writeLock().lock();
+        try {
+            changes.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
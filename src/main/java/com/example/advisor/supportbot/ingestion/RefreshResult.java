@@ -0,0 +1,19 @@
+package com.example.advisor.supportbot.ingestion;
+
+import java.time.Duration;
+
+/**
+ * Summary of one {@link KnowledgeBaseIndexer#refresh()}.
+ *
+ * @param changedSources Sources whose content changed since the last refresh
+ * @param added          Chunks embedded and added
+ * @param removed        Stale chunks deleted
+ * @param unchanged      Chunks kept as they were
+ * @param elapsed        Wall-clock time of the refresh
+ */
+public record RefreshResult(int changedSources, int added, int removed, int unchanged, Duration elapsed) {
+
+    public boolean changed() {
+        return added > 0 || removed > 0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.advisor.supportbot.keyword;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The live {@link KeywordMatcher}, reloadable without a restart.
+ *
+ * Readers call {@link #current()}, a plain atomic read, so message checks
+ * never wait for a reload. {@link #reload()} reads the lexicon source and,
+ * if its content changed, compiles a new matcher off to the side and swaps it
+ * in with one atomic write. A source that cannot be read or compiled is
+ * logged and counted, and the previous matcher stays in place. While the
+ * source does not exist the fallback (if any) is read instead, so a
+ * lexicon file created later is picked up by the next reload.
+ */
+public class KeywordLexicon implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordLexicon.class);
+
+    private final Resource source;
+    private final Resource fallback;
+    private final AtomicReference<KeywordMatcher> matcher;
+
+    // guarded by this
+    private String contentHash = "";
+    private ScheduledExecutorService watcher;
+
+    private Counter reloadsCounter;
+    private Counter failuresCounter;
+
+    /**
+     * A lexicon that starts with the given matcher and reloads from the
+     * source (if any).
+     */
+    public KeywordLexicon(KeywordMatcher initial, Resource source) {
+        this(initial, source, null);
+    }
+
+    /**
+     * A lexicon that starts with the given matcher and reloads from the
+     * source, or from the fallback while the source does not exist.
+     */
+    public KeywordLexicon(KeywordMatcher initial, Resource source, Resource fallback) {
+        this.matcher = new AtomicReference<>(initial);
+        this.source = source;
+        this.fallback = fallback;
+    }
+
+    /**
+     * A fixed lexicon, e.g. for tests.
+     */
+    public static KeywordLexicon of(KeywordMatcher matcher) {
+        return new KeywordLexicon(matcher, null);
+    }
+
+    /**
+     * Publishes {@code supportbot.lexicon.reloads{result=success|failure}} and
+     * {@code supportbot.lexicon.keywords}.
+     */
+    public KeywordLexicon bindTo(MeterRegistry meterRegistry) {
+        this.reloadsCounter = Counter.builder("supportbot.lexicon.reloads")
+                .description("Lexicon reloads that swapped in a new matcher")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.failuresCounter = Counter.builder("supportbot.lexicon.reloads")
+                .description("Lexicon reloads that failed; the previous matcher was kept")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        Gauge.builder("supportbot.lexicon.keywords", this, lexicon -> lexicon.current().size())
+                .description("Keywords in the live matcher")
+                .register(meterRegistry);
+        return this;
+    }
+
+    /**
+     * The matcher to use for the next message.
+     */
+    public KeywordMatcher current() {
+        return matcher.get();
+    }
+
+    /**
+     * The resource the next reload reads: the source, or the fallback while
+     * the source does not exist.
+     */
+    public Resource location() {
+        return source == null || fallback == null || source.exists() ? source : fallback;
+    }
+
+    /**
+     * Recompiles the lexicon if its source changed.
+     *
+     * @return true if a new matcher was swapped in
+     */
+    public synchronized boolean reload() {
+        if (source == null) {
+            return false;
+        }
+        Resource location = location();
+        try {
+            byte[] content;
+            try (InputStream input = location.getInputStream()) {
+                content = input.readAllBytes();
+            }
+            String hash = sha256(content);
+            if (hash.equals(contentHash)) {
+                return false;
+            }
+            KeywordMatcher compiled = SupportLexicon.compile(new ByteArrayInputStream(content));
+            matcher.set(compiled);
+            contentHash = hash;
+            if (reloadsCounter != null) {
+                reloadsCounter.increment();
+            }
+            log.info("Loaded lexicon {} ({} keywords)", location.getDescription(), compiled.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            if (failuresCounter != null) {
+                failuresCounter.increment();
+            }
+            log.warn("Failed to load lexicon {}, keeping the current one: {}", location.getDescription(),
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Polls the source for changes at a fixed interval.
+     */
+    public synchronized void watch(Duration interval) {
+        if (watcher != null || source == null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lexicon-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reload, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Watching lexicon {} for changes every {}", source.getDescription(), interval);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.advisor.supportbot.keyword;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds every keyword of every tagged word list in a single pass over a
+ * message (Aho-Corasick).
+ *
+ * The keywords are compiled once into a deterministic automaton: a table
+ * with one row per trie state and one column per character that occurs in
+ * any keyword. Matching reads each character once, follows one table entry
+ * and reports the keywords ending there, so the cost depends on the message
+ * length, not on how many keywords there are. Matching is case-insensitive
+ * and, like {@code String.contains}, finds keywords anywhere in the text.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class KeywordMatcher {
+
+    private final Map<KeywordTag, List<String>> keywords;
+    private final int[] asciiSymbols;
+    private final Map<Character, Integer> otherSymbols;
+    private final int stride;
+    private final int[] transitions;
+    // Per state: pattern ids ending there, including those of its suffixes
+    private final int[][] outputs;
+    private final KeywordTag[] patternTags;
+    private final int[] patternIndexes;
+
+    private KeywordMatcher(Builder builder) {
+        this.keywords = new EnumMap<>(KeywordTag.class);
+        builder.keywords.forEach((tag, list) -> this.keywords.put(tag, List.copyOf(list)));
+
+        // Patterns and their alphabet
+        List<String> patterns = new ArrayList<>();
+        List<KeywordTag> tags = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        this.asciiSymbols = new int[128];
+        this.otherSymbols = new HashMap<>();
+        int symbols = 1; // 0 = a character that occurs in no keyword
+        for (Map.Entry<KeywordTag, List<String>> entry : this.keywords.entrySet()) {
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                String pattern = entry.getValue().get(i).toLowerCase(Locale.ROOT);
+                if (pattern.isEmpty()) {
+                    continue;
+                }
+                for (char c : pattern.toCharArray()) {
+                    if (symbolOf(c) == 0) {
+                        if (c < 128) {
+                            asciiSymbols[c] = symbols++;
+                        } else {
+                            otherSymbols.put(c, symbols++);
+                        }
+                    }
+                }
+                patterns.add(pattern);
+                tags.add(entry.getKey());
+                indexes.add(i);
+            }
+        }
+        this.stride = symbols;
+        this.patternTags = tags.toArray(KeywordTag[]::new);
+        this.patternIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new int[stride]);
+        ends.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            int state = 0;
+            for (char c : patterns.get(id).toCharArray()) {
+                int symbol = symbolOf(c);
+                if (trie.get(state)[symbol] == 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(new int[stride]);
+                    ends.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            ends.get(state).add(id);
+        }
+
+        // Failure links, breadth first, folded into a full transition table
+        int states = trie.size();
+        this.transitions = new int[states * stride];
+        this.outputs = new int[states][];
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        outputs[0] = new int[0];
+        for (int symbol = 1; symbol < stride; symbol++) {
+            int child = trie.get(0)[symbol];
+            transitions[symbol] = child;
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> own = ends.get(state);
+            int[] inherited = outputs[failure[state]];
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            outputs[state] = merged;
+
+            for (int symbol = 1; symbol < stride; symbol++) {
+                int child = trie.get(state)[symbol];
+                if (child != 0) {
+                    failure[child] = transitions[failure[state] * stride + symbol];
+                    transitions[state * stride + symbol] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * stride + symbol] = transitions[failure[state] * stride + symbol];
+                }
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Scans the text once and returns the tags it contains.
+     */
+    public KeywordMatches match(CharSequence text) {
+        KeywordMatches matches = new KeywordMatches(this);
+        if (text == null) {
+            return matches;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * stride + symbolOf(Character.toLowerCase(text.charAt(i)))];
+            for (int pattern : outputs[state]) {
+                matches.record(patternTags[pattern], patternIndexes[pattern]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The word list compiled under a tag, in priority order.
+     */
+    public List<String> keywords(KeywordTag tag) {
+        return keywords.getOrDefault(tag, List.of());
+    }
+
+    /**
+     * Total number of keywords across all tags.
+     */
+    public int size() {
+        return patternTags.length;
+    }
+
+    String keyword(KeywordTag tag, int index) {
+        return keywords.get(tag).get(index);
+    }
+
+    private int symbolOf(char c) {
+        return c < 128 ? asciiSymbols[c] : otherSymbols.getOrDefault(c, 0);
+    }
+
+    public static class Builder {
+
+        private final Map<KeywordTag, List<String>> keywords = new EnumMap<>(KeywordTag.class);
+
+        /**
+         * Adds keywords under a tag. Earlier keywords take priority in
+         * {@link KeywordMatches#first}.
+         */
+        public Builder add(KeywordTag tag, List<String> words) {
+            keywords.computeIfAbsent(tag, t -> new ArrayList<>()).addAll(words);
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            return new KeywordMatcher(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.advisor.supportbot.keyword;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The tags found in one message by a {@link KeywordMatcher}.
+ *
+ * For each tag only the matched keyword that comes first in its word list is
+ * kept, so lists can be ordered by priority (as the escalation phrases are).
+ */
+public final class KeywordMatches {
+
+    private final KeywordMatcher matcher;
+    // Per tag ordinal: lowest matched index within the tag's list, or -1
+    private final int[] firstIndex;
+
+    KeywordMatches(KeywordMatcher matcher) {
+        this.matcher = matcher;
+        this.firstIndex = new int[KeywordTag.values().length];
+        Arrays.fill(firstIndex, -1);
+    }
+
+    void record(KeywordTag tag, int index) {
+        int current = firstIndex[tag.ordinal()];
+        if (current < 0 || index < current) {
+            firstIndex[tag.ordinal()] = index;
+        }
+    }
+
+    /**
+     * Whether any keyword with this tag occurs in the message.
+     */
+    public boolean has(KeywordTag tag) {
+        return firstIndex[tag.ordinal()] >= 0;
+    }
+
+    /**
+     * The matched keyword with this tag that comes first in its word list.
+     */
+    public Optional<String> first(KeywordTag tag) {
+        int index = firstIndex[tag.ordinal()];
+        return index < 0 ? Optional.empty() : Optional.of(matcher.keyword(tag, index));
+    }
+
+    public boolean isEmpty() {
+        return Arrays.stream(firstIndex).allMatch(index -> index < 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("KeywordMatches{");
+        for (KeywordTag tag : KeywordTag.values()) {
+            first(tag).ifPresent(keyword -> text.append(tag).append('=').append(keyword).append(' '));
+        }
+        return text.toString().trim() + "}";
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.advisor.supportbot.keyword;
+
+/**
+ * What a keyword signals. Each word list in the {@link SupportLexicon} is
+ * compiled under one tag.
+ */
+public enum KeywordTag {
+    BLOCKED("Blocked topic"),
+    ABUSIVE("Abusive language"),
+    ANGRY("Angry"),
+    FRUSTRATED("Frustrated"),
+    POSITIVE("Positive"),
+    ESCALATION("Escalation trigger"),
+    BILLING("Billing question"),
+    TROUBLESHOOTING("Troubleshooting question"),
+    FAQ("FAQ question");
+
+    private final String displayName;
+
+    KeywordTag(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
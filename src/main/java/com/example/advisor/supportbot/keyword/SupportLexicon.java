@@ -0,0 +1,98 @@
+package com.example.advisor.supportbot.keyword;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The word lists behind the keyword-driven advisors and query
+ * categorization.
+ *
+ * A lexicon is a JSON object with one array of keywords per
+ * {@link KeywordTag}, in priority order. The built-in lexicon is
+ * {@code classpath:supportbot-lexicon.json}; {@link KeywordLexicon} can load
+ * and reload another one at runtime.
+ */
+public final class SupportLexicon {
+
+    public static final String DEFAULT_LOCATION = "supportbot-lexicon.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, List<String>>> LEXICON_TYPE = new TypeReference<>() {
+    };
+
+    private static volatile KeywordMatcher defaultMatcher;
+
+    private SupportLexicon() {
+    }
+
+    /**
+     * The built-in lexicon, compiled once.
+     */
+    public static KeywordMatcher defaultMatcher() {
+        KeywordMatcher matcher = defaultMatcher;
+        if (matcher == null) {
+            try (InputStream input = SupportLexicon.class.getClassLoader().getResourceAsStream(DEFAULT_LOCATION)) {
+                if (input == null) {
+                    throw new IllegalStateException("Built-in lexicon " + DEFAULT_LOCATION + " not found");
+                }
+                matcher = compile(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            defaultMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Parses and compiles a lexicon.
+     *
+     * @throws IllegalArgumentException if the lexicon is malformed, names an
+     *                                  unknown tag, misses a tag or contains a
+     *                                  blank keyword
+     */
+    public static KeywordMatcher compile(InputStream input) throws IOException {
+        Map<String, List<String>> lists;
+        try {
+            lists = OBJECT_MAPPER.readValue(input, LEXICON_TYPE);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Malformed lexicon: " + e.getOriginalMessage(), e);
+        }
+        if (lists == null) {
+            throw new IllegalArgumentException("Empty lexicon");
+        }
+
+        KeywordMatcher.Builder builder = KeywordMatcher.builder();
+        Set<KeywordTag> missing = EnumSet.allOf(KeywordTag.class);
+        for (Map.Entry<String, List<String>> entry : lists.entrySet()) {
+            KeywordTag tag;
+            try {
+                tag = KeywordTag.valueOf(entry.getKey().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown lexicon tag: " + entry.getKey());
+            }
+            List<String> keywords = entry.getValue() == null ? List.of() : entry.getValue();
+            if (keywords.stream().anyMatch(keyword -> keyword == null || keyword.isBlank())) {
+                throw new IllegalArgumentException("Blank keyword in lexicon tag " + entry.getKey());
+            }
+            builder.add(tag, keywords);
+            missing.remove(tag);
+        }
+        // A missing list would silently switch a check off, e.g. the safety filter
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Lexicon is missing tags " + missing);
+        }
+        return builder.build();
+    }
+}
@@ -6,9 +6,12 @@ import java.time.LocalDateTime;
 /**
  * Represents a knowledge base article for the support bot.
  * Articles are loaded into the vector store for RAG-based responses.
+ * Changes are captured by {@link ArticleChangeListener} and synced in the
+ * background.
  */
 @Entity
 @Table(name = "articles")
+@EntityListeners(ArticleChangeListener.class)
 public class Article {
 
     @Id
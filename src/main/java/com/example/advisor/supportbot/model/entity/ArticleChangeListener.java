@@ -0,0 +1,48 @@
+package com.example.advisor.supportbot.model.entity;
+
+import com.example.advisor.supportbot.model.enums.ArticleChangeType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * JPA entity listener that records every article change in the
+ * {@code article_outbox} table.
+ *
+ * The callbacks run while Hibernate flushes the article, where the persistence
+ * context must not be modified, so the outbox row is written with plain JDBC.
+ * JdbcTemplate joins the surrounding JPA transaction, so the outbox row
+ * commits or rolls back together with the article.
+ */
+@Component
+public class ArticleChangeListener {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO article_outbox (article_id, change_type, created_at) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ArticleChangeListener(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Article article) {
+        record(article.getId(), article.isPublished() ? ArticleChangeType.UPSERT : ArticleChangeType.DELETE);
+    }
+
+    @PostRemove
+    public void onRemove(Article article) {
+        record(article.getId(), ArticleChangeType.DELETE);
+    }
+
+    private void record(Long articleId, ArticleChangeType changeType) {
+        jdbcTemplate.update(INSERT_SQL, articleId, changeType.name(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
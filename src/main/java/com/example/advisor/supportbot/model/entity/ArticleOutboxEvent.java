@@ -0,0 +1,59 @@
+package com.example.advisor.supportbot.model.entity;
+
+import com.example.advisor.supportbot.model.enums.ArticleChangeType;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * An article change waiting to be applied to the knowledge base vector store.
+ * Rows are written by {@link ArticleChangeListener} in the same transaction as
+ * the article change, and removed once the change has been indexed.
+ */
+@Entity
+@Table(name = "article_outbox")
+public class ArticleOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private ArticleChangeType changeType;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public ArticleOutboxEvent() {
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getArticleId() {
+        return articleId;
+    }
+
+    public ArticleChangeType getChangeType() {
+        return changeType;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ArticleOutboxEvent{" +
+                "id=" + id +
+                ", articleId=" + articleId +
+                ", changeType=" + changeType +
+                '}';
+    }
+}
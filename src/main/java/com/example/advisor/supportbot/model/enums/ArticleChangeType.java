@@ -0,0 +1,19 @@
+package com.example.advisor.supportbot.model.enums;
+
+/**
+ * Kind of change recorded in the article outbox.
+ */
+public enum ArticleChangeType {
+    UPSERT("Inserted or updated"),
+    DELETE("Unpublished or deleted");
+
+    private final String displayName;
+
+    ArticleChangeType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
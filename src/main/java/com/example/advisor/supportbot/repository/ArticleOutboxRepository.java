@@ -0,0 +1,20 @@
+package com.example.advisor.supportbot.repository;
+
+import com.example.advisor.supportbot.model.entity.ArticleOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for pending article changes (the article outbox).
+ */
+@Repository
+public interface ArticleOutboxRepository extends JpaRepository<ArticleOutboxEvent, Long> {
+
+    /**
+     * Find the oldest pending changes, oldest first.
+     */
+    List<ArticleOutboxEvent> findByOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,168 @@
+package com.example.advisor.supportbot.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index with BM25 ranking over knowledge base chunks.
+ *
+ * Embeddings are good at paraphrases but weak at exact product terms such as
+ * error codes ("403"), protocols ("SAML") or feature names ("CSV export").
+ * BM25 ranks those well, and it needs no network call, so it also serves as
+ * a fallback when the embedding model is unavailable.
+ *
+ * Tokens are lower-cased letter/digit runs with simple plural folding; a
+ * short stop-word list is dropped. Thread-safe: searches share a read lock,
+ * updates take the write lock.
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "can",
+            "do", "does", "for", "from", "has", "have", "how", "i", "if", "in", "is", "it", "its", "me", "my", "of",
+            "on", "or", "our", "so", "that", "the", "this", "to", "was", "we", "what", "when", "where", "which",
+            "who", "why", "will", "with", "you", "your");
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, IndexedChunk> chunks = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    /**
+     * Adds chunks to the index. Re-adding an id replaces the previous version.
+     */
+    public void add(List<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                removeInternal(document.getId());
+                Map<String, Integer> termFrequencies = new HashMap<>();
+                List<String> tokens = tokenize(document.getText());
+                tokens.forEach(token -> termFrequencies.merge(token, 1, Integer::sum));
+                termFrequencies.forEach((term, frequency) ->
+                        postings.computeIfAbsent(term, t -> new HashMap<>()).put(document.getId(), frequency));
+                chunks.put(document.getId(), new IndexedChunk(document, tokens.size(), termFrequencies.keySet()));
+                totalLength += tokens.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(List<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::removeInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return chunks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the best matching chunks, best first, with the BM25 score set.
+     *
+     * @param query          Free-text query
+     * @param topK           Maximum number of results
+     * @param metadataFilter Chunks whose metadata fails the filter are skipped
+     */
+    public List<Document> search(String query, int topK, Predicate<Map<String, Object>> metadataFilter) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        lock.readLock().lock();
+        try {
+            if (chunks.isEmpty() || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / chunks.size();
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<String, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (chunks.size() - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                termPostings.forEach((id, frequency) -> {
+                    double lengthNorm = 1 - B + B * chunks.get(id).length / averageLength;
+                    scores.merge(id, idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm), Double::sum);
+                });
+            }
+
+            PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                if (!metadataFilter.test(chunks.get(entry.getKey()).document.getMetadata())) {
+                    continue;
+                }
+                best.add(entry);
+                if (best.size() > topK) {
+                    best.poll();
+                }
+            }
+            List<Document> results = new ArrayList<>(best.size());
+            best.stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                    .forEach(entry -> results.add(chunks.get(entry.getKey()).document.mutate()
+                            .score(entry.getValue())
+                            .build()));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(String id) {
+        IndexedChunk previous = chunks.remove(id);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length;
+        for (String term : previous.terms) {
+            Map<String, Integer> termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String raw : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (raw.isEmpty() || STOP_WORDS.contains(raw)) {
+                continue;
+            }
+            tokens.add(raw.length() > 3 && raw.endsWith("s") && !raw.endsWith("ss")
+                    ? raw.substring(0, raw.length() - 1)
+                    : raw);
+        }
+        return tokens;
+    }
+
+    private record IndexedChunk(Document document, int length, Set<String> terms) {
+    }
+}
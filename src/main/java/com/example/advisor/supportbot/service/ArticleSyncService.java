@@ -0,0 +1,226 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseIndexer;
+import com.example.advisor.supportbot.model.entity.Article;
+import com.example.advisor.supportbot.model.entity.ArticleOutboxEvent;
+import com.example.advisor.supportbot.repository.ArticleOutboxRepository;
+import com.example.advisor.supportbot.repository.ArticleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams published {@link Article} rows into the support knowledge base.
+ *
+ * Article inserts, updates, unpublishes and deletes are captured in the
+ * {@code article_outbox} table by an entity listener. This service drains the
+ * outbox in batches on a background thread. Each batch is coalesced per
+ * article, so the current row is indexed once no matter how often it changed.
+ * Outbox rows are deleted only after the change is published, so a failed
+ * batch is retried on the next poll.
+ *
+ * Chunk ids are derived from the article id and the chunk position. An edited
+ * article therefore replaces its vectors in place, and only the tail is
+ * deleted when it shrinks. Articles whose indexed text did not change (e.g. a
+ * view count update) are skipped.
+ */
+@Service
+public class ArticleSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleSyncService.class);
+
+    private final ArticleRepository articleRepository;
+    private final ArticleOutboxRepository outboxRepository;
+    private final KnowledgeBaseIndexer indexer;
+
+    @Value("${supportbot.article-sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${supportbot.article-sync.interval:5s}")
+    private Duration interval;
+
+    @Value("${supportbot.article-sync.batch-size:100}")
+    private int batchSize;
+
+    // guarded by this
+    private final Map<Long, IndexedArticle> indexed = new HashMap<>();
+    private ScheduledExecutorService poller;
+
+    public ArticleSyncService(ArticleRepository articleRepository, ArticleOutboxRepository outboxRepository,
+            KnowledgeBaseIndexer indexer) {
+        this.articleRepository = articleRepository;
+        this.outboxRepository = outboxRepository;
+        this.indexer = indexer;
+    }
+
+    /**
+     * Indexes all published articles, then starts draining the outbox.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int articles = syncAll();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "article-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                drainOutbox();
+            } catch (RuntimeException e) {
+                log.warn("Article sync failed, will retry: {}", e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Synced {} published articles into the knowledge base; polling for changes every {}",
+                articles, interval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    /**
+     * Indexes every published article.
+     *
+     * @return the number of published articles
+     */
+    public synchronized int syncAll() {
+        List<Long> ids = articleRepository.findByPublishedTrue().stream().map(Article::getId).toList();
+        sync(ids);
+        return ids.size();
+    }
+
+    /**
+     * Applies pending outbox changes, one batch at a time, until the outbox
+     * is empty.
+     *
+     * @return the number of outbox rows applied
+     */
+    public synchronized int drainOutbox() {
+        int applied = 0;
+        List<ArticleOutboxEvent> batch;
+        while (!(batch = outboxRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize))).isEmpty()) {
+            sync(batch.stream().map(ArticleOutboxEvent::getArticleId).collect(Collectors.toCollection(
+                    LinkedHashSet::new)));
+            outboxRepository.deleteAllInBatch(batch);
+            applied += batch.size();
+        }
+        if (applied > 0) {
+            log.info("Applied {} article change(s) to the knowledge base", applied);
+        }
+        return applied;
+    }
+
+    /**
+     * Brings the given articles in line with their current rows. Missing and
+     * unpublished articles are removed from the knowledge base.
+     */
+    private void sync(Collection<Long> articleIds) {
+        Map<Long, Article> articles = articleRepository.findAllById(articleIds).stream()
+                .filter(Article::isPublished)
+                .collect(Collectors.toMap(Article::getId, Function.identity()));
+
+        List<Document> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        Map<Long, IndexedArticle> updated = new HashMap<>();
+        for (Long articleId : articleIds) {
+            IndexedArticle previous = indexed.get(articleId);
+            Article article = articles.get(articleId);
+            if (article == null) {
+                if (previous != null) {
+                    deletes.addAll(previous.chunkIds);
+                    updated.put(articleId, null);
+                }
+                continue;
+            }
+            String hash = contentHash(article);
+            if (previous != null && previous.contentHash.equals(hash)) {
+                continue;
+            }
+            List<Document> chunks = toChunks(article);
+            upserts.addAll(chunks);
+            Set<String> chunkIds = chunks.stream().map(Document::getId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (previous != null) {
+                previous.chunkIds.stream().filter(id -> !chunkIds.contains(id)).forEach(deletes::add);
+            }
+            updated.put(articleId, new IndexedArticle(hash, chunkIds));
+        }
+
+        indexer.apply(upserts, deletes);
+        updated.forEach((articleId, state) -> {
+            if (state == null) {
+                indexed.remove(articleId);
+            } else {
+                indexed.put(articleId, state);
+            }
+        });
+    }
+
+    /**
+     * Splits an article into chunks with ids tied to the article id.
+     */
+    static List<Document> toChunks(Article article) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("category", article.getCategory());
+        metadata.put("articleId", article.getId());
+        metadata.put("title", article.getTitle());
+        if (article.getTags() != null) {
+            metadata.put("tags", article.getTags());
+        }
+        List<Document> split = new TokenTextSplitter().apply(List.of(
+                new Document(article.getTitle() + "\n\n" + article.getContent(), metadata)));
+
+        List<Document> chunks = new ArrayList<>(split.size());
+        for (int i = 0; i < split.size(); i++) {
+            chunks.add(Document.builder()
+                    .id(chunkId(article.getId(), i))
+                    .text(split.get(i).getText())
+                    .metadata(split.get(i).getMetadata())
+                    .build());
+        }
+        return chunks;
+    }
+
+    static String chunkId(Long articleId, int position) {
+        return UUID.nameUUIDFromBytes(("article:" + articleId + ":" + position).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    private static String contentHash(Article article) {
+        String indexedFields = article.getTitle() + "\n" + article.getContent() + "\n" + article.getCategory()
+                + "\n" + article.getTags();
+        return UUID.nameUUIDFromBytes(indexedFields.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private record IndexedArticle(String contentHash, Set<String> chunkIds) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.model.entity.Customer;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
+import com.example.advisor.supportbot.model.enums.SentimentType;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Everything gathered about a message before the model call. See
+ * {@link ChatEnrichmentService#enrich}.
+ *
+ * @param category  Knowledge base category of the message
+ * @param sources   Retrieved knowledge base chunks; empty if retrieval failed
+ *                  or missed the deadline
+ * @param customer  The customer, if the request named one and the lookup
+ *                  succeeded in time
+ * @param sentiment Detected sentiment of the message
+ */
+public record ChatEnrichment(String category, List<Document> sources, Optional<Customer> customer,
+        SentimentType sentiment) {
+
+    /**
+     * The customer's plan; anonymous requests are served as FREE.
+     */
+    public CustomerPlan plan() {
+        return customer.map(Customer::getPlan).orElse(CustomerPlan.FREE);
+    }
+}
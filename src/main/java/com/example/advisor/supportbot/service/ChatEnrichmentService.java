@@ -0,0 +1,123 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.advisor.SentimentAnalysisAdvisor;
+import com.example.advisor.supportbot.model.entity.Customer;
+import com.example.advisor.supportbot.model.enums.SentimentType;
+import com.example.advisor.supportbot.repository.CustomerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Gathers the context for a chat message before the model call.
+ *
+ * The blocking steps, knowledge base retrieval (an embedding call plus the
+ * search) and the customer lookup, are started together on virtual threads.
+ * The keyword steps, categorization and sentiment, are in-memory matches and
+ * run on the caller's thread meanwhile. So the slowest step sets the latency,
+ * not the sum of all of them.
+ *
+ * All steps share one deadline. A step that fails or misses it is cancelled
+ * and the chat goes on without it: no knowledge base context, or no customer
+ * personalisation. Degraded steps are counted in
+ * {@code supportbot.enrichment.degraded}.
+ */
+@Service
+public class ChatEnrichmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatEnrichmentService.class);
+
+    private static final int TOP_K = 3;
+
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final CustomerRepository customerRepository;
+    private final SentimentAnalysisAdvisor sentimentAdvisor;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Shared deadline for all enrichment steps of one message
+    @Value("${supportbot.enrichment.timeout:2s}")
+    private Duration timeout;
+
+    public ChatEnrichmentService(KnowledgeBaseService knowledgeBaseService, CustomerRepository customerRepository,
+            SentimentAnalysisAdvisor sentimentAdvisor, MeterRegistry meterRegistry) {
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.customerRepository = customerRepository;
+        this.sentimentAdvisor = sentimentAdvisor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs all enrichment steps for a message. Never throws for a failed step.
+     *
+     * @param message    The user's message
+     * @param customerId The customer to look up, or null for anonymous chats
+     */
+    public ChatEnrichment enrich(String message, Long customerId) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        Future<List<Document>> retrieval = executor.submit(() -> knowledgeBaseService.searchArticles(message, TOP_K));
+        Future<Optional<Customer>> customerLookup = customerId == null ? null
+                : executor.submit(() -> customerRepository.findById(customerId));
+
+        String category = knowledgeBaseService.categorizeQuery(message);
+        SentimentType sentiment = sentimentAdvisor.analyzeSentiment(message);
+
+        List<Document> sources = await("retrieval", retrieval, deadline, List.of());
+        Optional<Customer> customer = customerLookup == null ? Optional.empty()
+                : await("customer", customerLookup, deadline, Optional.empty());
+        return new ChatEnrichment(category, sources, customer, sentiment);
+    }
+
+    /**
+     * Waits for a step until the shared deadline.
+     *
+     * @return the step's result, or the fallback if it failed or timed out
+     */
+    private <T> T await(String step, Future<T> future, long deadline, T fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            degraded(step, "timeout");
+            log.warn("Enrichment step '{}' missed the {} deadline, continuing without it", step, timeout);
+        } catch (ExecutionException e) {
+            degraded(step, "error");
+            log.warn("Enrichment step '{}' failed, continuing without it: {}", step, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            degraded(step, "interrupted");
+        }
+        return fallback;
+    }
+
+    private void degraded(String step, String reason) {
+        Counter.builder("supportbot.enrichment.degraded")
+                .description("Enrichment steps skipped because they failed or missed the deadline")
+                .tag("step", step)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -1,26 +1,64 @@
 package com.example.advisor.supportbot.service;
 
 import com.example.advisor.supportbot.exception.KnowledgeBaseException;
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseLock;
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.KeywordMatches;
+import com.example.advisor.supportbot.keyword.KeywordTag;
+import com.example.advisor.supportbot.search.Bm25Index;
+import com.example.advisor.supportbot.vectorstore.EmbeddedQuerySearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Service for interacting with the Support Bot's knowledge base.
  * Provides semantic search capabilities for RAG-based responses.
+ *
+ * Searches are hybrid: the vector store and an in-memory BM25 index are
+ * queried for the same chunks and their rankings are merged with reciprocal
+ * rank fusion (RRF). If the embedding model is unavailable the BM25 results
+ * are returned on their own. Both indexes are read under the
+ * {@link KnowledgeBaseLock}, so a search never sees a half-applied refresh.
+ * The query is embedded before the lock is taken, so a refresh waiting for
+ * the write lock never waits on an embedding round-trip.
  */
 @Service
 public class KnowledgeBaseService {
 
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeBaseService.class);
+
     private final VectorStore vectorStore;
+    private final Bm25Index lexicalIndex;
+    private final KnowledgeBaseLock knowledgeBaseLock;
+    private final KeywordLexicon lexicon;
+
+    // RRF damping constant; 60 is the value from the original RRF paper
+    @Value("${supportbot.search.rrf-k:60}")
+    private int rrfK;
+
+    // Candidates taken from each ranking before fusion
+    @Value("${supportbot.search.candidates:20}")
+    private int candidates;
 
-    public KnowledgeBaseService(@Qualifier("supportBotVectorStore") VectorStore vectorStore) {
+    public KnowledgeBaseService(@Qualifier("supportBotVectorStore") VectorStore vectorStore, Bm25Index lexicalIndex,
+            KnowledgeBaseLock knowledgeBaseLock, KeywordLexicon lexicon) {
         this.vectorStore = vectorStore;
+        this.lexicalIndex = lexicalIndex;
+        this.knowledgeBaseLock = knowledgeBaseLock;
+        this.lexicon = lexicon;
     }
 
     /**
@@ -31,19 +69,14 @@ public class KnowledgeBaseService {
      * @return List of relevant documents
      */
     public List<Document> searchArticles(String query, int topK) {
-        try {
-            return vectorStore.similaritySearch(
-                    SearchRequest.builder()
-                            .query(query)
-                            .topK(topK)
-                            .build());
-        } catch (Exception e) {
-            throw new KnowledgeBaseException("Failed to search knowledge base: " + e.getMessage(), e);
-        }
+        return search(query, topK, null);
     }
 
     /**
      * Searches for articles in a specific category.
+     * The category filter is applied inside the vector store, so only chunks
+     * of that category are scored and a rare category still yields a full
+     * topK.
      *
      * @param query    The search query
      * @param category The category to filter by (faq, billing, troubleshooting)
@@ -51,11 +84,90 @@ public class KnowledgeBaseService {
      * @return List of relevant documents in the category
      */
     public List<Document> searchByCategory(String query, String category, int topK) {
-        List<Document> results = searchArticles(query, topK * 2);
+        return search(query, topK, category);
+    }
+
+    /**
+     * Embeds the query, then searches both indexes under the read lock.
+     */
+    private List<Document> search(String query, int topK, String category) {
+        float[] queryEmbedding = null;
+        Exception embeddingFailure = null;
+        if (vectorStore instanceof EmbeddedQuerySearch embeddedSearch) {
+            try {
+                queryEmbedding = embeddedSearch.embedQuery(query);
+            } catch (Exception e) {
+                embeddingFailure = e;
+            }
+        }
+        float[] embedding = queryEmbedding;
+        Exception failure = embeddingFailure;
+        return knowledgeBaseLock.read(() -> hybridSearch(query, embedding, failure, topK, category));
+    }
+
+    /**
+     * Runs the vector and BM25 searches and fuses their rankings.
+     *
+     * @param queryEmbedding   The embedded query, or null if the store embeds
+     *                         it itself
+     * @param embeddingFailure Why the query could not be embedded, or null
+     * @param category         Category filter, or null for all categories
+     */
+    private List<Document> hybridSearch(String query, float[] queryEmbedding, Exception embeddingFailure, int topK,
+            String category) {
+        int depth = Math.max(topK, candidates);
+        List<Document> lexical = lexicalIndex.search(query, depth,
+                metadata -> category == null || category.equals(metadata.get("category")));
+
+        if (embeddingFailure != null) {
+            return lexicalFallback(lexical, topK, embeddingFailure);
+        }
+        List<Document> semantic;
+        try {
+            SearchRequest.Builder request = SearchRequest.builder().query(query).topK(depth);
+            if (category != null) {
+                request.filterExpression(new FilterExpressionBuilder().eq("category", category).build());
+            }
+            semantic = queryEmbedding != null
+                    ? ((EmbeddedQuerySearch) vectorStore).similaritySearch(request.build(), queryEmbedding)
+                    : vectorStore.similaritySearch(request.build());
+        } catch (Exception e) {
+            return lexicalFallback(lexical, topK, e);
+        }
+
+        return reciprocalRankFusion(List.of(semantic, lexical), topK);
+    }
+
+    /**
+     * Answers from the BM25 results alone when vector search is unavailable.
+     */
+    private List<Document> lexicalFallback(List<Document> lexical, int topK, Exception failure) {
+        if (lexical.isEmpty()) {
+            throw new KnowledgeBaseException("Failed to search knowledge base: " + failure.getMessage(), failure);
+        }
+        log.warn("Vector search unavailable, answering from the BM25 index: {}", failure.getMessage());
+        return lexical.subList(0, Math.min(topK, lexical.size()));
+    }
 
-        return results.stream()
-                .filter(doc -> category.equals(doc.getMetadata().get("category")))
+    /**
+     * Merges rankings by summing 1 / (k + rank) per chunk. Only ranks matter,
+     * so the unrelated scales of cosine similarity and BM25 need no
+     * normalization.
+     */
+    private List<Document> reciprocalRankFusion(List<List<Document>> rankings, int topK) {
+        Map<String, Double> fusedScores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                fusedScores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+        return fusedScores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
                 .limit(topK)
+                .map(entry -> documents.get(entry.getKey()).mutate().score(entry.getValue()).build())
                 .collect(Collectors.toList());
     }
 
@@ -67,8 +179,16 @@ public class KnowledgeBaseService {
      * @return Formatted context string
      */
     public String getContextForQuery(String query, int topK) {
-        List<Document> documents = searchArticles(query, topK);
+        return formatContext(searchArticles(query, topK));
+    }
 
+    /**
+     * Formats search results for injection into prompts.
+     *
+     * @param documents Search results
+     * @return Formatted context string
+     */
+    public String formatContext(List<Document> documents) {
         if (documents.isEmpty()) {
             return "No relevant information found in the knowledge base.";
         }
@@ -86,38 +206,19 @@ public class KnowledgeBaseService {
      * @return The detected category (faq, billing, troubleshooting, general)
      */
     public String categorizeQuery(String query) {
-        String lowerQuery = query.toLowerCase();
+        KeywordMatches matches = lexicon.current().match(query);
 
-        // Billing-related keywords
-        if (containsAny(lowerQuery, "bill", "price", "cost", "subscription", "payment",
-                "refund", "cancel", "upgrade", "downgrade", "invoice", "charge", "plan")) {
+        // Billing wins over troubleshooting, which wins over FAQ
+        if (matches.has(KeywordTag.BILLING)) {
             return "billing";
         }
-
-        // Troubleshooting keywords
-        if (containsAny(lowerQuery, "error", "not working", "problem", "issue", "bug",
-                "crash", "slow", "loading", "fail", "help", "fix", "broken")) {
+        if (matches.has(KeywordTag.TROUBLESHOOTING)) {
             return "troubleshooting";
         }
-
-        // FAQ keywords
-        if (containsAny(lowerQuery, "how to", "what is", "can i", "how do", "where",
-                "feature", "capability", "support", "does it", "is there")) {
+        if (matches.has(KeywordTag.FAQ)) {
             return "faq";
         }
 
         return "general";
     }
-
-    /**
-     * Checks if the text contains any of the given keywords.
-     */
-    private boolean containsAny(String text, String... keywords) {
-        for (String keyword : keywords) {
-            if (text.contains(keyword)) {
-                return true;
-            }
-        }
-        return false;
-    }
 }
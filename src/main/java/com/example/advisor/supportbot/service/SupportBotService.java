@@ -1,43 +1,90 @@
 package com.example.advisor.supportbot.service;
 
+import com.example.advisor.embedding.CachingEmbeddingModel;
 import com.example.advisor.supportbot.advisor.*;
+import com.example.advisor.supportbot.cache.SemanticAnswerCache;
+import com.example.advisor.supportbot.concurrency.PlanAdmissionScheduler;
+import com.example.advisor.supportbot.concurrency.SingleFlight;
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
 import com.example.advisor.supportbot.model.dto.ChatRequest;
 import com.example.advisor.supportbot.model.dto.ChatResponse;
 import com.example.advisor.supportbot.tool.TicketTools;
+import com.example.advisor.supportbot.tool.TrackedToolCallback;
 import com.example.advisor.supportbot.model.enums.SentimentType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
 /**
  * Main service for the Customer Support Bot.
  * Orchestrates the advisor chain and handles chat interactions.
+ *
+ * Every message is screened by the safety advisor before any other work. A
+ * blocked message gets the canned response straight away, without a
+ * knowledge base search (and its embedding call), prompt templating or
+ * customer lookup.
  */
 @Service
 public class SupportBotService {
 
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SupportBotService.class);
 
+    public static final String BUSY_MESSAGE = "We're helping a lot of customers right now. "
+            + "Please try again in a moment.";
+
     private final ChatClient chatClient;
     private final KnowledgeBaseService knowledgeBaseService;
 
     @Value("classpath:/prompts/system.st")
     private Resource systemPromptResource;
 
+    // Serve near-duplicate anonymous questions from the semantic answer cache
+    @Value("${supportbot.answer-cache.enabled:true}")
+    private boolean answerCacheEnabled;
+
     // Advisors
     private final SupportSafetyAdvisor safetyAdvisor;
     private final CustomerContextAdvisor customerContextAdvisor;
     private final SentimentAnalysisAdvisor sentimentAdvisor;
     private final ResponseFormattingAdvisor formattingAdvisor;
+    private final ModelConcurrencyAdvisor modelConcurrencyAdvisor;
     private final MessageChatMemoryAdvisor memoryAdvisor;
     private final org.springframework.ai.chat.memory.ChatMemory chatMemory; // Direct access for history retrieval
 
     // Tools (Agentic AI)
-    private final TicketTools ticketTools;
+    private final ToolCallback[] ticketToolCallbacks;
+
+    private final SemanticAnswerCache answerCache;
+    private final ChatEnrichmentService enrichmentService;
+    private final PlanAdmissionScheduler admissionScheduler;
+
+    private final Counter preflightBlockedChat;
+    private final Counter preflightBlockedStream;
+    private final Counter embeddingCallsSaved;
+    private final Counter embeddingCallsSavedByCoalescing;
+
+    // Identical anonymous requests in flight share one retrieval + completion
+    @Value("${supportbot.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    private final SingleFlight<String, Completion> chatFlight;
+    private final SingleFlight<String, SharedChunk> streamFlight;
 
     public SupportBotService(
             ChatClient.Builder chatClientBuilder,
@@ -47,18 +94,45 @@ public class SupportBotService {
             SentimentAnalysisAdvisor sentimentAdvisor,
             TicketTools ticketTools,
             ResponseFormattingAdvisor formattingAdvisor,
+            ModelConcurrencyAdvisor modelConcurrencyAdvisor,
             @Qualifier("supportBotMemoryAdvisor") MessageChatMemoryAdvisor memoryAdvisor,
-            @Qualifier("supportBotChatMemory") org.springframework.ai.chat.memory.ChatMemory chatMemory) {
+            @Qualifier("supportBotChatMemory") org.springframework.ai.chat.memory.ChatMemory chatMemory,
+            SemanticAnswerCache answerCache,
+            ChatEnrichmentService enrichmentService,
+            PlanAdmissionScheduler admissionScheduler,
+            MeterRegistry meterRegistry) {
 
         this.chatClient = chatClientBuilder.build();
         this.knowledgeBaseService = knowledgeBaseService;
         this.safetyAdvisor = safetyAdvisor;
         this.customerContextAdvisor = customerContextAdvisor;
         this.sentimentAdvisor = sentimentAdvisor;
-        this.ticketTools = ticketTools;
+        this.ticketToolCallbacks = ToolCallbacks.from(ticketTools);
         this.formattingAdvisor = formattingAdvisor;
+        this.modelConcurrencyAdvisor = modelConcurrencyAdvisor;
         this.memoryAdvisor = memoryAdvisor;
         this.chatMemory = chatMemory;
+        this.answerCache = answerCache;
+        this.enrichmentService = enrichmentService;
+        this.admissionScheduler = admissionScheduler;
+        this.preflightBlockedChat = Counter.builder("supportbot.safety.preflight.blocked")
+                .description("Messages blocked before retrieval")
+                .tag("channel", "chat")
+                .register(meterRegistry);
+        this.preflightBlockedStream = Counter.builder("supportbot.safety.preflight.blocked")
+                .description("Messages blocked before retrieval")
+                .tag("channel", "stream")
+                .register(meterRegistry);
+        this.embeddingCallsSaved = Counter.builder("supportbot.embedding.calls.saved")
+                .description("Query embeddings that were not needed")
+                .tag("reason", "safety-preflight")
+                .register(meterRegistry);
+        this.embeddingCallsSavedByCoalescing = Counter.builder("supportbot.embedding.calls.saved")
+                .description("Query embeddings that were not needed")
+                .tag("reason", "coalesced")
+                .register(meterRegistry);
+        this.chatFlight = new SingleFlight<String, Completion>("chat").bindTo(meterRegistry);
+        this.streamFlight = new SingleFlight<String, SharedChunk>("stream").bindTo(meterRegistry);
     }
 
     /**
@@ -68,9 +142,76 @@ public class SupportBotService {
      * @return ChatResponse with AI response and metadata
      */
     public ChatResponse chat(ChatRequest request) {
-        // Get RAG context from knowledge base
-        String context = knowledgeBaseService.getContextForQuery(request.message(), 3);
-        String category = knowledgeBaseService.categorizeQuery(request.message());
+        Optional<String> blocked = preflight(request, preflightBlockedChat);
+        if (blocked.isPresent()) {
+            return new ChatResponse(
+                    blocked.get(),
+                    conversationIdFor(request),
+                    sentimentAdvisor.analyzeSentiment(request.message()),
+                    false,
+                    null,
+                    java.time.LocalDateTime.now());
+        }
+
+        Long customerId = parseCustomerId(request.customerId());
+
+        String conversationId = conversationIdFor(request);
+
+        logger.info("Chat Request - CustomerID: {}, SessionID: {}, Generated ConversationID: {}",
+                request.customerId(), request.sessionId(), conversationId);
+
+        // Answers personalised with customer context are never cached or shared
+        boolean anonymous = customerId == null;
+        // Nor are answers built on earlier turns of the conversation, which the
+        // memory advisor puts into the prompt
+        boolean shareable = anonymous && (answerCacheEnabled || coalescingEnabled) && isFresh(conversationId);
+        float[] questionEmbedding = null;
+        if (answerCacheEnabled && shareable) {
+            String category = knowledgeBaseService.categorizeQuery(request.message());
+            questionEmbedding = embedForAnswerCache(request.message());
+            Optional<String> cached = questionEmbedding == null ? Optional.empty()
+                    : answerCache.get(questionEmbedding, category);
+            if (cached.isPresent()) {
+                logger.info("Answer cache hit - ConversationID: {}, Category: {}", conversationId, category);
+                return rememberShared(request, conversationId, cached.get());
+            }
+        }
+
+        // Identical anonymous questions that open a conversation, asked at the
+        // same time, share one retrieval and completion
+        if (coalescingEnabled && shareable) {
+            float[] embedding = questionEmbedding;
+            SingleFlight.Result<Completion> result = chatFlight.execute(coalescingKey(request.message()),
+                    () -> complete(request, conversationId, null, embedding));
+            if (!result.shared()) {
+                return result.value().toResponse(conversationId);
+            }
+            // Answers that depended on a tool call are specific to the leader's
+            // request, so a follower asks again on its own
+            if (!result.value().toolsUsed() && result.value().content() != null) {
+                logger.info("Coalesced with an identical request in flight - ConversationID: {}", conversationId);
+                embeddingCallsSavedByCoalescing.increment();
+                return rememberShared(request, conversationId, result.value().content());
+            }
+        }
+
+        return complete(request, conversationId, customerId, questionEmbedding).toResponse(conversationId);
+    }
+
+    /**
+     * Runs enrichment and the model call through the full advisor chain.
+     *
+     * @param questionEmbedding Embedding for the answer cache, or null if the
+     *                          answer must not be cached
+     */
+    private Completion complete(ChatRequest request, String conversationId, Long customerId,
+            float[] questionEmbedding) {
+        // Get RAG context, customer and sentiment (retrieval and customer
+        // lookup run in parallel under one deadline)
+        ChatEnrichment enrichment = enrichmentService.enrich(request.message(), customerId);
+        java.util.List<Document> sources = enrichment.sources();
+        String category = enrichment.category();
+        String context = knowledgeBaseService.formatContext(sources);
 
         // Build enhanced system prompt with RAG context
         SystemPromptTemplate systemPromptTemplate = new SystemPromptTemplate(systemPromptResource);
@@ -78,41 +219,40 @@ public class SupportBotService {
                 "category", category,
                 "context", context)).getText();
 
-        // Set customer context for advisors
-        Long customerId = parseCustomerId(request.customerId());
-        if (customerId != null) {
-            customerContextAdvisor.setCustomerId(customerId);
+        // Execute chat with full advisor chain + TOOLS. Per-request state
+        // travels in the advisor context, so concurrent chats never share it.
+        // The call waits for a model slot by customer plan
+        AtomicBoolean toolsUsed = new AtomicBoolean();
+        ChatClientResponse response;
+        try (PlanAdmissionScheduler.Permit permit = admissionScheduler.acquire(enrichment.plan())) {
+            response = chatClient.prompt()
+                    .system(enhancedSystemPrompt)
+                    .user(request.message())
+                    // Ensure ID is set BEFORE advisors run
+                    .advisors(a -> a.params(advisorParams(conversationId, customerId, enrichment)))
+                    // Advisor chain
+                    .advisors(safetyAdvisor) // 1. Safety check
+                    .advisors(customerContextAdvisor) // 2. Customer personalization
+                    .advisors(sentimentAdvisor) // 3. Sentiment analysis
+                    .advisors(memoryAdvisor) // 4. Chat memory
+                    .advisors(formattingAdvisor) // 5. Response formatting
+                    .advisors(modelConcurrencyAdvisor) // 6. Back-pressure towards the model
+                    // LEVEL 4 AGENTIC UPGRADE: Tools (tracked, so tool answers are not cached)
+                    .toolCallbacks(TrackedToolCallback.track(ticketToolCallbacks, toolsUsed))
+                    .call()
+                    .chatClientResponse();
         }
+        String content = contentOf(response);
 
-        // Determine conversation ID for memory
-        // Determine conversation ID for memory
-        // PRIORITIZE Customer ID for persistence across sessions
-        String conversationId = (request.customerId() != null && !request.customerId().isEmpty())
-                ? "customer-" + request.customerId()
-                : (request.sessionId() != null ? request.sessionId() : "anonymous");
-
-        logger.info("Chat Request - CustomerID: {}, SessionID: {}, Generated ConversationID: {}",
-                request.customerId(), request.sessionId(), conversationId);
-
-        // Execute chat with full advisor chain + TOOLS
-        String content = chatClient.prompt()
-                .system(enhancedSystemPrompt)
-                .user(request.message())
-                // Ensure ID is set BEFORE advisors run
-                .advisors(a -> a.param("chat_memory_conversation_id", conversationId))
-                // Advisor chain
-                .advisors(safetyAdvisor) // 1. Safety check
-                .advisors(customerContextAdvisor) // 2. Customer personalization
-                .advisors(sentimentAdvisor) // 3. Sentiment analysis
-                .advisors(memoryAdvisor) // 4. Chat memory
-                .advisors(formattingAdvisor) // 5. Response formatting
-                // LEVEL 4 AGENTIC UPGRADE: Tools
-                .tools(ticketTools)
-                .call()
-                .content();
-
-        // Get sentiment
-        SentimentType sentiment = sentimentAdvisor.getLastSentiment();
+        // Answers that depended on a tool call are specific to this request
+        if (questionEmbedding != null && !toolsUsed.get() && content != null) {
+            answerCache.put(questionEmbedding, category, content,
+                    sources.stream().map(Document::getId).collect(Collectors.toSet()),
+                    sources.stream().map(doc -> doc.getMetadata().get("category"))
+                            .filter(java.util.Objects::nonNull)
+                            .map(Object::toString)
+                            .collect(Collectors.toSet()));
+        }
 
         // For tools, we don't manually check "lastCreatedTicket" via advisor anymore.
         // The LLM tool execution happens internally.
@@ -120,12 +260,44 @@ public class SupportBotService {
         // logs.
         // For this tutorial, we will rely on the AI's text response confirming the
         // ticket creation.
+        return new Completion(content, SentimentAnalysisAdvisor.sentimentOf(response), toolsUsed.get());
+    }
+
+    /**
+     * True if the conversation has no earlier messages, so an answer to it
+     * depends on the question alone.
+     */
+    private boolean isFresh(String conversationId) {
+        return chatMemory.get(conversationId).isEmpty();
+    }
+
+    /**
+     * Embeds the question for the answer cache.
+     *
+     * @return null if the embedding model is at its concurrency limit; the
+     *         chat then goes on without the cache
+     */
+    private float[] embedForAnswerCache(String message) {
+        try {
+            return answerCache.embed(message);
+        } catch (SupportBotBusyException e) {
+            logger.warn("Skipping the answer cache: {}", e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Answers with a result produced for another request (cached or
+     * coalesced) and records the exchange in this conversation's memory.
+     */
+    private ChatResponse rememberShared(ChatRequest request, String conversationId, String answer) {
+        chatMemory.add(conversationId, java.util.List.of(new UserMessage(request.message()),
+                new AssistantMessage(answer)));
         return new ChatResponse(
-                content,
+                answer,
                 conversationId,
-                sentiment,
-                false, // Ticket created flag strictly via Advisor is deprecated
+                sentimentAdvisor.analyzeSentiment(request.message()),
+                false,
                 null,
                 java.time.LocalDateTime.now());
     }
@@ -133,50 +305,156 @@ public class SupportBotService {
     /**
      * STREAMING chat handler (Level 4.5).
      * Returns a Flux<Map<String, String>> for real-time token streaming.
+     *
+     * Nothing runs until the Flux is subscribed, and nothing blocks the
+     * subscribing thread: screening and sentiment are in-memory keyword
+     * matches, enrichment and chat memory writes run on the bounded elastic
+     * scheduler, and admission waits without holding a thread. A
+     * {@code status: retrieving} event goes out
+     * right after the sentiment, before retrieval starts.
      */
     public reactor.core.publisher.Flux<java.util.Map<String, String>> streamChat(ChatRequest request) {
-        // Get RAG context from knowledge base
-        String context = knowledgeBaseService.getContextForQuery(request.message(), 3);
-        String category = knowledgeBaseService.categorizeQuery(request.message());
+        return reactor.core.publisher.Flux.defer(() -> {
+            // 1. Sentiment is known before the model call
+            SentimentType sentiment = sentimentAdvisor.analyzeSentiment(request.message());
 
-        // Build enhanced system prompt
-        SystemPromptTemplate systemPromptTemplate = new SystemPromptTemplate(systemPromptResource);
-        String enhancedSystemPrompt = systemPromptTemplate.createMessage(java.util.Map.of(
-                "category", category,
-                "context", context)).getText();
+            // 2. Create Sentiment Event Flux
+            reactor.core.publisher.Flux<java.util.Map<String, String>> sentimentFlux = reactor.core.publisher.Flux
+                    .just(java.util.Collections.singletonMap("sentiment", sentiment.name()));
 
-        // Set context
-        Long customerId = parseCustomerId(request.customerId());
-        if (customerId != null) {
-            customerContextAdvisor.setCustomerId(customerId);
-        }
-        String conversationId = (request.customerId() != null && !request.customerId().isEmpty())
-                ? "customer-" + request.customerId()
-                : (request.sessionId() != null ? request.sessionId() : "anonymous");
+            Optional<String> blocked = safetyAdvisor.screen(request.message());
+            if (blocked.isPresent()) {
+                reactor.core.publisher.Mono<java.util.Map<String, String>> blockedResponse = reactor.core.publisher.Mono
+                        .fromCallable(() -> {
+                            rememberBlocked(request, blocked.get(), preflightBlockedStream);
+                            return java.util.Collections.singletonMap("content", blocked.get());
+                        })
+                        .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic());
+                return sentimentFlux.concatWith(blockedResponse);
+            }
+
+            // Set context
+            Long customerId = parseCustomerId(request.customerId());
+            String conversationId = conversationIdFor(request);
 
-        // 1. Analyze Sentiment immediately (Stateless)
-        SentimentType sentiment = sentimentAdvisor.analyzeSentiment(request.message());
+            // 3. Tell the client retrieval has started
+            reactor.core.publisher.Flux<java.util.Map<String, String>> statusFlux = reactor.core.publisher.Flux
+                    .just(java.util.Collections.singletonMap("status", "retrieving"));
 
-        // 2. Create Sentiment Event Flux
-        reactor.core.publisher.Flux<java.util.Map<String, String>> sentimentFlux = reactor.core.publisher.Flux
-                .just(java.util.Collections.singletonMap("sentiment", sentiment.name()));
+            // 4. Create Chat Stream Flux. Identical anonymous questions in
+            // flight that open a conversation share one upstream stream
+            reactor.core.publisher.Flux<String> contentFlux = coalescingEnabled && customerId == null
+                    ? reactor.core.publisher.Mono.fromCallable(() -> isFresh(conversationId))
+                            .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic())
+                            .flatMapMany(fresh -> fresh
+                                    ? sharedContentStream(request, conversationId)
+                                    : contentStream(request, conversationId, null, new AtomicBoolean()))
+                    : contentStream(request, conversationId, customerId, new AtomicBoolean());
+            reactor.core.publisher.Flux<java.util.Map<String, String>> chatFlux = contentFlux
+                    .map(content -> java.util.Collections.singletonMap("content", content))
+                    // Turned away at capacity: say so and end the stream
+                    .onErrorResume(SupportBotBusyException.class, e -> reactor.core.publisher.Flux
+                            .just(java.util.Collections.singletonMap("content", BUSY_MESSAGE)));
 
-        // 3. Create Chat Stream Flux
-        reactor.core.publisher.Flux<java.util.Map<String, String>> chatFlux = chatClient.prompt()
-                .system(enhancedSystemPrompt)
-                .user(request.message())
-                // Ensure ID is set BEFORE advisors run
-                .advisors(a -> a.param("chat_memory_conversation_id", conversationId))
-                .advisors(safetyAdvisor)
-                .advisors(customerContextAdvisor)
-                .advisors(memoryAdvisor)
-                .tools(ticketTools) // Enable Tools!
-                .stream()
-                .content()
-                .map(content -> java.util.Collections.singletonMap("content", content));
+            // 5. Concat: Sentiment first, then status, then content
+            return reactor.core.publisher.Flux.concat(sentimentFlux, statusFlux, chatFlux);
+        });
+    }
+
+    /**
+     * Streams the model's answer through the advisor chain. Enrichment (an
+     * embedding call and a JDBC lookup) runs on the bounded elastic scheduler
+     * once the stream is subscribed. Waiting for a model slot parks no thread,
+     * so streams queued under overload cannot use up that scheduler.
+     *
+     * @param toolsUsed Set once the model calls a tool
+     */
+    private reactor.core.publisher.Flux<String> contentStream(ChatRequest request, String conversationId,
+            Long customerId, AtomicBoolean toolsUsed) {
+        return reactor.core.publisher.Mono
+                // Get RAG context, customer and sentiment in parallel
+                .fromCallable(() -> enrichmentService.enrich(request.message(), customerId))
+                .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic())
+                .flatMapMany(enrichment -> {
+                    String context = knowledgeBaseService.formatContext(enrichment.sources());
+
+                    // Build enhanced system prompt
+                    SystemPromptTemplate systemPromptTemplate = new SystemPromptTemplate(systemPromptResource);
+                    String enhancedSystemPrompt = systemPromptTemplate.createMessage(java.util.Map.of(
+                            "category", enrichment.category(),
+                            "context", context)).getText();
+
+                    // Waits for a model slot without holding a thread; the slot
+                    // is held until the stream ends or is cancelled
+                    return reactor.core.publisher.Flux.usingWhen(
+                            admissionScheduler.acquireAsync(enrichment.plan()),
+                            permit -> chatClient.prompt()
+                                    .system(enhancedSystemPrompt)
+                                    .user(request.message())
+                                    // Ensure ID is set BEFORE advisors run
+                                    .advisors(a -> a.params(advisorParams(conversationId, customerId, enrichment)))
+                                    .advisors(safetyAdvisor)
+                                    .advisors(customerContextAdvisor)
+                                    .advisors(memoryAdvisor)
+                                    .advisors(formattingAdvisor) // One summary log per stream
+                                    .advisors(modelConcurrencyAdvisor)
+                                    // Tools, tracked so a tool answer is not shared
+                                    .toolCallbacks(TrackedToolCallback.track(ticketToolCallbacks, toolsUsed))
+                                    .stream()
+                                    .content(),
+                            permit -> reactor.core.publisher.Mono.fromRunnable(permit::close));
+                });
+    }
+
+    /**
+     * Joins the stream in flight for the same question, or starts it. The
+     * request that starts the stream records the exchange through the memory
+     * advisor; the others record it themselves once the answer is complete.
+     *
+     * An answer that depends on a tool call (e.g. a created ticket) is
+     * specific to the request that started the stream. Tool calls come before
+     * the text that uses them, so the others drop out of the shared stream as
+     * soon as a tool has run and ask again on their own, as coalesced chats
+     * do.
+     */
+    private reactor.core.publisher.Flux<String> sharedContentStream(ChatRequest request, String conversationId) {
+        return reactor.core.publisher.Flux.defer(() -> {
+            AtomicBoolean leader = new AtomicBoolean();
+            AtomicBoolean leaderUsedTools = new AtomicBoolean();
+            StringBuilder answer = new StringBuilder();
+            reactor.core.publisher.Mono<String> rememberAnswer = reactor.core.publisher.Mono
+                    .<String>fromRunnable(() -> {
+                        if (!leader.get()) {
+                            embeddingCallsSavedByCoalescing.increment();
+                            chatMemory.add(conversationId, java.util.List.of(new UserMessage(request.message()),
+                                    new AssistantMessage(answer.toString())));
+                        }
+                    })
+                    .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic());
+            return streamFlight.stream(coalescingKey(request.message()), () -> {
+                leader.set(true);
+                AtomicBoolean toolsUsed = new AtomicBoolean();
+                return contentStream(request, conversationId, null, toolsUsed)
+                        .map(content -> new SharedChunk(content, toolsUsed.get()));
+            })
+                    .doOnNext(chunk -> {
+                        if (chunk.toolsUsed()) {
+                            leaderUsedTools.set(true);
+                        }
+                    })
+                    .takeWhile(chunk -> leader.get() || !leaderUsedTools.get())
+                    .map(SharedChunk::content)
+                    .doOnNext(answer::append)
+                    .concatWith(reactor.core.publisher.Flux.defer(() -> leader.get() || !leaderUsedTools.get()
+                            ? rememberAnswer.flux()
+                            : contentStream(request, conversationId, null, new AtomicBoolean())));
+        });
+    }
 
-        // 4. Concat: Sentiment first, then content
-        return reactor.core.publisher.Flux.concat(sentimentFlux, chatFlux);
+    /**
+     * A piece of a shared stream, and whether a tool had run by then.
+     */
+    private record SharedChunk(String content, boolean toolsUsed) {
     }
 
     public String simpleChat(String message) {
@@ -206,6 +484,87 @@ public class SupportBotService {
         return history; // Retrieve messages
     }
 
+    /**
+     * Screens the raw message before any retrieval or prompt work. A blocked
+     * exchange is still recorded in chat memory, as it would have been had
+     * the safety advisor stopped it inside the chain.
+     *
+     * @return the canned response if the message is blocked
+     */
+    private Optional<String> preflight(ChatRequest request, Counter blockedCounter) {
+        Optional<String> blocked = safetyAdvisor.screen(request.message());
+        blocked.ifPresent(response -> rememberBlocked(request, response, blockedCounter));
+        return blocked;
+    }
+
+    /**
+     * Records a blocked exchange as if the advisor chain had blocked it.
+     */
+    private void rememberBlocked(ChatRequest request, String response, Counter blockedCounter) {
+        String conversationId = conversationIdFor(request);
+        logger.info("Message blocked before retrieval - ConversationID: {}", conversationId);
+        chatMemory.add(conversationId, java.util.List.of(new UserMessage(request.message()),
+                new AssistantMessage(response)));
+        blockedCounter.increment();
+        embeddingCallsSaved.increment();
+    }
+
+    /**
+     * Requests with the same normalized message and category share work.
+     */
+    private String coalescingKey(String message) {
+        return knowledgeBaseService.categorizeQuery(message) + "\n" + CachingEmbeddingModel.normalize(message);
+    }
+
+    /**
+     * Builds the advisor context for one request. The enrichment results are
+     * passed along so the advisors do not repeat the lookups.
+     */
+    private static java.util.Map<String, Object> advisorParams(String conversationId, Long customerId,
+            ChatEnrichment enrichment) {
+        java.util.Map<String, Object> params = new java.util.HashMap<>();
+        params.put("chat_memory_conversation_id", conversationId);
+        if (customerId != null) {
+            params.put(CustomerContextAdvisor.CUSTOMER_ID, customerId);
+            params.put(CustomerContextAdvisor.CUSTOMER, enrichment.customer());
+        }
+        params.put(SentimentAnalysisAdvisor.SENTIMENT, enrichment.sentiment());
+        return params;
+    }
+
+    private static String contentOf(ChatClientResponse response) {
+        if (response.chatResponse() == null || response.chatResponse().getResult() == null) {
+            return null;
+        }
+        return response.chatResponse().getResult().getOutput().getText();
+    }
+
+    /**
+     * Determines the conversation ID for memory. The customer ID wins, so
+     * history persists across sessions.
+     */
+    private static String conversationIdFor(ChatRequest request) {
+        return (request.customerId() != null && !request.customerId().isEmpty())
+                ? "customer-" + request.customerId()
+                : (request.sessionId() != null ? request.sessionId() : "anonymous");
+    }
+
+    /**
+     * The result of one model call, shareable between coalesced requests.
+     */
+    private record Completion(String content, SentimentType sentiment, boolean toolsUsed) {
+
+        ChatResponse toResponse(String conversationId) {
+            return new ChatResponse(
+                    content,
+                    conversationId,
+                    sentiment,
+                    false, // Ticket created flag strictly via Advisor is deprecated
+                    null,
+                    java.time.LocalDateTime.now());
+        }
+    }
+
     /**
      * Parses customer ID from string.
      */
@@ -0,0 +1,132 @@
+package com.example.advisor.supportbot.streaming;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ties a streamed answer to the client that reads it.
+ *
+ * When the client goes away, Spring MVC cancels the subscription at the next
+ * failed write. The cancellation travels up through framing and the advisor
+ * chain to {@code ChatClient.stream()}, which closes the model connection,
+ * so generation stops instead of running to the end for nobody. A resumable
+ * stream ({@link StreamReplay}) is cancelled once no client has come back
+ * within the reconnect window.
+ *
+ * Each client holds at most {@code maxBufferedFrames} frames it has not
+ * taken yet. A client that falls further behind is cut off: its response
+ * ends without the final {@code done} event, so the browser reconnects and
+ * resumes from the replay buffer. The answer is never sent with gaps.
+ *
+ * Metrics: {@code supportbot.stream.cancelled} (generations cancelled before
+ * the model finished), {@code supportbot.stream.overflows} (clients cut off)
+ * and {@code supportbot.stream.tokens.saved}, the tokens not generated
+ * because of cancellations. A stream's expected length is estimated from the
+ * moving average of completed streams, so the saving is an estimate. A
+ * stream shared with other subscribers keeps running for them, and is
+ * counted all the same.
+ */
+public class StreamGuard {
+
+    // Weight of the latest completed stream in the expected length
+    private static final double ALPHA = 0.1;
+
+    private final int maxBufferedFrames;
+
+    private double expectedTokens = Double.NaN;
+
+    private Counter cancelled;
+    private Counter overflows;
+    private Counter tokensSaved;
+
+    /**
+     * @param maxBufferedFrames Frames held for a client that is behind
+     */
+    public StreamGuard(int maxBufferedFrames) {
+        this.maxBufferedFrames = maxBufferedFrames;
+    }
+
+    public StreamGuard bindTo(MeterRegistry registry) {
+        cancelled = Counter.builder("supportbot.stream.cancelled")
+                .description("Streams cancelled before the model finished")
+                .register(registry);
+        overflows = Counter.builder("supportbot.stream.overflows")
+                .description("Clients cut off for falling too far behind their stream")
+                .register(registry);
+        tokensSaved = Counter.builder("supportbot.stream.tokens.saved")
+                .description("Estimated model tokens not generated because a stream was cancelled")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Frames the events, counting the tokens received and recording the
+     * saving if the stream is cancelled.
+     */
+    public Flux<Map<String, String>> generation(Flux<Map<String, String>> events,
+            Function<Flux<Map<String, String>>, Flux<Map<String, String>>> framing) {
+        return Flux.defer(() -> {
+            AtomicLong received = new AtomicLong();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            return events
+                    .doOnNext(event -> {
+                        if (event.containsKey(TokenCoalescer.CONTENT)) {
+                            received.incrementAndGet();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // Cancellation can reach here more than once
+                        if (cancelled.compareAndSet(false, true)) {
+                            cancelled(received.get());
+                        }
+                    })
+                    .doOnComplete(() -> completed(received.get()))
+                    .transform(framing);
+        });
+    }
+
+    /**
+     * Holds at most {@code maxBufferedFrames} frames for one client, and ends
+     * its response when it falls further behind.
+     */
+    public <T> Flux<T> bound(Flux<T> frames) {
+        return frames
+                .onBackpressureBuffer(maxBufferedFrames, frame -> {
+                    if (overflows != null) {
+                        overflows.increment();
+                    }
+                }, BufferOverflowStrategy.ERROR)
+                // This client's subscription is cancelled; end its response
+                .onErrorResume(Exceptions::isOverflow, e -> Flux.empty());
+    }
+
+    private void cancelled(long received) {
+        if (cancelled != null) {
+            cancelled.increment();
+        }
+        long saved = Math.max(0, Math.round(expectedTokens() - received));
+        if (tokensSaved != null && saved > 0) {
+            tokensSaved.increment(saved);
+        }
+    }
+
+    private synchronized void completed(long received) {
+        expectedTokens = Double.isNaN(expectedTokens) ? received
+                : expectedTokens + ALPHA * (received - expectedTokens);
+    }
+
+    /**
+     * Tokens a stream is expected to run to, or zero before any has completed.
+     */
+    synchronized double expectedTokens() {
+        return Double.isNaN(expectedTokens) ? 0 : expectedTokens;
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.advisor.supportbot.streaming;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps streamed answers resumable across dropped connections.
+ *
+ * Every stream gets a random id and numbers its events from 1; the SSE id of
+ * an event is {@code <stream id>:<sequence>}. The generation runs detached
+ * from the connection and writes into a replay buffer of the last
+ * {@code maxEvents} events. When the browser's {@code EventSource} reconnects
+ * it sends the last id it saw in {@code Last-Event-ID}, and the client picks
+ * up from the event after it while the original generation keeps running.
+ *
+ * A generation with no client attached is cancelled once the reconnect
+ * window has passed; a client that still reaches it afterwards gets the
+ * buffered events and then an error rather than waiting forever. A finished
+ * stream stays resumable for the retention period, then its buffer is
+ * evicted. An id that is unknown, evicted or older than the buffer starts a
+ * new stream, as a first request does. At most {@code maxStreams} streams
+ * are buffered; past that, streams are served without ids and end with
+ * their connection.
+ *
+ * Metrics: {@code supportbot.stream.resumed}, tagged {@code outcome=replayed}
+ * or {@code outcome=missed}, and the gauge {@code supportbot.stream.replay.streams}.
+ */
+public class StreamReplay {
+
+    private final int maxEvents;
+    private final int maxStreams;
+    private final Duration reconnectWindow;
+    private final Duration retention;
+    private final Scheduler scheduler;
+
+    private final ConcurrentMap<String, Stream> streams = new ConcurrentHashMap<>();
+
+    private Counter replayed;
+    private Counter missed;
+
+    /**
+     * @param maxEvents       Events kept for replay per stream
+     * @param maxStreams      Streams buffered at once; zero disables replay
+     * @param reconnectWindow How long a generation runs with no client
+     * @param retention       How long a finished stream stays resumable
+     */
+    public StreamReplay(int maxEvents, int maxStreams, Duration reconnectWindow, Duration retention) {
+        this(maxEvents, maxStreams, reconnectWindow, retention, Schedulers.parallel());
+    }
+
+    StreamReplay(int maxEvents, int maxStreams, Duration reconnectWindow, Duration retention,
+            Scheduler scheduler) {
+        this.maxEvents = maxEvents;
+        this.maxStreams = maxStreams;
+        this.reconnectWindow = reconnectWindow;
+        this.retention = retention;
+        this.scheduler = scheduler;
+    }
+
+    public StreamReplay bindTo(MeterRegistry registry) {
+        replayed = resumedCounter(registry, "replayed");
+        missed = resumedCounter(registry, "missed");
+        Gauge.builder("supportbot.stream.replay.streams", streams, Map::size)
+                .description("Streams held for resumption")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * Resumes the stream named by {@code lastEventId}, or starts a new one.
+     *
+     * @param lastEventId The {@code Last-Event-ID} header, or null
+     * @param generation  Produces the events of a new stream
+     */
+    public Flux<StreamEvent> open(String lastEventId, Supplier<Flux<Map<String, String>>> generation) {
+        return Flux.defer(() -> {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                Flux<StreamEvent> resumed = resume(lastEventId);
+                if (resumed != null) {
+                    increment(replayed);
+                    return resumed;
+                }
+                increment(missed);
+            }
+            if (streams.size() >= maxStreams) {
+                return generation.get().map(StreamEvent::unnumbered);
+            }
+            Stream stream = new Stream(UUID.randomUUID().toString());
+            streams.put(stream.id, stream);
+            Flux<Map<String, String>> events = generation.get();
+            // Start once the first client has asked for events, so it misses none
+            return Flux.merge(stream.read(0), Mono.<StreamEvent>fromRunnable(() -> stream.start(events)));
+        });
+    }
+
+    /**
+     * The rest of a buffered stream, or null if it cannot be resumed. Nothing
+     * is read until the returned flux is subscribed.
+     */
+    Flux<StreamEvent> resume(String lastEventId) {
+        int separator = lastEventId.lastIndexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+        Stream stream = streams.get(lastEventId.substring(0, separator));
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return stream != null && stream.covers(after) ? stream.read(after) : null;
+    }
+
+    public int size() {
+        return streams.size();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static Counter resumedCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("supportbot.stream.resumed")
+                .description("Reconnects carrying Last-Event-ID")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * An event of a stream, and its place in it.
+     *
+     * @param streamId Stream id, or null if the stream is not resumable
+     * @param sequence Position in the stream, from 1
+     * @param event    The event
+     */
+    public record StreamEvent(String streamId, long sequence, Map<String, String> event) {
+
+        static StreamEvent unnumbered(Map<String, String> event) {
+            return new StreamEvent(null, 0, event);
+        }
+
+        /**
+         * The SSE id, or null if the stream is not resumable.
+         */
+        public String id() {
+            return streamId != null ? streamId + ":" + sequence : null;
+        }
+    }
+
+    /**
+     * One generation, its replay buffer and the clients reading it.
+     */
+    private final class Stream {
+
+        private final String id;
+        private final Sinks.Many<StreamEvent> buffer = Sinks.many().replay().limit(maxEvents);
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // written by the generation only, one event at a time
+        private volatile long emitted;
+
+        // guarded by lock
+        private int readers;
+        private boolean finished;
+        private boolean abandoned;
+        private Disposable generation;
+        private Disposable idleTimer;
+
+        Stream(String id) {
+            this.id = id;
+        }
+
+        void start(Flux<Map<String, String>> events) {
+            Disposable subscription = events.subscribe(
+                    event -> {
+                        long sequence = emitted + 1;
+                        emitted = sequence;
+                        buffer.tryEmitNext(new StreamEvent(id, sequence, event));
+                    },
+                    error -> {
+                        buffer.tryEmitError(error);
+                        finish();
+                    },
+                    () -> {
+                        buffer.tryEmitComplete();
+                        finish();
+                    });
+            lock.lock();
+            try {
+                if (!finished) {
+                    generation = subscription;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Finished already, or abandoned while starting
+            subscription.dispose();
+        }
+
+        /**
+         * True if every event after {@code after} is still in the buffer.
+         */
+        boolean covers(long after) {
+            lock.lock();
+            try {
+                if (abandoned) {
+                    return false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            long sent = emitted;
+            return after >= 0 && after <= sent && after >= sent - maxEvents;
+        }
+
+        Flux<StreamEvent> read(long after) {
+            return buffer.asFlux()
+                    .filter(event -> event.sequence() > after)
+                    .doOnSubscribe(subscription -> attach())
+                    .doFinally(signal -> detach());
+        }
+
+        private void attach() {
+            lock.lock();
+            try {
+                readers++;
+                if (idleTimer != null) {
+                    idleTimer.dispose();
+                    idleTimer = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void detach() {
+            lock.lock();
+            try {
+                readers--;
+                if (readers == 0 && !finished) {
+                    idleTimer = scheduler.schedule(this::abandonIfIdle, reconnectWindow.toMillis(),
+                            TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Nobody came back: stop the model and forget the stream.
+         */
+        private void abandonIfIdle() {
+            Disposable running;
+            lock.lock();
+            try {
+                if (readers > 0 || finished) {
+                    return;
+                }
+                finished = true;
+                abandoned = true;
+                running = generation;
+                generation = null;
+            } finally {
+                lock.unlock();
+            }
+            streams.remove(id, this);
+            if (running != null) {
+                running.dispose();
+            }
+            // A reader that looked the stream up just before it was removed
+            // must still see it end; retry while a last event is being emitted
+            IllegalStateException error = new IllegalStateException("Stream " + id + " was abandoned");
+            while (buffer.tryEmitError(error) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void finish() {
+            lock.lock();
+            try {
+                finished = true;
+                generation = null;
+                if (idleTimer != null) {
+                    idleTimer.dispose();
+                    idleTimer = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            scheduler.schedule(() -> streams.remove(id, this), retention.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
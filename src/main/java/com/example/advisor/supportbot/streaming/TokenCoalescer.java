@@ -0,0 +1,200 @@
+package com.example.advisor.supportbot.streaming;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batches streamed model tokens into fewer, larger SSE frames.
+ *
+ * A model streams a token every few milliseconds, and every token written
+ * as its own frame costs a serialization, a write and a flush. This stage
+ * joins consecutive {@code content} events into one until the window has
+ * passed since the first token of the frame, or the frame has reached
+ * {@code maxBytes} of UTF-8. Any other event (sentiment, status) flushes
+ * the pending content first, so the order of events is kept. The last
+ * partial frame is flushed when the stream ends.
+ *
+ * {@code supportbot.stream.tokens} and {@code supportbot.stream.frames}
+ * count what went in and what came out.
+ */
+public class TokenCoalescer {
+
+    static final String CONTENT = "content";
+
+    private final Duration window;
+    private final int maxBytes;
+    private final Scheduler scheduler;
+
+    private Counter tokens;
+    private Counter frames;
+
+    /**
+     * @param window   Longest a token waits for company; zero disables
+     *                 coalescing
+     * @param maxBytes Frame size that is flushed at once
+     */
+    public TokenCoalescer(Duration window, int maxBytes) {
+        this(window, maxBytes, Schedulers.parallel());
+    }
+
+    TokenCoalescer(Duration window, int maxBytes, Scheduler scheduler) {
+        this.window = window;
+        this.maxBytes = maxBytes;
+        this.scheduler = scheduler;
+    }
+
+    public TokenCoalescer bindTo(MeterRegistry registry) {
+        tokens = Counter.builder("supportbot.stream.tokens")
+                .description("Content chunks received from the model for streaming")
+                .register(registry);
+        frames = Counter.builder("supportbot.stream.frames")
+                .description("Content frames written to streaming clients")
+                .register(registry);
+        return this;
+    }
+
+    public Flux<Map<String, String>> coalesce(Flux<Map<String, String>> events) {
+        if (window.isZero() || window.isNegative()) {
+            return events;
+        }
+        return Flux.create(sink -> {
+            Frame frame = new Frame(sink);
+            Disposable upstream = events.subscribe(frame::add, frame::error, frame::complete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                frame.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * The content waiting to be written for one stream.
+     */
+    private final class Frame {
+
+        private final FluxSink<Map<String, String>> sink;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final StringBuilder pending = new StringBuilder();
+        private int pendingBytes;
+        private Disposable timer;
+
+        Frame(FluxSink<Map<String, String>> sink) {
+            this.sink = sink;
+        }
+
+        void add(Map<String, String> event) {
+            String content = event.get(CONTENT);
+            lock.lock();
+            try {
+                if (content == null) {
+                    flush();
+                    sink.next(event);
+                    return;
+                }
+                if (tokens != null) {
+                    tokens.increment();
+                }
+                pending.append(content);
+                pendingBytes += utf8Length(content);
+                if (pendingBytes >= maxBytes) {
+                    flush();
+                } else if (timer == null) {
+                    timer = scheduler.schedule(this::flushOnTimer, window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void complete() {
+            lock.lock();
+            try {
+                flush();
+                sink.complete();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void error(Throwable error) {
+            lock.lock();
+            try {
+                flush();
+                sink.error(error);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void cancelTimer() {
+            lock.lock();
+            try {
+                if (timer != null) {
+                    timer.dispose();
+                    timer = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flushOnTimer() {
+            lock.lock();
+            try {
+                timer = null;
+                flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Writes the pending content as one frame. Call with the lock held.
+         */
+        private void flush() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            String content = pending.toString();
+            pending.setLength(0);
+            pendingBytes = 0;
+            if (frames != null) {
+                frames.increment();
+            }
+            sink.next(Collections.singletonMap(CONTENT, content));
+        }
+    }
+
+    static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.advisor.supportbot.tool;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tool callback decorator that records whether the model called the tool.
+ *
+ * Tool beans are shared by all requests, so a per-request flag is passed in
+ * by wrapping the callbacks for each request. Used to keep answers that
+ * depended on a tool call (e.g. a created ticket) out of the answer cache.
+ */
+public class TrackedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final AtomicBoolean called;
+
+    public TrackedToolCallback(ToolCallback delegate, AtomicBoolean called) {
+        this.delegate = delegate;
+        this.called = called;
+    }
+
+    /**
+     * Wraps all callbacks with the same flag.
+     */
+    public static ToolCallback[] track(ToolCallback[] callbacks, AtomicBoolean called) {
+        return Arrays.stream(callbacks)
+                .map(callback -> new TrackedToolCallback(callback, called))
+                .toArray(ToolCallback[]::new);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        called.set(true);
+        return delegate.call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        called.set(true);
+        return delegate.call(toolInput, toolContext);
+    }
+}
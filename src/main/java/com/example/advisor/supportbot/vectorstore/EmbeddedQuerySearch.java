@@ -0,0 +1,26 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.List;
+
+/**
+ * A vector store that can be searched with a query embedded beforehand.
+ *
+ * Embedding the query is a remote call. A caller that searches under a lock
+ * embeds first, outside it, so the lock only covers the in-memory search.
+ */
+public interface EmbeddedQuerySearch {
+
+    /**
+     * Embeds a query with the store's embedding model.
+     */
+    float[] embedQuery(String query);
+
+    /**
+     * Searches with an embedding from {@link #embedQuery}. The query text of
+     * the request is not embedded again.
+     */
+    List<Document> similaritySearch(SearchRequest request, float[] queryEmbedding);
+}
@@ -0,0 +1,130 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * {@link SimpleVectorStore} with a faster brute-force search.
+ *
+ * Vectors are normalized once when they are added (or loaded), so scoring a
+ * chunk is a single SIMD dot product through {@link VectorMath} rather than a
+ * scalar cosine that recomputes both norms. The best {@code topK} are kept in
+ * a bounded heap instead of sorting every chunk. Results are the same as the
+ * parent's: every live chunk is scored.
+ *
+ * The unit vectors are also kept next to the parent's store, because
+ * {@link SimpleVectorStoreContent#getEmbedding()} returns a copy, which would
+ * allocate one array per scored chunk on every query. This doubles the
+ * vector memory; use the quantized store when heap is the constraint.
+ */
+public class ExactVectorStore extends SimpleVectorStore implements EmbeddedQuerySearch {
+
+    private static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble(Scored::similarity);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ExactVectorStore(EmbeddingModel embeddingModel) {
+        super(SimpleVectorStore.builder(embeddingModel));
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptions.builder().build(),
+                this.batchingStrategy);
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            put(new SimpleVectorStoreContent(document.getId(), document.getText(), document.getMetadata(),
+                    VectorMath.normalize(embeddings.get(i))));
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        super.doDelete(idList);
+        idList.forEach(entries::remove);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        return similaritySearch(request, embedQuery(request.getQuery()));
+    }
+
+    @Override
+    public float[] embedQuery(String query) {
+        return this.embeddingModel.embed(query);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request, float[] queryEmbedding) {
+        float[] query = VectorMath.normalize(queryEmbedding);
+        Predicate<Map<String, Object>> filter = MetadataFilter.forRequest(request);
+        int topK = request.getTopK();
+
+        PriorityQueue<Scored> best = new PriorityQueue<>(topK + 1, WORST_FIRST);
+        for (Entry entry : entries.values()) {
+            if (!filter.test(entry.content().getMetadata())) {
+                continue;
+            }
+            float similarity = VectorMath.dot(query, entry.vector());
+            if (similarity < request.getSimilarityThreshold()) {
+                continue;
+            }
+            if (best.size() < topK) {
+                best.add(new Scored(entry.content(), similarity));
+            } else if (similarity > best.peek().similarity()) {
+                best.poll();
+                best.add(new Scored(entry.content(), similarity));
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        return ranked.stream().map(scored -> scored.content().toDocument((double) scored.similarity())).toList();
+    }
+
+    @Override
+    public void load(File file) {
+        super.load(file);
+        normalizeLoaded();
+    }
+
+    @Override
+    public void load(Resource resource) {
+        super.load(resource);
+        normalizeLoaded();
+    }
+
+    /**
+     * Files written by {@link SimpleVectorStore#save} may hold raw vectors.
+     */
+    private void normalizeLoaded() {
+        entries.clear();
+        List.copyOf(this.store.values()).forEach(content -> put(new SimpleVectorStoreContent(content.getId(),
+                content.getText(), content.getMetadata(), VectorMath.normalize(content.getEmbedding()))));
+    }
+
+    private void put(SimpleVectorStoreContent content) {
+        this.store.put(content.getId(), content);
+        entries.put(content.getId(), new Entry(content, content.getEmbedding()));
+    }
+
+    private record Entry(SimpleVectorStoreContent content, float[] vector) {
+    }
+
+    private record Scored(SimpleVectorStoreContent content, float similarity) {
+    }
+}
@@ -0,0 +1,671 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.observation.conventions.VectorStoreProvider;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-process approximate nearest neighbour VectorStore based on HNSW
+ * (Hierarchical Navigable Small World graphs, Malkov &amp; Yashunin).
+ *
+ * {@link org.springframework.ai.vectorstore.SimpleVectorStore} scores every
+ * chunk on every query. HNSW instead walks a layered proximity graph and only
+ * scores the few hundred chunks near the query, which keeps search latency
+ * roughly logarithmic in the size of the knowledge base.
+ *
+ * Tuning knobs:
+ * - {@code m}: links per node (upper layers; layer 0 keeps 2 x m). Higher
+ * means better recall and more memory.
+ * - {@code efConstruction}: candidate list size while inserting. Higher means
+ * a better graph and slower inserts.
+ * - {@code efSearch}: candidate list size while querying. Higher means better
+ * recall and slower queries.
+ *
+ * Concurrency: inserts lock only the neighbour lists they rewrite, and those
+ * lists are replaced copy-on-write, so searches never take a lock and can run
+ * while writers add documents. Deletes are tombstones: the node keeps routing
+ * traffic but is never returned.
+ *
+ * Replacing a document tombstones its old node too, so a store that is
+ * updated in place would grow without bound. Once tombstones make up more
+ * than {@code maxDeletedRatio} of the graph, it is rebuilt from the live nodes
+ * (their vectors are kept, nothing is re-embedded) with ordinals numbered
+ * from 0 again, and swapped in. Writers wait for the rebuild; searches in
+ * flight finish on the old graph.
+ *
+ * Filters on indexed metadata keys are answered from a
+ * {@link MetadataBitmapIndex}. When few chunks match, they are scored
+ * directly instead of walking the graph, so a filtered search always returns
+ * a full topK.
+ */
+public class HnswVectorStore extends AbstractObservationVectorStore implements EmbeddedQuerySearch {
+
+    private final int m;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final double maxDeletedRatio;
+    private final List<String> indexedMetadataKeys;
+
+    // Writers share the read lock; a rebuild takes the write lock
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile Graph graph;
+    private volatile int dimensions = -1;
+
+    protected HnswVectorStore(Builder builder) {
+        super(builder);
+        this.m = builder.m;
+        this.maxConnectionsLayer0 = builder.m * 2;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.levelMultiplier = 1.0 / Math.log(builder.m);
+        this.maxDeletedRatio = builder.maxDeletedRatio;
+        this.indexedMetadataKeys = builder.indexedMetadataKeys;
+        this.graph = new Graph();
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /**
+     * Number of live (non-deleted) documents.
+     */
+    public int size() {
+        return graph.nodesById.size();
+    }
+
+    /**
+     * Number of nodes in the graph, live and tombstoned.
+     */
+    int nodeCount() {
+        Graph current = graph;
+        return current.nodesById.size() + current.deleted.get();
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptions.builder().build(),
+                this.batchingStrategy);
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            add(document.getId(), document.getText(), document.getMetadata(), embeddings.get(i));
+        }
+    }
+
+    /**
+     * Inserts a document whose embedding has already been computed.
+     */
+    public void add(String id, String text, Map<String, Object> metadata, float[] embedding) {
+        if (dimensions < 0) {
+            dimensions = embedding.length;
+        } else if (embedding.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + embedding.length);
+        }
+
+        float[] vector = VectorMath.normalize(embedding);
+        rebuildLock.readLock().lock();
+        try {
+            Graph current = graph;
+            Node node = new Node(current.nextOrdinal.getAndIncrement(), id, text, new HashMap<>(metadata), vector,
+                    randomLevel());
+            link(current, node);
+
+            // Re-adding an id replaces the previous version
+            Node previous = current.nodesById.put(id, node);
+            if (previous != null) {
+                tombstone(current, previous);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        rebuildIfSparse();
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        rebuildLock.readLock().lock();
+        try {
+            Graph current = graph;
+            for (String id : idList) {
+                Node node = current.nodesById.remove(id);
+                if (node != null) {
+                    tombstone(current, node);
+                }
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        rebuildIfSparse();
+    }
+
+    private void link(Graph graph, Node node) {
+        graph.nodesByOrdinal.put(node.ordinal, node);
+        insert(graph, node);
+        graph.metadataIndex.add(node.ordinal, node.metadata);
+    }
+
+    private void tombstone(Graph graph, Node node) {
+        node.deleted = true;
+        graph.metadataIndex.remove(node.ordinal);
+        graph.nodesByOrdinal.remove(node.ordinal);
+        graph.deleted.incrementAndGet();
+    }
+
+    /**
+     * Rebuilds the graph from its live nodes once tombstones make up more
+     * than {@code maxDeletedRatio} of it.
+     */
+    private void rebuildIfSparse() {
+        if (!graph.sparse()) {
+            return;
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            Graph current = graph;
+            if (!current.sparse()) {
+                return;
+            }
+            Graph rebuilt = new Graph();
+            for (Node live : current.nodesById.values()) {
+                Node node = new Node(rebuilt.nextOrdinal.getAndIncrement(), live.id, live.text, live.metadata,
+                        live.vector, live.level);
+                link(rebuilt, node);
+                rebuilt.nodesById.put(node.id, node);
+            }
+            graph = rebuilt;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilter.compile(filterExpression);
+        List<String> matches = graph.nodesById.values().stream()
+                .filter(node -> filter.test(node.metadata))
+                .map(node -> node.id)
+                .toList();
+        doDelete(matches);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        if (graph.entryPoint == null) {
+            return List.of();
+        }
+        return similaritySearch(request, embedQuery(request.getQuery()));
+    }
+
+    @Override
+    public float[] embedQuery(String query) {
+        return this.embeddingModel.embed(query);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request, float[] queryEmbedding) {
+        Graph graph = this.graph;
+        Node entry = graph.entryPoint;
+        if (entry == null) {
+            return List.of();
+        }
+
+        float[] query = VectorMath.normalize(queryEmbedding);
+        int ef = Math.max(efSearch, request.getTopK());
+        List<Candidate> results;
+
+        BitSet allowed = request.hasFilterExpression()
+                ? graph.metadataIndex.match(request.getFilterExpression())
+                : null;
+        if (allowed != null && allowed.cardinality() <= ef * maxConnectionsLayer0) {
+            // Scoring the matches directly is cheaper than a graph walk
+            // (which visits about ef x 2m nodes) and is exact
+            results = scanOrdinals(graph, query, allowed, request.getTopK());
+        } else {
+            Predicate<Node> accept;
+            if (allowed != null) {
+                accept = node -> !node.deleted && allowed.get(node.ordinal);
+            } else {
+                Predicate<Map<String, Object>> filter = MetadataFilter.forRequest(request);
+                accept = node -> !node.deleted && filter.test(node.metadata);
+            }
+
+            // Greedy descent through the sparse upper layers
+            Node current = entry;
+            for (int level = entry.level; level > 0; level--) {
+                current = greedyClosest(query, current, level);
+            }
+            results = searchLayer(graph, query, current, ef, 0, accept);
+
+            // A selective filter can leave too few matches reachable in the graph;
+            // an exact scan over the matching chunks guarantees a full topK.
+            if (results.size() < request.getTopK() && request.hasFilterExpression()) {
+                results = allowed != null
+                        ? scanOrdinals(graph, query, allowed, request.getTopK())
+                        : exactScan(graph, query, accept, request.getTopK());
+            }
+        }
+
+        List<Document> documents = new ArrayList<>(request.getTopK());
+        for (Candidate candidate : results) {
+            if (documents.size() == request.getTopK()) {
+                break;
+            }
+            if (candidate.similarity >= request.getSimilarityThreshold()) {
+                documents.add(candidate.node.toDocument(candidate.similarity));
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder(VectorStoreProvider.SIMPLE.value(), operationName)
+                .collectionName("hnsw")
+                .dimensions(dimensions > 0 ? dimensions : null)
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    // ------------------------------------------------------------------
+    // Graph construction
+    // ------------------------------------------------------------------
+
+    private void insert(Graph graph, Node node) {
+        Node entry = graph.entryPoint;
+        if (entry == null) {
+            graph.entryPointLock.lock();
+            try {
+                if (graph.entryPoint == null) {
+                    graph.entryPoint = node;
+                    return;
+                }
+                entry = graph.entryPoint;
+            } finally {
+                graph.entryPointLock.unlock();
+            }
+        }
+
+        Node current = entry;
+        for (int level = entry.level; level > node.level; level--) {
+            current = greedyClosest(node.vector, current, level);
+        }
+
+        for (int level = Math.min(node.level, entry.level); level >= 0; level--) {
+            List<Candidate> candidates = searchLayer(graph, node.vector, current, efConstruction, level, n -> true);
+            int maxConnections = level == 0 ? maxConnectionsLayer0 : m;
+            Node[] neighbours = selectNeighbours(node.vector, candidates, maxConnections);
+            setOwnNeighbours(node, neighbours, level, maxConnections);
+            for (Node neighbour : neighbours) {
+                connect(neighbour, node, level, maxConnections);
+            }
+            if (!candidates.isEmpty()) {
+                current = candidates.get(0).node;
+            }
+        }
+
+        if (node.level > entry.level) {
+            graph.entryPointLock.lock();
+            try {
+                if (node.level > graph.entryPoint.level) {
+                    graph.entryPoint = node;
+                }
+            } finally {
+                graph.entryPointLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Publishes the neighbour list of a node being inserted. Another writer may
+     * already have linked to it on this level, so existing links are merged
+     * rather than overwritten.
+     */
+    private void setOwnNeighbours(Node node, Node[] selected, int level, int maxConnections) {
+        node.lock.lock();
+        try {
+            Node[] existing = node.neighbours.get(level);
+            if (existing.length == 0) {
+                node.neighbours.set(level, selected);
+                return;
+            }
+            Map<Node, Candidate> merged = new LinkedHashMap<>();
+            for (Node neighbour : existing) {
+                merged.put(neighbour, new Candidate(neighbour, VectorMath.dot(node.vector, neighbour.vector)));
+            }
+            for (Node neighbour : selected) {
+                merged.putIfAbsent(neighbour, new Candidate(neighbour, VectorMath.dot(node.vector, neighbour.vector)));
+            }
+            List<Candidate> candidates = new ArrayList<>(merged.values());
+            candidates.sort(Candidate.BEST_FIRST);
+            node.neighbours.set(level, selectNeighbours(node.vector, candidates, maxConnections));
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a back-link from {@code node} to {@code added}, pruning the
+     * neighbour list when it overflows.
+     */
+    private void connect(Node node, Node added, int level, int maxConnections) {
+        node.lock.lock();
+        try {
+            Node[] current = node.neighbours.get(level);
+            if (current.length < maxConnections) {
+                Node[] grown = new Node[current.length + 1];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                grown[current.length] = added;
+                node.neighbours.set(level, grown);
+                return;
+            }
+            List<Candidate> candidates = new ArrayList<>(current.length + 1);
+            for (Node neighbour : current) {
+                candidates.add(new Candidate(neighbour, VectorMath.dot(node.vector, neighbour.vector)));
+            }
+            candidates.add(new Candidate(added, VectorMath.dot(node.vector, added.vector)));
+            candidates.sort(Candidate.BEST_FIRST);
+            node.neighbours.set(level, selectNeighbours(node.vector, candidates, maxConnections));
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * HNSW neighbour-selection heuristic: prefer candidates that are closer to
+     * the base than to any already selected neighbour, so links spread out in
+     * different directions instead of clustering. Remaining slots are filled
+     * with the closest discarded candidates.
+     *
+     * @param candidates sorted best first
+     */
+    private Node[] selectNeighbours(float[] base, List<Candidate> candidates, int maxConnections) {
+        List<Node> selected = new ArrayList<>(maxConnections);
+        List<Node> discarded = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() == maxConnections) {
+                break;
+            }
+            boolean diverse = true;
+            for (Node chosen : selected) {
+                if (VectorMath.dot(candidate.node.vector, chosen.vector) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate.node);
+            } else {
+                discarded.add(candidate.node);
+            }
+        }
+        for (int i = 0; i < discarded.size() && selected.size() < maxConnections; i++) {
+            selected.add(discarded.get(i));
+        }
+        return selected.toArray(new Node[0]);
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble(); // (0, 1]
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    // ------------------------------------------------------------------
+    // Graph traversal (lock-free)
+    // ------------------------------------------------------------------
+
+    private Node greedyClosest(float[] query, Node start, int level) {
+        Node best = start;
+        float bestSimilarity = VectorMath.dot(query, start.vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (Node neighbour : best.neighboursAt(level)) {
+                float similarity = VectorMath.dot(query, neighbour.vector);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Beam search on one layer. Every reachable node is used for routing, but
+     * only nodes accepted by {@code accept} enter the result list.
+     *
+     * @return up to {@code ef} accepted nodes, best first
+     */
+    private List<Candidate> searchLayer(Graph graph, float[] query, Node start, int ef, int level,
+            Predicate<Node> accept) {
+        BitSet visited = new BitSet(graph.nextOrdinal.get());
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Candidate.BEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.WORST_FIRST);
+
+        Candidate first = new Candidate(start, VectorMath.dot(query, start.vector));
+        visited.set(start.ordinal);
+        frontier.add(first);
+        if (accept.test(start)) {
+            results.add(first);
+        }
+
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (results.size() >= ef && closest.similarity < results.peek().similarity) {
+                break;
+            }
+            for (Node neighbour : closest.node.neighboursAt(level)) {
+                if (visited.get(neighbour.ordinal)) {
+                    continue;
+                }
+                visited.set(neighbour.ordinal);
+                float similarity = VectorMath.dot(query, neighbour.vector);
+                if (results.size() < ef || similarity > results.peek().similarity) {
+                    Candidate candidate = new Candidate(neighbour, similarity);
+                    frontier.add(candidate);
+                    if (accept.test(neighbour)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Candidate.BEST_FIRST);
+        return sorted;
+    }
+
+    private List<Candidate> exactScan(Graph graph, float[] query, Predicate<Node> accept, int topK) {
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.WORST_FIRST);
+        for (Node node : graph.nodesById.values()) {
+            if (!accept.test(node)) {
+                continue;
+            }
+            results.add(new Candidate(node, VectorMath.dot(query, node.vector)));
+            if (results.size() > topK) {
+                results.poll();
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Candidate.BEST_FIRST);
+        return sorted;
+    }
+
+    private List<Candidate> scanOrdinals(Graph graph, float[] query, BitSet ordinals, int topK) {
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Candidate.WORST_FIRST);
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            Node node = graph.nodesByOrdinal.get(ordinal);
+            if (node == null || node.deleted) {
+                continue;
+            }
+            results.add(new Candidate(node, VectorMath.dot(query, node.vector)));
+            if (results.size() > topK) {
+                results.poll();
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Candidate.BEST_FIRST);
+        return sorted;
+    }
+
+    // ------------------------------------------------------------------
+    // Internal types
+    // ------------------------------------------------------------------
+
+    private static final Node[] NO_NEIGHBOURS = new Node[0];
+
+    /**
+     * One generation of the index. A rebuild replaces it as a whole.
+     */
+    private final class Graph {
+
+        final Map<String, Node> nodesById = new ConcurrentHashMap<>();
+        // live nodes only; tombstoned nodes are reachable through links alone
+        final Map<Integer, Node> nodesByOrdinal = new ConcurrentHashMap<>();
+        final MetadataBitmapIndex metadataIndex = new MetadataBitmapIndex(indexedMetadataKeys);
+        final AtomicInteger nextOrdinal = new AtomicInteger();
+        final AtomicInteger deleted = new AtomicInteger();
+        final ReentrantLock entryPointLock = new ReentrantLock();
+        volatile Node entryPoint;
+
+        boolean sparse() {
+            int dead = deleted.get();
+            return dead > 0 && dead > maxDeletedRatio * (dead + nodesById.size());
+        }
+    }
+
+    private static final class Node {
+
+        final int ordinal;
+        final String id;
+        final String text;
+        final Map<String, Object> metadata;
+        final float[] vector;
+        final int level;
+        final AtomicReferenceArray<Node[]> neighbours;
+        final ReentrantLock lock = new ReentrantLock();
+        volatile boolean deleted;
+
+        Node(int ordinal, String id, String text, Map<String, Object> metadata, float[] vector, int level) {
+            this.ordinal = ordinal;
+            this.id = id;
+            this.text = text;
+            this.metadata = metadata;
+            this.vector = vector;
+            this.level = level;
+            this.neighbours = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                this.neighbours.set(i, NO_NEIGHBOURS);
+            }
+        }
+
+        Node[] neighboursAt(int level) {
+            return level <= this.level ? neighbours.get(level) : NO_NEIGHBOURS;
+        }
+
+        Document toDocument(float similarity) {
+            Map<String, Object> documentMetadata = new HashMap<>(metadata);
+            documentMetadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - similarity);
+            return Document.builder()
+                    .id(id)
+                    .text(text)
+                    .metadata(documentMetadata)
+                    .score((double) similarity)
+                    .build();
+        }
+    }
+
+    private record Candidate(Node node, float similarity) {
+
+        static final Comparator<Candidate> BEST_FIRST = Comparator.comparingDouble(Candidate::similarity).reversed();
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::similarity);
+    }
+
+    /**
+     * Builder following the same pattern as {@code SimpleVectorStore.builder(...)}.
+     */
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 64;
+        private double maxDeletedRatio = 0.25;
+        private List<String> indexedMetadataKeys = MetadataBitmapIndex.DEFAULT_KEYS;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        public Builder m(int m) {
+            if (m < 2) {
+                throw new IllegalArgumentException("m must be at least 2");
+            }
+            this.m = m;
+            return this;
+        }
+
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = Math.max(1, efConstruction);
+            return this;
+        }
+
+        public Builder efSearch(int efSearch) {
+            this.efSearch = Math.max(1, efSearch);
+            return this;
+        }
+
+        /**
+         * Share of tombstoned nodes above which the graph is rebuilt.
+         */
+        public Builder maxDeletedRatio(double maxDeletedRatio) {
+            if (maxDeletedRatio <= 0 || maxDeletedRatio >= 1) {
+                throw new IllegalArgumentException("maxDeletedRatio must be in (0, 1)");
+            }
+            this.maxDeletedRatio = maxDeletedRatio;
+            return this;
+        }
+
+        /**
+         * Metadata keys with a bitmap index for filtered searches.
+         */
+        public Builder indexedMetadataKeys(List<String> indexedMetadataKeys) {
+            this.indexedMetadataKeys = List.copyOf(indexedMetadataKeys);
+            return this;
+        }
+
+        @Override
+        public HnswVectorStore build() {
+            return new HnswVectorStore(this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only file mapped into memory in fixed-size segments.
+ *
+ * A single MappedByteBuffer is limited to 2 GB, so the file is mapped piece by
+ * piece as it grows. Records never straddle a segment boundary, which lets
+ * readers address any record with one absolute buffer read. The mapped pages
+ * live in the OS page cache, not on the Java heap.
+ *
+ * Appends must be serialised by the caller; reads are safe from any thread
+ * once the caller has published the record position.
+ */
+final class MappedSegments implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long writePosition;
+
+    private MappedSegments(FileChannel channel, int segmentSize) {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Creates (or truncates) the file at the given path.
+     */
+    static MappedSegments create(Path file, int segmentSize) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new MappedSegments(channel, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + file, e);
+        }
+    }
+
+    /**
+     * Appends a record and returns its position in the file.
+     */
+    long append(byte[] record) {
+        if (record.length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes exceeds segment size "
+                    + segmentSize);
+        }
+        int offset = (int) (writePosition % segmentSize);
+        if (offset + record.length > segmentSize) {
+            writePosition += segmentSize - offset; // skip the tail of the current segment
+        }
+        long position = writePosition;
+        segmentFor(position, true).put(offsetOf(position), record);
+        writePosition += record.length;
+        return position;
+    }
+
+    /**
+     * Starts appending from the beginning of the file again; the mapped
+     * segments are kept and overwritten. Records re-appended in their
+     * original order land at or before their old position, so a caller can
+     * compact the file in place by reading each live record just before
+     * appending it.
+     */
+    void rewind() {
+        writePosition = 0;
+    }
+
+    /**
+     * Reads {@code length} bytes of the record at {@code position}.
+     */
+    byte[] read(long position, int length) {
+        byte[] record = new byte[length];
+        segment(position).get(offsetOf(position), record);
+        return record;
+    }
+
+    /**
+     * Returns the segment containing {@code position}. Use {@link #offsetOf}
+     * for the index inside it.
+     */
+    MappedByteBuffer segment(long position) {
+        return segmentFor(position, false);
+    }
+
+    int offsetOf(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    /**
+     * Bytes reserved on disk (and in the page cache once touched).
+     */
+    long mappedBytes() {
+        return (long) segments.length * segmentSize;
+    }
+
+    private MappedByteBuffer segmentFor(long position, boolean grow) {
+        int index = (int) (position / segmentSize);
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        if (!grow) {
+            throw new IndexOutOfBoundsException("Position " + position + " has not been written");
+        }
+        try {
+            MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+            for (int i = current.length; i <= index; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+            }
+            segments = grown;
+            return grown[index];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map segment " + index, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
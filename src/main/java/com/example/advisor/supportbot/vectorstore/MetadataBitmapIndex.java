@@ -0,0 +1,161 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index over selected metadata keys (e.g. category, published, tenant).
+ *
+ * For every indexed key and value it keeps a BitSet of the chunk ordinals
+ * that carry that value. A filter expression built from equality,
+ * {@code in}, {@code and}, {@code or} and {@code not} on indexed keys is
+ * answered with bitwise operations, so a store can score only the matching
+ * chunks instead of scanning everything and filtering afterwards.
+ *
+ * Values are compared by their string form, so {@code published == true}
+ * matches both Boolean and "true" metadata.
+ *
+ * Thread-safe: readers get their own copy of the result bitmap.
+ */
+final class MetadataBitmapIndex {
+
+    static final List<String> DEFAULT_KEYS = List.of("category", "published", "tenant");
+
+    private final Set<String> indexedKeys;
+    private final Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    MetadataBitmapIndex(Collection<String> indexedKeys) {
+        this.indexedKeys = Set.copyOf(indexedKeys);
+        this.indexedKeys.forEach(key -> postings.put(key, new HashMap<>()));
+    }
+
+    void add(int ordinal, Map<String, Object> metadata) {
+        lock.writeLock().lock();
+        try {
+            live.set(ordinal);
+            for (String key : indexedKeys) {
+                Object value = metadata.get(key);
+                if (value != null) {
+                    postings.get(key).computeIfAbsent(String.valueOf(value), v -> new BitSet()).set(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int ordinal) {
+        lock.writeLock().lock();
+        try {
+            live.clear(ordinal);
+            for (Map<String, BitSet> values : postings.values()) {
+                values.values().forEach(bits -> bits.clear(ordinal));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every ordinal, e.g. before the store renumbers its chunks.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            live.clear();
+            postings.values().forEach(Map::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the live ordinals matching the expression, or {@code null} when
+     * the expression uses a key or operator the index cannot answer (the
+     * caller should then evaluate the filter per chunk).
+     */
+    BitSet match(Filter.Expression expression) {
+        lock.readLock().lock();
+        try {
+            return evaluate(expression);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet evaluate(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return evaluate(group.content());
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            return null;
+        }
+        return switch (expression.type()) {
+            case AND, OR -> {
+                BitSet left = evaluate(expression.left());
+                BitSet right = left == null ? null : evaluate(expression.right());
+                if (right == null) {
+                    yield null;
+                }
+                if (expression.type() == Filter.ExpressionType.AND) {
+                    left.and(right);
+                } else {
+                    left.or(right);
+                }
+                yield left;
+            }
+            case NOT -> complement(evaluate(expression.left()));
+            case EQ -> lookup(expression, false);
+            case IN -> lookup(expression, true);
+            case NE -> complement(lookup(expression, false));
+            case NIN -> complement(lookup(expression, true));
+            default -> null;
+        };
+    }
+
+    private BitSet lookup(Filter.Expression expression, boolean list) {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+            return null;
+        }
+        Map<String, BitSet> values = postings.get(unquote(key.key()));
+        if (values == null) {
+            return null;
+        }
+        List<?> wanted = list && value.value() instanceof List<?> items ? items : List.of(value.value());
+        BitSet result = new BitSet();
+        for (Object item : wanted) {
+            BitSet bits = values.get(String.valueOf(item));
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    private BitSet complement(BitSet bits) {
+        if (bits == null) {
+            return null;
+        }
+        BitSet result = (BitSet) live.clone();
+        result.andNot(bits);
+        return result;
+    }
+
+    private static String unquote(String key) {
+        if (key.length() > 1 && (key.startsWith("'") && key.endsWith("'")
+                || key.startsWith("\"") && key.endsWith("\""))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+}
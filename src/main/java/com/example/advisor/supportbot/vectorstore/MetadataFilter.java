@@ -0,0 +1,116 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates Spring AI filter expressions against chunk metadata.
+ *
+ * Uses the same SpEL translation as {@link org.springframework.ai.vectorstore.SimpleVectorStore},
+ * so a filter behaves identically whichever store backs the knowledge base.
+ * The expression is parsed once per search, not once per chunk. Equality
+ * and membership tests on string values (the common category filter) are
+ * evaluated directly, without SpEL, because building an evaluation context
+ * per chunk dominated filtered scans.
+ */
+final class MetadataFilter {
+
+    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    private static final FilterExpressionConverter CONVERTER = new SimpleVectorStoreFilterExpressionConverter();
+
+    private MetadataFilter() {
+    }
+
+    /**
+     * Returns a predicate for the request's filter, or one that accepts
+     * everything when the request has no filter.
+     */
+    static Predicate<Map<String, Object>> forRequest(SearchRequest request) {
+        return request.hasFilterExpression() ? compile(request.getFilterExpression()) : metadata -> true;
+    }
+
+    /**
+     * Compiles a filter expression into a metadata predicate.
+     */
+    static Predicate<Map<String, Object>> compile(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> direct = compileDirect(filterExpression);
+        if (direct != null) {
+            return direct;
+        }
+        Expression expression = PARSER.parseExpression(CONVERTER.convertExpression(filterExpression));
+        return metadata -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", metadata);
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    /**
+     * Builds a predicate for EQ/NE/IN/NIN on string values combined with
+     * AND/OR/NOT, or returns {@code null} if the expression uses anything
+     * else.
+     */
+    private static Predicate<Map<String, Object>> compileDirect(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return compileDirect(group.content());
+        }
+        if (!(operand instanceof Filter.Expression expression)) {
+            return null;
+        }
+        return switch (expression.type()) {
+            case AND, OR -> {
+                Predicate<Map<String, Object>> left = compileDirect(expression.left());
+                Predicate<Map<String, Object>> right = left == null ? null : compileDirect(expression.right());
+                if (right == null) {
+                    yield null;
+                }
+                yield expression.type() == Filter.ExpressionType.AND ? left.and(right) : left.or(right);
+            }
+            case NOT -> {
+                Predicate<Map<String, Object>> inner = compileDirect(expression.left());
+                yield inner == null ? null : inner.negate();
+            }
+            case EQ, IN -> membership(expression);
+            case NE, NIN -> {
+                Predicate<Map<String, Object>> inner = membership(expression);
+                yield inner == null ? null : inner.negate();
+            }
+            default -> null;
+        };
+    }
+
+    private static Predicate<Map<String, Object>> membership(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+            return null;
+        }
+        List<?> wanted = value.value() instanceof List<?> items ? items : List.of(value.value());
+        if (wanted.isEmpty() || !wanted.stream().allMatch(String.class::isInstance)) {
+            return null;
+        }
+        String name = unquote(key.key());
+        Set<?> values = Set.copyOf(wanted);
+        return metadata -> {
+            Object actual = metadata.get(name);
+            return actual instanceof String && values.contains(actual);
+        };
+    }
+
+    private static String unquote(String key) {
+        if (key.length() > 1 && (key.startsWith("'") && key.endsWith("'")
+                || key.startsWith("\"") && key.endsWith("\""))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the JDK Vector API ({@code jdk.incubator.vector}).
+ *
+ * Uses the widest float vector the CPU supports (e.g. 8 lanes with AVX2, 16
+ * with AVX-512). The float loop keeps four independent accumulators so
+ * consecutive multiply-adds do not wait on each other. The int8 loop widens
+ * each group of codes to floats in registers. The remainder that does not
+ * fill a vector is handled by a scalar tail.
+ *
+ * Only loaded by {@link VectorMath} when the module is present, so the rest
+ * of the code never links against the incubator API.
+ */
+final class PanamaSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    // Bytes per float lane group; needs at least a 64-bit byte vector
+    private static final VectorSpecies<Byte> BYTES = FLOATS.vectorBitSize() >= 256
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.vectorBitSize() / Float.BYTES))
+            : null;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int lanes = FLOATS.length();
+        int i = 0;
+        FloatVector acc0 = FloatVector.zero(FLOATS);
+        FloatVector acc1 = FloatVector.zero(FLOATS);
+        FloatVector acc2 = FloatVector.zero(FLOATS);
+        FloatVector acc3 = FloatVector.zero(FLOATS);
+        int unrolledBound = a.length - 4 * lanes;
+        for (; i <= unrolledBound; i += 4 * lanes) {
+            acc0 = FloatVector.fromArray(FLOATS, a, i).mul(FloatVector.fromArray(FLOATS, b, i)).add(acc0);
+            acc1 = FloatVector.fromArray(FLOATS, a, i + lanes)
+                    .mul(FloatVector.fromArray(FLOATS, b, i + lanes)).add(acc1);
+            acc2 = FloatVector.fromArray(FLOATS, a, i + 2 * lanes)
+                    .mul(FloatVector.fromArray(FLOATS, b, i + 2 * lanes)).add(acc2);
+            acc3 = FloatVector.fromArray(FLOATS, a, i + 3 * lanes)
+                    .mul(FloatVector.fromArray(FLOATS, b, i + 3 * lanes)).add(acc3);
+        }
+        int bound = FLOATS.loopBound(a.length);
+        for (; i < bound; i += lanes) {
+            acc0 = FloatVector.fromArray(FLOATS, a, i).mul(FloatVector.fromArray(FLOATS, b, i)).add(acc0);
+        }
+        float sum = acc0.add(acc1).add(acc2.add(acc3)).reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, byte[] codes) {
+        int i = 0;
+        float sum = 0f;
+        if (BYTES != null) {
+            int lanes = FLOATS.length();
+            FloatVector acc = FloatVector.zero(FLOATS);
+            int bound = codes.length - lanes;
+            for (; i <= bound; i += lanes) {
+                FloatVector widened = (FloatVector) ByteVector.fromArray(BYTES, codes, i)
+                        .convertShape(VectorOperators.B2F, FLOATS, 0);
+                acc = FloatVector.fromArray(FLOATS, a, i).mul(widened).add(acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < codes.length; i++) {
+            sum += a[i] * codes[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + FLOATS.vectorBitSize() + "bit";
+    }
+}
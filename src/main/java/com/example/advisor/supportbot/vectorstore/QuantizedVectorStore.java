@@ -0,0 +1,535 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.observation.conventions.VectorStoreProvider;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * VectorStore that keeps chunk embeddings and text off the Java heap.
+ *
+ * {@link org.springframework.ai.vectorstore.SimpleVectorStore} holds a
+ * float[] per chunk plus its Document on the heap. This store writes three
+ * memory-mapped files instead:
+ * - {@code vectors.i8}: each unit vector scalar-quantized to one signed byte
+ * per dimension plus a float scale (about 4x smaller than float32). Every
+ * query scans this file.
+ * - {@code vectors.f32}: the full-precision unit vectors, read only to rescore
+ * the best {@code topK x rescoreFactor} candidates of the int8 scan.
+ * - {@code chunks.dat}: id, text and JSON metadata of each chunk, read only for
+ * the final results (and for filters on keys that are not indexed).
+ *
+ * Filters on indexed metadata keys are answered from a
+ * {@link MetadataBitmapIndex}, so the int8 scan only visits matching chunks.
+ *
+ * Per chunk the heap keeps only its file offset, its id and a deleted bit.
+ * The files are rebuilt from scratch on every start, like the in-memory
+ * stores; the embedding snapshot keeps that cheap.
+ *
+ * Deleting or replacing a chunk only sets its deleted bit. Once more than
+ * {@code maxDeletedRatio} of the records are deleted, the live records are
+ * moved down over the dead ones in all three files and renumbered, and later
+ * appends reuse the freed space, so the files do not grow under updates.
+ *
+ * Concurrency: writers take an exclusive lock, searches a shared one.
+ */
+public class QuantizedVectorStore extends AbstractObservationVectorStore
+        implements EmbeddedQuerySearch, AutoCloseable {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final Path directory;
+    private final int rescoreFactor;
+    private final double maxDeletedRatio;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MetadataBitmapIndex metadataIndex;
+
+    private final MappedSegments quantizedVectors;
+    private final MappedSegments fullVectors;
+    private final MappedSegments chunks;
+
+    // guarded by lock
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] chunkPositions = new long[1024];
+    private int count;
+    private int dimensions = -1;
+
+    protected QuantizedVectorStore(Builder builder) {
+        super(builder);
+        this.directory = builder.directory;
+        this.rescoreFactor = builder.rescoreFactor;
+        this.maxDeletedRatio = builder.maxDeletedRatio;
+        this.metadataIndex = new MetadataBitmapIndex(builder.indexedMetadataKeys);
+        this.quantizedVectors = MappedSegments.create(directory.resolve("vectors.i8"), SEGMENT_SIZE);
+        this.fullVectors = MappedSegments.create(directory.resolve("vectors.f32"), SEGMENT_SIZE);
+        this.chunks = MappedSegments.create(directory.resolve("chunks.dat"), SEGMENT_SIZE);
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel, Path directory) {
+        return new Builder(embeddingModel, directory);
+    }
+
+    /**
+     * Number of live (non-deleted) documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of records in the files, live and deleted.
+     */
+    int recordCount() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes mapped for the three store files, i.e. what the knowledge base
+     * occupies outside the heap.
+     */
+    public long mappedBytes() {
+        return quantizedVectors.mappedBytes() + fullVectors.mappedBytes() + chunks.mappedBytes();
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptions.builder().build(),
+                this.batchingStrategy);
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            add(document.getId(), document.getText(), document.getMetadata(), embeddings.get(i));
+        }
+    }
+
+    /**
+     * Appends a document whose embedding has already been computed.
+     * Re-adding an id replaces the previous version.
+     */
+    public void add(String id, String text, Map<String, Object> metadata, float[] embedding) {
+        byte[] chunk = encodeChunk(id, text, metadata);
+        float[] unit = VectorMath.normalize(embedding);
+
+        lock.writeLock().lock();
+        try {
+            if (dimensions < 0) {
+                dimensions = embedding.length;
+            } else if (embedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got "
+                        + embedding.length);
+            }
+
+            int ordinal = count;
+            quantizedVectors.append(quantize(unit));
+            fullVectors.append(toBytes(unit));
+            if (ordinal == chunkPositions.length) {
+                chunkPositions = Arrays.copyOf(chunkPositions, ordinal * 2);
+            }
+            chunkPositions[ordinal] = chunks.append(chunk);
+            metadataIndex.add(ordinal, metadata);
+            count++;
+
+            Integer previous = ordinalsById.put(id, ordinal);
+            if (previous != null) {
+                deleted.set(previous);
+                metadataIndex.remove(previous);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                Integer ordinal = ordinalsById.remove(id);
+                if (ordinal != null) {
+                    deleted.set(ordinal);
+                    metadataIndex.remove(ordinal);
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilter.compile(filterExpression);
+        List<String> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                if (!deleted.get(ordinal)) {
+                    Chunk chunk = readChunk(ordinal);
+                    if (filter.test(chunk.metadata)) {
+                        matches.add(chunk.id);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        doDelete(matches);
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        return similaritySearch(request, embedQuery(request.getQuery()));
+    }
+
+    @Override
+    public float[] embedQuery(String query) {
+        return this.embeddingModel.embed(query);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request, float[] queryEmbedding) {
+        float[] query = VectorMath.normalize(queryEmbedding);
+        BitSet allowed = null;
+        Predicate<Map<String, Object>> filter = null;
+        if (request.hasFilterExpression()) {
+            allowed = metadataIndex.match(request.getFilterExpression());
+            if (allowed == null) {
+                filter = MetadataFilter.compile(request.getFilterExpression());
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            if (count == 0) {
+                return List.of();
+            }
+
+            // Pass 1: approximate scores from the int8 vectors
+            int candidateCount = request.getTopK() * rescoreFactor;
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(Candidate.WORST_FIRST);
+            byte[] codes = new byte[dimensions];
+            int ordinal = allowed != null ? allowed.nextSetBit(0) : 0;
+            while (ordinal >= 0 && ordinal < count) {
+                if (!deleted.get(ordinal) && (filter == null || filter.test(readChunk(ordinal).metadata))) {
+                    float score = approximateDot(query, ordinal, codes);
+                    if (candidates.size() < candidateCount) {
+                        candidates.add(new Candidate(ordinal, score));
+                    } else if (score > candidates.peek().similarity) {
+                        candidates.poll();
+                        candidates.add(new Candidate(ordinal, score));
+                    }
+                }
+                ordinal = allowed != null ? allowed.nextSetBit(ordinal + 1) : ordinal + 1;
+            }
+
+            // Pass 2: rescore the shortlist at full precision
+            List<Candidate> rescored = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates) {
+                rescored.add(new Candidate(candidate.ordinal, exactDot(query, candidate.ordinal)));
+            }
+            rescored.sort(Candidate.BEST_FIRST);
+
+            List<Document> documents = new ArrayList<>(request.getTopK());
+            for (Candidate candidate : rescored) {
+                if (documents.size() == request.getTopK()) {
+                    break;
+                }
+                if (candidate.similarity >= request.getSimilarityThreshold()) {
+                    documents.add(readChunk(candidate.ordinal).toDocument(candidate.similarity));
+                }
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder(VectorStoreProvider.SIMPLE.value(), operationName)
+                .collectionName(directory.getFileName().toString())
+                .dimensions(dimensions > 0 ? dimensions : null)
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    @Override
+    public void close() {
+        quantizedVectors.close();
+        fullVectors.close();
+        chunks.close();
+    }
+
+    // ------------------------------------------------------------------
+    // Compaction
+    // ------------------------------------------------------------------
+
+    /**
+     * Moves the live records over the deleted ones once more than
+     * {@code maxDeletedRatio} of them are deleted. Called under the write
+     * lock.
+     */
+    private void compactIfSparse() {
+        int dead = deleted.cardinality();
+        if (dead == 0 || dead <= maxDeletedRatio * count) {
+            return;
+        }
+        int quantizedSize = Float.BYTES + dimensions;
+        int fullSize = dimensions * Float.BYTES;
+        quantizedVectors.rewind();
+        fullVectors.rewind();
+        chunks.rewind();
+        metadataIndex.clear();
+
+        int live = 0;
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            if (deleted.get(ordinal)) {
+                continue;
+            }
+            // Each record is read before anything is written over it
+            quantizedVectors.append(quantizedVectors.read(recordPosition(ordinal, quantizedSize), quantizedSize));
+            fullVectors.append(fullVectors.read(recordPosition(ordinal, fullSize), fullSize));
+            Chunk chunk = readChunk(ordinal);
+            chunkPositions[live] = chunks.append(chunks.read(chunkPositions[ordinal], chunkSize(ordinal)));
+            ordinalsById.put(chunk.id, live);
+            metadataIndex.add(live, chunk.metadata);
+            live++;
+        }
+        count = live;
+        deleted.clear();
+    }
+
+    // ------------------------------------------------------------------
+    // Quantization
+    // ------------------------------------------------------------------
+
+    /**
+     * Symmetric scalar quantization: the largest component maps to +/-127.
+     * Record layout: float scale, then one byte per dimension.
+     */
+    static byte[] quantize(float[] unit) {
+        float maxAbs = 0f;
+        for (float value : unit) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs == 0f ? 0f : maxAbs / 127f;
+        ByteBuffer record = ByteBuffer.allocate(Float.BYTES + unit.length);
+        record.putFloat(scale);
+        for (float value : unit) {
+            record.put(scale == 0f ? 0 : (byte) Math.round(value / scale));
+        }
+        return record.array();
+    }
+
+    /**
+     * Dot product of a float query with an int8 vector. The query is kept at
+     * full precision, which is more accurate than quantizing both sides.
+     */
+    private float approximateDot(float[] query, int ordinal, byte[] codes) {
+        long position = recordPosition(ordinal, Float.BYTES + dimensions);
+        MappedByteBuffer segment = quantizedVectors.segment(position);
+        int offset = quantizedVectors.offsetOf(position);
+        float scale = segment.getFloat(offset);
+        segment.get(offset + Float.BYTES, codes);
+        return VectorMath.dot(query, codes) * scale;
+    }
+
+    private float exactDot(float[] query, int ordinal) {
+        long position = recordPosition(ordinal, dimensions * Float.BYTES);
+        MappedByteBuffer segment = fullVectors.segment(position);
+        int offset = fullVectors.offsetOf(position);
+        float[] vector = new float[dimensions];
+        segment.slice(offset, dimensions * Float.BYTES).asFloatBuffer().get(vector);
+        return VectorMath.dot(query, vector);
+    }
+
+    /**
+     * Position at which {@link MappedSegments#append} placed the given
+     * fixed-size record, accounting for the unused tail of each segment.
+     */
+    private static long recordPosition(int ordinal, int recordSize) {
+        long recordsPerSegment = SEGMENT_SIZE / recordSize;
+        return (ordinal / recordsPerSegment) * SEGMENT_SIZE + (ordinal % recordsPerSegment) * recordSize;
+    }
+
+    private static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+        return buffer.array();
+    }
+
+    // ------------------------------------------------------------------
+    // Chunk side file
+    // ------------------------------------------------------------------
+
+    private static byte[] encodeChunk(String id, String text, Map<String, Object> metadata) {
+        try {
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+            byte[] metadataBytes = OBJECT_MAPPER.writeValueAsBytes(metadata);
+            return ByteBuffer.allocate(3 * Integer.BYTES + idBytes.length + textBytes.length + metadataBytes.length)
+                    .putInt(idBytes.length).put(idBytes)
+                    .putInt(textBytes.length).put(textBytes)
+                    .putInt(metadataBytes.length).put(metadataBytes)
+                    .array();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata of chunk " + id + " is not serializable", e);
+        }
+    }
+
+    /**
+     * Length of the encoded chunk record.
+     */
+    private int chunkSize(int ordinal) {
+        long position = chunkPositions[ordinal];
+        MappedByteBuffer segment = chunks.segment(position);
+        int offset = chunks.offsetOf(position);
+        int size = 0;
+        for (int field = 0; field < 3; field++) {
+            int length = segment.getInt(offset + size);
+            size += Integer.BYTES + length;
+        }
+        return size;
+    }
+
+    private Chunk readChunk(int ordinal) {
+        long position = chunkPositions[ordinal];
+        MappedByteBuffer segment = chunks.segment(position);
+        int offset = chunks.offsetOf(position);
+
+        int idLength = segment.getInt(offset);
+        byte[] id = new byte[idLength];
+        segment.get(offset + Integer.BYTES, id);
+        offset += Integer.BYTES + idLength;
+
+        int textLength = segment.getInt(offset);
+        byte[] text = new byte[textLength];
+        segment.get(offset + Integer.BYTES, text);
+        offset += Integer.BYTES + textLength;
+
+        int metadataLength = segment.getInt(offset);
+        byte[] metadata = new byte[metadataLength];
+        segment.get(offset + Integer.BYTES, metadata);
+        try {
+            return new Chunk(new String(id, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8),
+                    OBJECT_MAPPER.readValue(metadata, METADATA_TYPE));
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt chunk record " + ordinal, e);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Internal types
+    // ------------------------------------------------------------------
+
+    private record Chunk(String id, String text, Map<String, Object> metadata) {
+
+        Document toDocument(float similarity) {
+            Map<String, Object> documentMetadata = new HashMap<>(metadata);
+            documentMetadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - similarity);
+            return Document.builder()
+                    .id(id)
+                    .text(text)
+                    .metadata(documentMetadata)
+                    .score((double) similarity)
+                    .build();
+        }
+    }
+
+    private record Candidate(int ordinal, float similarity) {
+
+        static final Comparator<Candidate> BEST_FIRST = Comparator.comparingDouble(Candidate::similarity).reversed();
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::similarity);
+    }
+
+    /**
+     * Builder following the same pattern as {@code SimpleVectorStore.builder(...)}.
+     */
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private final Path directory;
+        private int rescoreFactor = 4;
+        private double maxDeletedRatio = 0.25;
+        private List<String> indexedMetadataKeys = MetadataBitmapIndex.DEFAULT_KEYS;
+
+        private Builder(EmbeddingModel embeddingModel, Path directory) {
+            super(embeddingModel);
+            this.directory = directory;
+        }
+
+        /**
+         * How many int8 candidates per requested result are rescored at full
+         * precision. Higher means better recall and a little more I/O.
+         */
+        public Builder rescoreFactor(int rescoreFactor) {
+            this.rescoreFactor = Math.max(1, rescoreFactor);
+            return this;
+        }
+
+        /**
+         * Share of deleted records above which the files are compacted.
+         */
+        public Builder maxDeletedRatio(double maxDeletedRatio) {
+            if (maxDeletedRatio <= 0 || maxDeletedRatio >= 1) {
+                throw new IllegalArgumentException("maxDeletedRatio must be in (0, 1)");
+            }
+            this.maxDeletedRatio = maxDeletedRatio;
+            return this;
+        }
+
+        /**
+         * Metadata keys with a bitmap index for filtered searches.
+         */
+        public Builder indexedMetadataKeys(List<String> indexedMetadataKeys) {
+            this.indexedMetadataKeys = List.copyOf(indexedMetadataKeys);
+            return this;
+        }
+
+        @Override
+        public QuantizedVectorStore build() {
+            return new QuantizedVectorStore(this);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.advisor.supportbot.vectorstore;
+
+/**
+ * Plain Java loops. Used when the Vector API is not available.
+ */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, byte[] codes) {
+        float sum = 0f;
+        for (int i = 0; i < codes.length; i++) {
+            sum += a[i] * codes[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
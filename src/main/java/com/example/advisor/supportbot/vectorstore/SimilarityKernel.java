@@ -0,0 +1,19 @@
+package com.example.advisor.supportbot.vectorstore;
+
+/**
+ * Dot product implementation used by {@link VectorMath}.
+ */
+interface SimilarityKernel {
+
+    /**
+     * Dot product of two float vectors of the same length.
+     */
+    float dot(float[] a, float[] b);
+
+    /**
+     * Dot product of a float vector with int8 codes of the same length.
+     */
+    float dot(float[] a, byte[] codes);
+
+    String name();
+}
@@ -0,0 +1,87 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Similarity math for the knowledge base vector stores.
+ *
+ * Stores keep their vectors unit-length (see {@link #normalize}), so cosine
+ * similarity is just a dot product and no norms are computed at query time.
+ * The dot product runs on a SIMD kernel built on the JDK Vector API when the
+ * {@code jdk.incubator.vector} module is available (start the JVM with
+ * {@code --add-modules jdk.incubator.vector}), and on a scalar loop
+ * otherwise. {@code -Dsupportbot.vector-math.simd=false} forces the scalar
+ * loop.
+ */
+public final class VectorMath {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorMath.class);
+
+    private static final SimilarityKernel KERNEL = selectKernel();
+
+    private VectorMath() {
+    }
+
+    /**
+     * Dot product. For unit vectors this is their cosine similarity.
+     */
+    public static float dot(float[] a, float[] b) {
+        return KERNEL.dot(a, b);
+    }
+
+    /**
+     * Dot product of a float vector with int8 codes, before scaling.
+     */
+    public static float dot(float[] a, byte[] codes) {
+        return KERNEL.dot(a, codes);
+    }
+
+    /**
+     * Returns a unit-length copy of the vector (all zeros stays all zeros).
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    /**
+     * Name of the active kernel, e.g. {@code simd-256bit} or {@code scalar}.
+     */
+    public static String kernelName() {
+        return KERNEL.name();
+    }
+
+    static SimilarityKernel selectKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("supportbot.vector-math.simd", "true"))) {
+            return new ScalarSimilarityKernel();
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not available, using the scalar similarity kernel "
+                    + "(start the JVM with --add-modules jdk.incubator.vector to enable SIMD)");
+            return new ScalarSimilarityKernel();
+        }
+        try {
+            SimilarityKernel kernel = (SimilarityKernel) Class
+                    .forName(VectorMath.class.getPackageName() + ".PanamaSimilarityKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            log.info("Using the {} similarity kernel", kernel.name());
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("SIMD similarity kernel unavailable, using the scalar kernel: {}", e.toString());
+            return new ScalarSimilarityKernel();
+        }
+    }
+}
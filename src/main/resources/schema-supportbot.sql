@@ -45,6 +45,14 @@ CREATE TABLE IF NOT EXISTS articles (
     is_published BOOLEAN DEFAULT TRUE
 );
 
+-- Article Outbox (article changes waiting to be synced into the vector store)
+CREATE TABLE IF NOT EXISTS article_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    article_id BIGINT NOT NULL,
+    change_type VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Conversation Sessions Table
 CREATE TABLE IF NOT EXISTS conversation_sessions (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
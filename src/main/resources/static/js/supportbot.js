@@ -191,19 +191,54 @@ async function sendMessage() {
 
         const eventSource = new EventSource(`/support/stream?${params.toString()}`);
 
-        eventSource.onmessage = (event) => {
-            // Hide typing indicator on first token
+        // Event ids are "<stream id>:<sequence>". After a drop the browser
+        // reconnects with Last-Event-ID and the server resumes the stream; a
+        // new stream id means it could not, and the answer starts over.
+        let streamId = null;
+        let reconnects = 0;
+
+        const finish = () => {
+            eventSource.close();
+            sendBtn.disabled = false;
             showTyping(false);
 
-            try {
-                const data = JSON.parse(event.data);
+            // Refresh tickets just in case (optional, we lose the 'ticketCreated' flag from JSON response)
+            // We could blindly refresh or poll.
+            loadTickets();
+        };
 
-                // Handle Sentiment Event
-                if (data.sentiment) {
-                    updateSentiment(data.sentiment);
-                }
+        const trackStream = (event) => {
+            reconnects = 0;
+            const id = event.lastEventId ? event.lastEventId.split(':')[0] : null;
+            if (id && streamId && id !== streamId) {
+                fullText = '';
+            }
+            streamId = id || streamId;
+        };
+
+        // Status event ("retrieving"): keep the typing indicator up
+        eventSource.addEventListener('status', (event) => {
+            trackStream(event);
+            showTyping(true);
+        });
 
-                const token = data.content || data.text || "";
+        // Sentiment event: plain text, e.g. "NEUTRAL"
+        eventSource.addEventListener('sentiment', (event) => {
+            trackStream(event);
+            updateSentiment(event.data);
+        });
+
+        // Done event: the answer is complete
+        eventSource.addEventListener('done', finish);
+
+        // Content frames: a JSON string of one or more tokens
+        eventSource.onmessage = (event) => {
+            try {
+                trackStream(event);
+                const token = JSON.parse(event.data);
+
+                // Hide typing indicator on first frame
+                showTyping(false);
 
                 fullText += token; // JSON preserves whitespace!
                 contentDiv.innerHTML = marked.parse(fullText);
@@ -216,14 +251,11 @@ async function sendMessage() {
         };
 
         eventSource.onerror = (error) => {
-            // Stream ended or error
-            eventSource.close();
-            sendBtn.disabled = false;
-            showTyping(false);
-
-            // Refresh tickets just in case (optional, we lose the 'ticketCreated' flag from JSON response)
-            // We could blindly refresh or poll.
-            loadTickets();
+            // Connection dropped: the browser reconnects on its own, a few times
+            if (eventSource.readyState === EventSource.CONNECTING && ++reconnects <= 3) {
+                return;
+            }
+            finish();
         };
 
     } catch (error) {
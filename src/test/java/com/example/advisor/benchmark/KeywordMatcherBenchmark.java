@@ -0,0 +1,109 @@
+package com.example.advisor.benchmark;
+
+import com.example.advisor.supportbot.keyword.KeywordMatcher;
+import com.example.advisor.supportbot.keyword.KeywordMatches;
+import com.example.advisor.supportbot.keyword.KeywordTag;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword checks for one chat message:
+ * - {@code perAdvisorScans}: what the safety, sentiment and escalation
+ * advisors and {@code categorizeQuery} used to do, each lowercasing the
+ * message and running {@code String.contains} per keyword;
+ * - {@code singlePass}: one {@link KeywordMatcher} pass yielding all tags.
+ *
+ * {@code message}: a short question with no keywords (worst case for the
+ * scans, which cannot stop early), a typical angry escalation, and a long
+ * pasted error log.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeywordMatcherBenchmark {
+
+    @Param({ "short", "escalation", "log" })
+    String message;
+
+    private final KeywordMatcher matcher = SupportLexicon.defaultMatcher();
+
+    // The word lists as the advisors held them
+    private final List<String> blockedWords = matcher.keywords(KeywordTag.BLOCKED);
+    private final List<String> abusivePhrases = matcher.keywords(KeywordTag.ABUSIVE);
+    private final List<String> angryWords = matcher.keywords(KeywordTag.ANGRY);
+    private final List<String> frustratedWords = matcher.keywords(KeywordTag.FRUSTRATED);
+    private final List<String> positiveWords = matcher.keywords(KeywordTag.POSITIVE);
+    private final List<String> escalationPhrases = matcher.keywords(KeywordTag.ESCALATION);
+    private final List<String> billingKeywords = matcher.keywords(KeywordTag.BILLING);
+    private final List<String> troubleshootingKeywords = matcher.keywords(KeywordTag.TROUBLESHOOTING);
+    private final List<String> faqKeywords = matcher.keywords(KeywordTag.FAQ);
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = switch (message) {
+            case "short" -> "Can tasks be assigned to more than one person?";
+            case "escalation" -> "This is the worst service ever, I am fed up. The export keeps failing "
+                    + "with an error and I want a refund. Let me speak to your manager now.";
+            case "log" -> "Sync stopped after the upgrade. Log:\n"
+                    + "INFO  sync worker started for workspace 4711 region eu-west\n".repeat(40);
+            default -> throw new IllegalArgumentException(message);
+        };
+    }
+
+    @Benchmark
+    public void perAdvisorScans(Blackhole blackhole) {
+        // SupportSafetyAdvisor
+        String lower = text.toLowerCase();
+        blackhole.consume(containsAny(lower, abusivePhrases)
+                || containsAny(lower, blockedWords));
+        // SentimentAnalysisAdvisor
+        lower = text.toLowerCase();
+        blackhole.consume(containsAny(lower, angryWords)
+                || containsAny(lower, frustratedWords)
+                || containsAny(lower, positiveWords));
+        // TicketEscalationAdvisor
+        String lowerMessage = text.toLowerCase();
+        blackhole.consume(escalationPhrases.stream()
+                .filter(phrase -> lowerMessage.contains(phrase.toLowerCase()))
+                .findFirst());
+        // KnowledgeBaseService.categorizeQuery
+        lower = text.toLowerCase();
+        blackhole.consume(containsAny(lower, billingKeywords)
+                || containsAny(lower, troubleshootingKeywords)
+                || containsAny(lower, faqKeywords));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        KeywordMatches matches = matcher.match(text);
+        blackhole.consume(matches.has(KeywordTag.ABUSIVE) || matches.has(KeywordTag.BLOCKED));
+        blackhole.consume(matches.has(KeywordTag.ANGRY) || matches.has(KeywordTag.FRUSTRATED)
+                || matches.has(KeywordTag.POSITIVE));
+        blackhole.consume(matches.first(KeywordTag.ESCALATION));
+        blackhole.consume(matches.has(KeywordTag.BILLING) || matches.has(KeywordTag.TROUBLESHOOTING)
+                || matches.has(KeywordTag.FAQ));
+    }
+
+    private static boolean containsAny(String text, List<String> words) {
+        return words.stream().anyMatch(word -> text.contains(word.toLowerCase()));
+    }
+}
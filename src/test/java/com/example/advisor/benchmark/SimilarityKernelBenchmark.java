@@ -0,0 +1,75 @@
+package com.example.advisor.benchmark;
+
+import com.example.advisor.supportbot.vectorstore.VectorMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one query-vs-chunk similarity at common embedding sizes
+ * (384: MiniLM, 768: BERT base, 1536: text-embedding-3-small):
+ * - {@code springCosine}: Spring AI's scalar cosine, which also computes
+ * both norms (what {@link SimpleVectorStore} does per chunk);
+ * - {@code scalarDot}: a plain loop over pre-normalized vectors;
+ * - {@code simdDot}: {@link VectorMath#dot} on the Vector API kernel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class SimilarityKernelBenchmark {
+
+    @Param({ "384", "768", "1536" })
+    int dimensions;
+
+    float[] query;
+    float[] chunk;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        query = VectorMath.normalize(randomVector(random, dimensions));
+        chunk = VectorMath.normalize(randomVector(random, dimensions));
+    }
+
+    @Benchmark
+    public double springCosine() {
+        return SimpleVectorStore.EmbeddingMath.cosineSimilarity(query, chunk);
+    }
+
+    @Benchmark
+    public float scalarDot() {
+        float sum = 0f;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * chunk[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float simdDot() {
+        return VectorMath.dot(query, chunk);
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
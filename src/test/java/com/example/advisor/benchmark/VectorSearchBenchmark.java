@@ -0,0 +1,212 @@
+package com.example.advisor.benchmark;
+
+import com.example.advisor.supportbot.vectorstore.ExactVectorStore;
+import com.example.advisor.supportbot.vectorstore.HnswVectorStore;
+import com.example.advisor.supportbot.vectorstore.QuantizedVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Knowledge base search latency and throughput as the number of chunks grows.
+ *
+ * Chunks get synthetic random embeddings from an in-memory model, so no
+ * network is involved and only the store is measured. Each chunk is tagged
+ * with one of four categories; {@code filtered=true} searches one category,
+ * like {@code KnowledgeBaseService.searchByCategory}.
+ *
+ * Stores ({@code store} param):
+ * - {@code spring}: Spring AI's {@link SimpleVectorStore};
+ * - {@code simple}: {@link ExactVectorStore}, what
+ * {@code supportbot.vector-store.type=simple} uses;
+ * - {@code hnsw} and {@code quantized}: not in the default run because
+ * building them at 1M chunks takes long; select them with
+ * {@code -p store=hnsw,quantized}.
+ *
+ * Run with {@code mvn -P benchmark verify} (see the README). 1M chunks needs
+ * about 3.5 GB of heap for the {@code simple} store.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules=jdk.incubator.vector", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class VectorSearchBenchmark {
+
+    private static final String[] CATEGORIES = { "faq", "billing", "troubleshooting", "general" };
+    private static final int QUERIES = 256;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    int chunks;
+
+    @Param({ "2", "3", "10" })
+    int topK;
+
+    @Param({ "false", "true" })
+    boolean filtered;
+
+    @Param({ "spring", "simple" })
+    String store;
+
+    @Param({ "384" })
+    int dimensions;
+
+    private VectorStore vectorStore;
+    private SearchRequest[] requests;
+    private Path directory;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        SyntheticEmbeddingModel embeddingModel = new SyntheticEmbeddingModel(dimensions);
+        vectorStore = switch (store) {
+            case "spring" -> SimpleVectorStore.builder(embeddingModel).build();
+            case "simple" -> new ExactVectorStore(embeddingModel);
+            case "hnsw" -> HnswVectorStore.builder(embeddingModel).indexedMetadataKeys(List.of("category")).build();
+            case "quantized" -> {
+                directory = Files.createTempDirectory("vector-search-benchmark");
+                yield QuantizedVectorStore.builder(embeddingModel, directory)
+                        .indexedMetadataKeys(List.of("category"))
+                        .build();
+            }
+            default -> throw new IllegalArgumentException("Unknown store: " + store);
+        };
+
+        // Metadata maps are shared per category to keep the heap down at 1M chunks
+        List<Map<String, Object>> metadata = new ArrayList<>();
+        for (String category : CATEGORIES) {
+            metadata.add(Map.of("category", category));
+        }
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            batch.add(new Document(Integer.toString(i), "chunk " + i, metadata.get(i % CATEGORIES.length)));
+            if (batch.size() == 10_000 || i == chunks - 1) {
+                vectorStore.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        requests = new SearchRequest[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            SearchRequest.Builder request = SearchRequest.builder().query("query " + q).topK(topK);
+            if (filtered) {
+                request.filterExpression(new FilterExpressionBuilder().eq("category", "billing").build());
+            }
+            requests[q] = request.build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (vectorStore instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+        if (directory != null) {
+            try (var files = Files.walk(directory)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        SearchRequest request = requests[next];
+        next = (next + 1) % QUERIES;
+        return vectorStore.similaritySearch(request);
+    }
+
+    /**
+     * Deterministic random vectors. Chunk texts are "chunk N" and query texts
+     * "query N"; the text seeds the generator, so chunk vectors are only
+     * held by the store. Query vectors are cached so that generating them
+     * is not part of the measured search.
+     */
+    static class SyntheticEmbeddingModel implements EmbeddingModel {
+
+        private final int dimensions;
+        private final Map<String, float[]> queries = new ConcurrentHashMap<>();
+
+        SyntheticEmbeddingModel(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(String text) {
+            return text.startsWith("query") ? queries.computeIfAbsent(text, this::generate) : generate(text);
+        }
+
+        private float[] generate(String text) {
+            Random random = new Random(text.hashCode());
+            float[] vector = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            return vector;
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public List<float[]> embed(List<Document> documents, EmbeddingOptions options,
+                BatchingStrategy batchingStrategy) {
+            return documents.stream().map(this::embed).toList();
+        }
+
+        @Override
+        public int dimensions() {
+            return dimensions;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.advisor.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for CachingEmbeddingModel.
+ * Verifies that repeat queries are served from the cache and that hits and
+ * misses are recorded.
+ */
+public class CachingEmbeddingModelTest {
+
+    @Test
+    public void testRepeatQueriesSkipTheRemoteModel() {
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        when(remote.embed(anyString())).thenReturn(new float[] { 0.1f, 0.2f });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(remote, 100, Duration.ofMinutes(5))
+                .bindTo(registry);
+
+        model.embed("How do I reset my password?");
+        model.embed("  how do I   reset my password ");
+        model.embed("HOW DO I RESET MY PASSWORD!!");
+        model.embed("How do I export to CSV?");
+
+        verify(remote, times(2)).embed(anyString());
+        Assertions.assertEquals(2, model.size());
+        Assertions.assertEquals(2.0, registry.get("cache.gets")
+                .tag("cache", CachingEmbeddingModel.CACHE_NAME).tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(2.0, registry.get("cache.gets")
+                .tag("cache", CachingEmbeddingModel.CACHE_NAME).tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneRemoteCall() throws Exception {
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(remote.embed(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return new float[] { 0.1f, 0.2f };
+        });
+        CachingEmbeddingModel model = new CachingEmbeddingModel(remote, 100, Duration.ofMinutes(5));
+
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(Thread.ofVirtual().start(() -> model.embed("How do I reset my password?")));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        verify(remote, times(1)).embed(anyString());
+    }
+
+    @Test
+    public void testFailedEmbeddingIsNotCached() {
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        when(remote.embed(anyString())).thenThrow(new IllegalStateException("Connection refused"))
+                .thenReturn(new float[] { 0.1f, 0.2f });
+        CachingEmbeddingModel model = new CachingEmbeddingModel(remote, 100, Duration.ofMinutes(5));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> model.embed("reset password"));
+        Assertions.assertArrayEquals(new float[] { 0.1f, 0.2f }, model.embed("reset password"));
+    }
+
+    @Test
+    public void testNormalize() {
+        Assertions.assertEquals("reset password", CachingEmbeddingModel.normalize("  Reset\tPassword ?! "));
+        Assertions.assertEquals("what is sso? please", CachingEmbeddingModel.normalize("What is SSO? Please."));
+    }
+}
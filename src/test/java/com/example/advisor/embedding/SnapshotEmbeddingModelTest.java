@@ -0,0 +1,119 @@
+package com.example.advisor.embedding;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for SnapshotEmbeddingModel and EmbeddingSnapshot.
+ * Verifies that unchanged chunks are reused across restarts and that corrupt
+ * or foreign-model snapshots are rebuilt.
+ */
+public class SnapshotEmbeddingModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testUnchangedChunksAreNotReEmbedded() {
+        Path file = tempDir.resolve("kb.snapshot");
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        when(remote.embed(any(Document.class))).thenReturn(new float[] { 1f, 2f, 3f });
+
+        // First boot embeds everything and writes the snapshot
+        SnapshotEmbeddingModel firstBoot = new SnapshotEmbeddingModel(remote,
+                EmbeddingSnapshot.open(file, "model-a"));
+        firstBoot.embed(new Document("How do I reset my password?"));
+        firstBoot.saveSnapshot();
+        verify(remote, times(1)).embed(any(Document.class));
+
+        // Second boot only embeds the new chunk
+        SnapshotEmbeddingModel secondBoot = new SnapshotEmbeddingModel(remote,
+                EmbeddingSnapshot.open(file, "model-a"));
+        float[] reused = secondBoot.embed(new Document("How do I reset my password?"));
+        secondBoot.embed(new Document("How do I export to CSV?"));
+
+        Assertions.assertArrayEquals(new float[] { 1f, 2f, 3f }, reused);
+        Assertions.assertEquals(1, secondBoot.getReusedCount());
+        Assertions.assertEquals(1, secondBoot.getEmbeddedCount());
+        verify(remote, times(2)).embed(any(Document.class));
+    }
+
+    @Test
+    public void testModelChangeDiscardsSnapshot() {
+        Path file = tempDir.resolve("kb.snapshot");
+        EmbeddingSnapshot snapshot = EmbeddingSnapshot.open(file, "model-a");
+        snapshot.put("chunk", new float[] { 0.5f });
+        snapshot.save();
+
+        Assertions.assertEquals(1, EmbeddingSnapshot.open(file, "model-a").size());
+        Assertions.assertEquals(0, EmbeddingSnapshot.open(file, "model-b").size());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        Path file = tempDir.resolve("kb.snapshot");
+        EmbeddingSnapshot snapshot = EmbeddingSnapshot.open(file, "model-a");
+        snapshot.put("chunk", new float[] { 0.5f, 0.25f });
+        snapshot.save();
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(file, bytes);
+
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        SnapshotEmbeddingModel model = new SnapshotEmbeddingModel(remote, EmbeddingSnapshot.open(file, "model-a"));
+
+        Assertions.assertEquals(0, model.getReusedCount());
+        verify(remote, never()).embed(any(Document.class));
+        Assertions.assertNull(EmbeddingSnapshot.open(file, "model-a").get("chunk"));
+    }
+
+    @Test
+    public void testReplacedAndForgottenChunksAreDropped() {
+        Path file = tempDir.resolve("kb.snapshot");
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        when(remote.embed(any(Document.class))).thenReturn(new float[] { 1f, 2f });
+        SnapshotEmbeddingModel model = new SnapshotEmbeddingModel(remote, EmbeddingSnapshot.open(file, "model-a"));
+
+        model.embed(new Document("sso", "Single sign-on v1", Map.of()));
+        model.embed(new Document("export", "CSV export", Map.of()));
+        model.embed(new Document("export-copy", "CSV export", Map.of()));
+        // Same id, new text; then one of the two chunks sharing a text goes away
+        model.embed(new Document("sso", "Single sign-on v2", Map.of()));
+        model.forget(List.of("export"));
+        model.saveSnapshot();
+
+        EmbeddingSnapshot reopened = EmbeddingSnapshot.open(file, "model-a");
+        Assertions.assertEquals(2, reopened.size());
+        Assertions.assertNull(reopened.get(embedText("Single sign-on v1")));
+        Assertions.assertNotNull(reopened.get(embedText("Single sign-on v2")));
+        Assertions.assertNotNull(reopened.get(embedText("CSV export")));
+
+        model.forget(List.of("export-copy"));
+        model.saveSnapshot();
+        Assertions.assertEquals(1, EmbeddingSnapshot.open(file, "model-a").size());
+    }
+
+    /**
+     * The text a document is keyed by in the snapshot.
+     */
+    private static String embedText(String content) {
+        return new Document(content).getFormattedContent(MetadataMode.EMBED);
+    }
+}
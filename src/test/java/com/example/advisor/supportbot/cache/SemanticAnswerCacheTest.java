@@ -0,0 +1,104 @@
+package com.example.advisor.supportbot.cache;
+
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for SemanticAnswerCache.
+ * Uses fixed question embeddings to check the similarity threshold,
+ * invalidation and expiry.
+ */
+public class SemanticAnswerCacheTest {
+
+    private static final Map<String, float[]> QUESTIONS = Map.of(
+            "How do I export to CSV?", new float[] { 1f, 0f, 0f },
+            "Can I download my tasks as CSV", new float[] { 0.98f, 0.2f, 0f },
+            "How do I import from Trello?", new float[] { 0.6f, 0.8f, 0f });
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+    private SemanticAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> QUESTIONS.get(invocation.getArgument(0)));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now;
+            }
+        };
+        cache = new SemanticAnswerCache(embeddingModel, 0.95, 2, Duration.ofHours(1), clock).bindTo(registry);
+        cache.put(cache.embed("How do I export to CSV?"), "faq", "Use Project > Export > CSV.",
+                Set.of("chunk-export"), Set.of("faq"));
+    }
+
+    @Test
+    public void testParaphraseHitsAndUnrelatedQuestionMisses() {
+        Assertions.assertEquals(Optional.of("Use Project > Export > CSV."),
+                cache.get(cache.embed("Can I download my tasks as CSV"), "faq"));
+        Assertions.assertEquals(Optional.empty(), cache.get(cache.embed("How do I import from Trello?"), "faq"));
+        Assertions.assertEquals(Optional.empty(), cache.get(cache.embed("How do I export to CSV?"), "billing"));
+
+        Assertions.assertEquals(1, registry.get("supportbot.answer.cache.requests").tag("result", "hit")
+                .counter().count());
+        Assertions.assertEquals(2, registry.get("supportbot.answer.cache.requests").tag("result", "miss")
+                .counter().count());
+    }
+
+    @Test
+    public void testKnowledgeBaseChangesInvalidateEntries() {
+        cache.invalidate(new KnowledgeBaseChange(Set.of("billing"), Set.of("chunk-refund")));
+        Assertions.assertEquals(1, cache.size());
+
+        // A chunk the answer was built from was replaced
+        cache.invalidate(new KnowledgeBaseChange(Set.of(), Set.of("chunk-export")));
+        Assertions.assertEquals(0, cache.size());
+
+        // New chunks in the answer's category
+        cache.put(cache.embed("How do I export to CSV?"), "faq", "Use Project > Export > CSV.",
+                Set.of("chunk-export"), Set.of("faq"));
+        cache.invalidate(new KnowledgeBaseChange(Set.of("faq"), Set.of("chunk-new")));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(2, registry.get("supportbot.answer.cache.invalidations").counter().count());
+    }
+
+    @Test
+    public void testEntriesExpireAndOldestIsEvicted() {
+        now = now.plus(Duration.ofMinutes(61));
+        Assertions.assertEquals(Optional.empty(), cache.get(cache.embed("How do I export to CSV?"), "faq"));
+        Assertions.assertEquals(0, cache.size());
+
+        for (String question : QUESTIONS.keySet()) {
+            cache.put(cache.embed(question), "faq", question, Set.of(), Set.of());
+        }
+        Assertions.assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.advisor.supportbot.concurrency;
+
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit Test for AdaptiveConcurrencyLimiter.
+ * Drives the limiter with calls that sleep for a chosen latency.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testLimitGrowsWhileLatencyIsFlat() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 20);
+
+        for (int round = 0; round < 30; round++) {
+            runRound(limiter, limiter.getLimit(), 5);
+        }
+
+        Assertions.assertTrue(limiter.getLimit() > 4, "limit " + limiter.getLimit());
+        Assertions.assertEquals(limiter.getLimit(),
+                registry.get("supportbot.model.concurrency.limit").tag("model", "chat").gauge().value());
+    }
+
+    @Test
+    public void testLimitBacksOffWhenLatencyRises() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(16, 2, 32);
+        for (int round = 0; round < 5; round++) {
+            runRound(limiter, 4, 5);
+        }
+        int healthyLimit = limiter.getLimit();
+
+        // The provider slows down tenfold
+        for (int round = 0; round < 5; round++) {
+            runRound(limiter, 1, 60);
+        }
+
+        Assertions.assertTrue(limiter.getLimit() < healthyLimit / 2,
+                "limit " + limiter.getLimit() + ", was " + healthyLimit);
+        Assertions.assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    public void testMixedAnswerLengthsDoNotLowerTheLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 8);
+
+        // Steady traffic on a healthy provider: mostly short answers, some long
+        // ones and tool round-trips that take many times as long
+        long[] latencies = { 5, 5, 10, 10, 15, 20, 40, 80 };
+        for (int round = 0; round < 30; round++) {
+            runMixedRound(limiter, latencies);
+        }
+
+        Assertions.assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void testFailedCallBacksOff() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 20);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> limiter.call(() -> {
+            throw new IllegalStateException("429 Too Many Requests");
+        }));
+
+        Assertions.assertEquals(5, limiter.getLimit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void testCallOverTheLimitIsRejectedAtOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 4);
+        AdaptiveConcurrencyLimiter.Call first = limiter.acquire();
+        AdaptiveConcurrencyLimiter.Call second = limiter.acquire();
+
+        long started = System.nanoTime();
+        SupportBotBusyException e = Assertions.assertThrows(SupportBotBusyException.class, limiter::acquire);
+        Assertions.assertTrue(System.nanoTime() - started < 50_000_000L);
+        Assertions.assertTrue(e.getMessage().contains("chat model"));
+        Assertions.assertEquals(2, registry.get("supportbot.model.in.flight").gauge().value());
+        Assertions.assertEquals(1.0, registry.get("supportbot.model.rejected").counter().count());
+
+        // A slot freed by a client that went away is usable again, once
+        first.ignored();
+        first.ignored();
+        second.succeeded();
+        Assertions.assertEquals(0, limiter.inFlight());
+        limiter.acquire().succeeded();
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimiter("chat", new AdaptiveConcurrencyLimiter.Settings(initial, min, max,
+                2.0, 0.5)).bindTo(registry);
+    }
+
+    /**
+     * Starts one call per latency together and completes each after its
+     * latency.
+     */
+    private static void runMixedRound(AdaptiveConcurrencyLimiter limiter, long[] latencyMillis)
+            throws InterruptedException {
+        List<AdaptiveConcurrencyLimiter.Call> inFlight = new ArrayList<>();
+        for (int i = 0; i < latencyMillis.length; i++) {
+            inFlight.add(limiter.track());
+        }
+        long started = System.nanoTime();
+        long[] sorted = latencyMillis.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            long wait = sorted[i] - (System.nanoTime() - started) / 1_000_000;
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            inFlight.get(i).succeeded();
+        }
+    }
+
+    /**
+     * Starts calls together, waits the latency, then completes them all.
+     */
+    private static void runRound(AdaptiveConcurrencyLimiter limiter, int calls, long latencyMillis)
+            throws InterruptedException {
+        List<AdaptiveConcurrencyLimiter.Call> inFlight = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            inFlight.add(limiter.acquire());
+        }
+        Thread.sleep(latencyMillis);
+        inFlight.forEach(AdaptiveConcurrencyLimiter.Call::succeeded);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.advisor.supportbot.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Unit Test for PinnedThreadMonitor.
+ * Pins a virtual thread by sleeping inside a synchronized block and waits for
+ * the JFR event to reach the counter.
+ */
+public class PinnedThreadMonitorTest {
+
+    private final Object monitor = new Object();
+
+    @Test
+    public void testPinnedVirtualThreadIsCounted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (PinnedThreadMonitor pinnedThreadMonitor = new PinnedThreadMonitor(registry, Duration.ofMillis(10))
+                .start()) {
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+
+            // JFR streams events in periodic flushes
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (registry.get("supportbot.virtual-threads.pinned").counter().count() == 0
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        }
+
+        Assertions.assertTrue(registry.get("supportbot.virtual-threads.pinned").counter().count() >= 1);
+        Assertions.assertTrue(registry.get("supportbot.virtual-threads.pinned.duration").timer()
+                .totalTime(java.util.concurrent.TimeUnit.MILLISECONDS) >= 40);
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.advisor.supportbot.concurrency;
+
+import com.example.advisor.supportbot.advisor.ModelConcurrencyAdvisor;
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for PlanAdmissionScheduler.
+ * Holds the only slot, lines up waiters per plan and then lets them through
+ * one at a time.
+ */
+public class PlanAdmissionSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testFreedSlotsFollowPlanWeights() throws Exception {
+        PlanAdmissionScheduler scheduler = scheduler(1, 100, Duration.ofSeconds(10));
+        List<CustomerPlan> admitted = Collections.synchronizedList(new ArrayList<>());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            PlanAdmissionScheduler.Permit holder = scheduler.acquire(CustomerPlan.ENTERPRISE);
+            // FREE first, so it would win under FIFO
+            List<Future<?>> waiters = new ArrayList<>();
+            waiters.addAll(lineUp(executor, scheduler, CustomerPlan.FREE, 10, admitted));
+            waiters.addAll(lineUp(executor, scheduler, CustomerPlan.PREMIUM, 10, admitted));
+            waiters.addAll(lineUp(executor, scheduler, CustomerPlan.ENTERPRISE, 10, admitted));
+            holder.close();
+            for (Future<?> waiter : waiters) {
+                waiter.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        // The first ten slots are shared 6/3/1
+        List<CustomerPlan> firstRound = admitted.subList(0, 10);
+        Assertions.assertEquals(6, Collections.frequency(firstRound, CustomerPlan.ENTERPRISE), firstRound.toString());
+        Assertions.assertEquals(3, Collections.frequency(firstRound, CustomerPlan.PREMIUM), firstRound.toString());
+        Assertions.assertEquals(1, Collections.frequency(firstRound, CustomerPlan.FREE), firstRound.toString());
+        Assertions.assertEquals(30, admitted.size());
+        Assertions.assertEquals(0, scheduler.running());
+    }
+
+    @Test
+    public void testFreeIsShedWhileAHigherPlanWaits() throws Exception {
+        PlanAdmissionScheduler scheduler = scheduler(1, 100, Duration.ofSeconds(10));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            PlanAdmissionScheduler.Permit holder = scheduler.acquire(CustomerPlan.FREE);
+            Future<?> premium = executor.submit(() -> scheduler.acquire(CustomerPlan.PREMIUM).close());
+            awaitQueued(scheduler, CustomerPlan.PREMIUM, 1);
+
+            long started = System.nanoTime();
+            Assertions.assertThrows(SupportBotBusyException.class, () -> scheduler.acquire(CustomerPlan.FREE));
+            Assertions.assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(500));
+
+            holder.close();
+            premium.get(10, TimeUnit.SECONDS);
+        }
+        Assertions.assertEquals(1.0, registry.get("supportbot.admission.rejected")
+                .tag("plan", "FREE").tag("reason", "shed").counter().count());
+    }
+
+    @Test
+    public void testFullQueueAndLongWaitAreTurnedAway() throws Exception {
+        PlanAdmissionScheduler scheduler = scheduler(1, 2, Duration.ofMillis(200));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            PlanAdmissionScheduler.Permit holder = scheduler.acquire(CustomerPlan.PREMIUM);
+            // FREE queue holds two
+            List<Future<?>> waiting = List.of(
+                    executor.submit(() -> scheduler.acquire(CustomerPlan.FREE)),
+                    executor.submit(() -> scheduler.acquire(CustomerPlan.FREE)));
+            awaitQueued(scheduler, CustomerPlan.FREE, 2);
+            SupportBotBusyException full = Assertions.assertThrows(SupportBotBusyException.class,
+                    () -> scheduler.acquire(CustomerPlan.FREE));
+            Assertions.assertEquals(Duration.ofSeconds(1), full.getRetryAfter());
+
+            // Nobody releases the slot, so both waiters give up
+            for (Future<?> waiter : waiting) {
+                Exception e = Assertions.assertThrows(Exception.class, () -> waiter.get(10, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(SupportBotBusyException.class, e.getCause());
+            }
+            holder.close();
+        }
+
+        Assertions.assertEquals(0, scheduler.queued(CustomerPlan.FREE));
+        Assertions.assertEquals(0, scheduler.running());
+        Assertions.assertEquals(1.0, registry.get("supportbot.admission.rejected")
+                .tag("plan", "FREE").tag("reason", "queue-full").counter().count());
+        Assertions.assertEquals(2.0, registry.get("supportbot.admission.rejected")
+                .tag("plan", "FREE").tag("reason", "timeout").counter().count());
+        Assertions.assertEquals(1, registry.get("supportbot.admission.wait").tag("plan", "PREMIUM").timer().count());
+    }
+
+    @Test
+    public void testAsyncWaitersHoldNoThreadAndLeaveWhenCancelled() {
+        PlanAdmissionScheduler scheduler = scheduler(1, 100, Duration.ofMillis(200));
+        PlanAdmissionScheduler.Permit holder = scheduler.acquire(CustomerPlan.PREMIUM);
+        List<PlanAdmissionScheduler.Permit> permits = Collections.synchronizedList(new ArrayList<>());
+
+        // Subscribing queues the waiter and returns at once
+        Disposable first = scheduler.acquireAsync(CustomerPlan.ENTERPRISE).subscribe(permits::add);
+        Disposable second = scheduler.acquireAsync(CustomerPlan.ENTERPRISE).subscribe(permits::add);
+        scheduler.acquireAsync(CustomerPlan.ENTERPRISE).subscribe(permits::add);
+        Assertions.assertEquals(3, scheduler.queued(CustomerPlan.ENTERPRISE));
+
+        // A cancelled waiter gives up its place
+        second.dispose();
+        Assertions.assertEquals(2, scheduler.queued(CustomerPlan.ENTERPRISE));
+
+        holder.close();
+        Assertions.assertEquals(1, permits.size());
+        Assertions.assertTrue(first.isDisposed());
+        permits.get(0).close();
+        Assertions.assertEquals(2, permits.size());
+        Assertions.assertEquals(0, scheduler.queued(CustomerPlan.ENTERPRISE));
+
+        // Nobody releases the slot, so the next waiter gives up
+        Assertions.assertThrows(SupportBotBusyException.class,
+                () -> scheduler.acquireAsync(CustomerPlan.FREE).block(Duration.ofSeconds(5)));
+        permits.get(1).close();
+
+        Assertions.assertEquals(0, scheduler.running());
+        Assertions.assertEquals(0, scheduler.queued(CustomerPlan.FREE));
+        Assertions.assertEquals(1.0, registry.get("supportbot.admission.rejected")
+                .tag("plan", "FREE").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    public void testEnterpriseWaitStaysFlatDuringFreeSpike() throws Exception {
+        PlanAdmissionScheduler scheduler = scheduler(4, 16, Duration.ofSeconds(5));
+        long callMillis = 50;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // 400 FREE chats at once against 4 slots
+            List<Future<?>> spike = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                spike.add(executor.submit(() -> {
+                    try (PlanAdmissionScheduler.Permit permit = scheduler.acquire(CustomerPlan.FREE)) {
+                        Thread.sleep(callMillis);
+                    } catch (SupportBotBusyException | InterruptedException e) {
+                        // Shed
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Long>> enterprise = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                enterprise.add(executor.submit(() -> {
+                    long started = System.nanoTime();
+                    try (PlanAdmissionScheduler.Permit permit = scheduler.acquire(CustomerPlan.ENTERPRISE)) {
+                        long waited = (System.nanoTime() - started) / 1_000_000;
+                        Thread.sleep(callMillis);
+                        return waited;
+                    }
+                }));
+            }
+            long worstWait = 0;
+            for (Future<Long> chat : enterprise) {
+                worstWait = Math.max(worstWait, chat.get(30, TimeUnit.SECONDS));
+            }
+            for (Future<?> chat : spike) {
+                chat.get(30, TimeUnit.SECONDS);
+            }
+
+            // In one shared FIFO queue an ENTERPRISE chat would wait behind
+            // all 400 FREE chats (100 rounds of 4 calls, about 5 s). Here it
+            // waits for little more than the other ENTERPRISE chats
+            Assertions.assertTrue(worstWait < 20 / 4 * callMillis + 1_000, "worst wait " + worstWait + " ms");
+        }
+        Assertions.assertTrue(registry.get("supportbot.admission.rejected").tag("plan", "FREE").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum() > 0);
+        Assertions.assertEquals(0, registry.find("supportbot.admission.rejected").tag("plan", "ENTERPRISE").counters()
+                .size());
+    }
+
+    @Test
+    public void testCallsOverTheModelLimitQueueInsteadOfFailing() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("chat",
+                new AdaptiveConcurrencyLimiter.Settings(2, 1, 2, Double.MAX_VALUE, 0.5)).bindTo(registry);
+        PlanAdmissionScheduler scheduler = new PlanAdmissionScheduler(limiter, lanes(100, Duration.ofSeconds(10)))
+                .bindTo(registry);
+        ModelConcurrencyAdvisor advisor = new ModelConcurrencyAdvisor(limiter, true);
+        // Each model call blocks until the test hands it an outcome
+        BlockingQueue<Supplier<ChatClientResponse>> outcomes = new LinkedBlockingQueue<>();
+        CallAdvisorChain chain = mock(CallAdvisorChain.class);
+        when(chain.nextCall(any())).thenAnswer(invocation -> outcomes.take().get());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> free = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                free.add(executor.submit(() -> {
+                    try (PlanAdmissionScheduler.Permit permit = scheduler.acquire(CustomerPlan.FREE)) {
+                        return advisor.adviseCall(null, chain);
+                    }
+                }));
+            }
+            awaitTrue(() -> limiter.inFlight() == 2);
+            Future<?> enterprise = executor.submit(() -> {
+                try (PlanAdmissionScheduler.Permit permit = scheduler.acquire(CustomerPlan.ENTERPRISE)) {
+                    return advisor.adviseCall(null, chain);
+                }
+            });
+            awaitQueued(scheduler, CustomerPlan.ENTERPRISE, 1);
+
+            // A failed call halves the limit, so the freed slot is not handed on
+            outcomes.add(() -> {
+                throw new IllegalStateException("Provider timeout");
+            });
+            awaitTrue(() -> scheduler.running() == 1);
+            Assertions.assertEquals(1, limiter.getLimit());
+            Assertions.assertEquals(1, scheduler.queued(CustomerPlan.ENTERPRISE));
+
+            // The last FREE call finishes and ENTERPRISE takes its slot
+            outcomes.add(() -> null);
+            outcomes.add(() -> null);
+            enterprise.get(10, TimeUnit.SECONDS);
+            for (Future<?> call : free) {
+                try {
+                    call.get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+        }
+
+        Assertions.assertEquals(0, scheduler.running());
+        Assertions.assertEquals(0, limiter.inFlight());
+        Assertions.assertEquals(0.0, registry.get("supportbot.model.rejected").counter().count());
+        Assertions.assertTrue(registry.find("supportbot.admission.rejected").counters().isEmpty());
+    }
+
+    private PlanAdmissionScheduler scheduler(int maxConcurrent, int freeQueueCapacity, Duration maxWait) {
+        return new PlanAdmissionScheduler(maxConcurrent, lanes(freeQueueCapacity, maxWait)).bindTo(registry);
+    }
+
+    private static Map<CustomerPlan, PlanAdmissionScheduler.Lane> lanes(int freeQueueCapacity, Duration maxWait) {
+        return Map.of(
+                CustomerPlan.ENTERPRISE, new PlanAdmissionScheduler.Lane(6, 100, maxWait, false),
+                CustomerPlan.PREMIUM, new PlanAdmissionScheduler.Lane(3, 100, maxWait, false),
+                CustomerPlan.FREE, new PlanAdmissionScheduler.Lane(1, freeQueueCapacity, maxWait, true));
+    }
+
+    /**
+     * Starts waiters for a plan and returns once they are all queued.
+     */
+    private static List<Future<?>> lineUp(ExecutorService executor, PlanAdmissionScheduler scheduler,
+            CustomerPlan plan, int count, List<CustomerPlan> admitted) throws InterruptedException {
+        List<Future<?>> waiters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            waiters.add(executor.submit(() -> {
+                try (PlanAdmissionScheduler.Permit permit = scheduler.acquire(plan)) {
+                    admitted.add(plan);
+                }
+            }));
+        }
+        awaitQueued(scheduler, plan, count);
+        return waiters;
+    }
+
+    private static void awaitQueued(PlanAdmissionScheduler scheduler, CustomerPlan plan, int count)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.queued(plan) < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(count, scheduler.queued(plan));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.advisor.supportbot.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit Test for SingleFlight.
+ * Holds the leader's work on a latch until the followers have joined it.
+ */
+public class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> flight = new SingleFlight<String, String>("test").bindTo(registry);
+
+    @Test
+    public void testConcurrentCallersShareOneRun() throws Exception {
+        int callers = 10;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<SingleFlight.Result<String>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flight.execute("key", () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return "answer";
+                })));
+            }
+            awaitCoalesced(callers - 1);
+            release.countDown();
+
+            int shared = 0;
+            for (Future<SingleFlight.Result<String>> result : results) {
+                Assertions.assertEquals("answer", result.get(5, TimeUnit.SECONDS).value());
+                shared += result.get().shared() ? 1 : 0;
+            }
+            Assertions.assertEquals(callers - 1, shared);
+        }
+        Assertions.assertEquals(1, runs.get());
+        Assertions.assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testFailureReachesEveryCallerAndIsNotKept() throws Exception {
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> leader = executor.submit(() -> flight.execute("key", () -> {
+                leading.countDown();
+                await(release);
+                throw new IllegalStateException("model unavailable");
+            }));
+            await(leading);
+            Future<?> follower = executor.submit(() -> flight.execute("key", () -> "unused"));
+            awaitCoalesced(1);
+            release.countDown();
+
+            for (Future<?> caller : List.of(leader, follower)) {
+                java.util.concurrent.ExecutionException e = Assertions.assertThrows(
+                        java.util.concurrent.ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+
+        // The next caller starts afresh
+        Assertions.assertEquals("retried", flight.execute("key", () -> "retried").value());
+    }
+
+    @Test
+    public void testLateSubscriberReplaysTheSharedStream() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        Flux<String> source = upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet());
+
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        flight.stream("key", () -> source).subscribe(first::add);
+        upstream.tryEmitNext("a");
+        flight.stream("key", () -> source).subscribe(second::add);
+        upstream.tryEmitNext("b");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals(1, subscriptions.get());
+        Assertions.assertEquals(List.of("a", "b"), first);
+        Assertions.assertEquals(List.of("a", "b"), second);
+        Assertions.assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testFinishedStreamIsNeverRunAgain() {
+        AtomicInteger firstRuns = new AtomicInteger();
+        AtomicInteger secondRuns = new AtomicInteger();
+        List<String> second = new ArrayList<>();
+
+        // The second caller arrives just as the first stream ends
+        List<String> first = flight.stream("key", () -> Flux.just("a", "b").doOnSubscribe(s -> firstRuns.incrementAndGet()))
+                .doOnComplete(() -> flight.stream("key",
+                        () -> Flux.just("c").doOnSubscribe(s -> secondRuns.incrementAndGet()))
+                        .subscribe(second::add))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(List.of("a", "b"), first);
+        Assertions.assertEquals(List.of("c"), second);
+        Assertions.assertEquals(1, firstRuns.get());
+        Assertions.assertEquals(1, secondRuns.get());
+        Assertions.assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testStreamIsCancelledWhenEverySubscriberLeaves() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicInteger cancellations = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        Flux<String> source = upstream.asFlux()
+                .doOnSubscribe(s -> subscriptions.incrementAndGet())
+                .doOnCancel(cancellations::incrementAndGet);
+
+        Disposable first = flight.stream("key", () -> source).subscribe();
+        Disposable second = flight.stream("key", () -> source).subscribe();
+        first.dispose();
+        Assertions.assertEquals(0, cancellations.get());
+        second.dispose();
+
+        Assertions.assertEquals(1, cancellations.get());
+        Assertions.assertEquals(0, flight.inFlight());
+        // The next caller starts afresh
+        flight.stream("key", () -> Flux.just("again")).blockLast();
+        Assertions.assertEquals(1, subscriptions.get());
+    }
+
+    private void awaitCoalesced(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("supportbot.singleflight.coalesced").counter().count() < followers
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
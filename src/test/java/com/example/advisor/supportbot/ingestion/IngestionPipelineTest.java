@@ -0,0 +1,113 @@
+package com.example.advisor.supportbot.ingestion;
+
+import com.example.advisor.supportbot.exception.KnowledgeBaseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit Test for IngestionPipeline.
+ * Uses a stub embedding step to check stable chunk ids, batching, the
+ * in-flight limit, retries and metrics without calling an embedding API.
+ */
+public class IngestionPipelineTest {
+
+    @Test
+    public void testBatchesAreStoredWithBoundedConcurrencyAndRetried() {
+        Set<String> storedIds = ConcurrentHashMap.newKeySet();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        IngestionPipeline pipeline = new IngestionPipeline(
+                new IngestionSettings(4, 8000, 5, 2, 3, Duration.ofMillis(1)), registry);
+
+        List<Document> chunks = pipeline.read(List.of(
+                new IngestionSource(textResource("faq.txt", 40), "faq"),
+                new IngestionSource(textResource("billing.txt", 30), "billing"),
+                new IngestionSource(textResource("troubleshooting.txt", 30), "troubleshooting")))
+                .values().stream().flatMap(List::stream).toList();
+        IngestionResult result = pipeline.process(chunks, batch -> {
+            int running = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(20);
+                // Every third call fails once, like a rate-limited embedding API
+                if (calls.incrementAndGet() % 3 == 0) {
+                    throw new IllegalStateException("429 Too Many Requests");
+                }
+                batch.forEach(doc -> storedIds.add(doc.getId()));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        Assertions.assertEquals(chunks.size(), result.chunks());
+        Assertions.assertEquals(storedIds.size(), result.chunks());
+        Assertions.assertTrue(result.batches() >= result.chunks() / 5);
+        Assertions.assertTrue(result.retries() > 0);
+        Assertions.assertTrue(maxInFlight.get() <= 2, "in-flight calls: " + maxInFlight.get());
+        Assertions.assertEquals(result.chunks(), registry.get("supportbot.ingestion.chunks").counter().count());
+        Assertions.assertEquals(result.retries(), registry.get("supportbot.ingestion.retries").counter().count());
+    }
+
+    @Test
+    public void testBatchFailingAllAttemptsFailsIngestion() {
+        IngestionPipeline pipeline = new IngestionPipeline(
+                new IngestionSettings(2, 8000, 100, 2, 2, Duration.ofMillis(1)), new SimpleMeterRegistry());
+        List<Document> chunks = pipeline.read(List.of(new IngestionSource(textResource("faq.txt", 5), "faq")))
+                .values().iterator().next();
+
+        KnowledgeBaseException exception = Assertions.assertThrows(KnowledgeBaseException.class,
+                () -> pipeline.process(chunks, batch -> {
+                    throw new IllegalStateException("embedding API down");
+                }));
+        Assertions.assertTrue(exception.getCause().getMessage().contains("after 2 attempts"));
+    }
+
+    @Test
+    public void testChunkIdsAreStableAcrossReads() {
+        IngestionPipeline pipeline = new IngestionPipeline(
+                new IngestionSettings(2, 8000, 100, 2, 2, Duration.ofMillis(1)), new SimpleMeterRegistry());
+        IngestionSource source = new IngestionSource(textResource("faq.txt", 10), "faq");
+
+        List<String> first = pipeline.read(List.of(source)).get(source).stream().map(Document::getId).toList();
+        List<String> second = pipeline.read(List.of(source)).get(source).stream().map(Document::getId).toList();
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.size(), Set.copyOf(first).size());
+    }
+
+    /**
+     * Generates a document large enough to be split into several chunks.
+     */
+    private static Resource textResource(String filename, int paragraphs) {
+        StringBuilder text = new StringBuilder();
+        for (int p = 0; p < paragraphs; p++) {
+            text.append("Section ").append(p).append(". ");
+            for (int s = 0; s < 20; s++) {
+                text.append("TaskFlow lets teams plan projects, track tasks and share files with colleagues. ");
+            }
+            text.append("\n\n");
+        }
+        return new ByteArrayResource(text.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
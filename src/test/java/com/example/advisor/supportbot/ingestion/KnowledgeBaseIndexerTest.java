@@ -0,0 +1,164 @@
+package com.example.advisor.supportbot.ingestion;
+
+import com.example.advisor.embedding.EmbeddingSnapshot;
+import com.example.advisor.embedding.SnapshotEmbeddingModel;
+import com.example.advisor.supportbot.search.Bm25Index;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for KnowledgeBaseIndexer.
+ * Verifies that a refresh only embeds changed chunks and deletes stale ones.
+ */
+public class KnowledgeBaseIndexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> remotelyEmbedded = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> deletedIds = Collections.synchronizedList(new ArrayList<>());
+    private Path snapshotFile;
+    private Path faq;
+    private Path billing;
+    private Bm25Index lexicalIndex;
+    private KnowledgeBaseIndexer indexer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EmbeddingModel remote = mock(EmbeddingModel.class);
+        when(remote.embed(anyList(), any(), any())).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            documents.forEach(document -> remotelyEmbedded.add(document.getText()));
+            return documents.stream().map(document -> new float[] { 1f, 0f }).toList();
+        });
+        snapshotFile = tempDir.resolve("kb.snapshot");
+        SnapshotEmbeddingModel embeddingModel = new SnapshotEmbeddingModel(remote,
+                EmbeddingSnapshot.open(snapshotFile, "model-a"));
+
+        VectorStore vectorStore = mock(VectorStore.class);
+        doAnswer(invocation -> {
+            deletedIds.addAll(invocation.getArgument(0));
+            return null;
+        }).when(vectorStore).delete(anyList());
+
+        faq = Files.writeString(tempDir.resolve("faq.txt"), section("Single sign-on") + section("CSV export"));
+        billing = Files.writeString(tempDir.resolve("billing.txt"), section("Refunds"));
+        lexicalIndex = new Bm25Index();
+        indexer = new KnowledgeBaseIndexer(vectorStore, lexicalIndex, embeddingModel,
+                new IngestionPipeline(new IngestionSettings(2, 8000, 16, 2, 2, Duration.ofMillis(1)),
+                        new SimpleMeterRegistry()),
+                new KnowledgeBaseLock(), List.of(
+                        new IngestionSource(new FileSystemResource(faq), "faq"),
+                        new IngestionSource(new FileSystemResource(billing), "billing")),
+                Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void testUnchangedSourcesAreSkipped() {
+        RefreshResult initial = indexer.refresh();
+        int embeddedAtStartup = remotelyEmbedded.size();
+
+        RefreshResult again = indexer.refresh();
+
+        Assertions.assertTrue(initial.added() > 0);
+        Assertions.assertEquals(initial.added(), lexicalIndex.size());
+        Assertions.assertFalse(again.changed());
+        Assertions.assertEquals(0, again.changedSources());
+        Assertions.assertEquals(initial.added(), again.unchanged());
+        Assertions.assertEquals(embeddedAtStartup, remotelyEmbedded.size());
+    }
+
+    @Test
+    public void testOnlyChangedChunksAreEmbeddedAndStaleOnesDeleted() throws Exception {
+        indexer.refresh();
+        remotelyEmbedded.clear();
+        List<KnowledgeBaseChange> changes = new ArrayList<>();
+        indexer.addChangeListener(changes::add);
+
+        // Replace one of the two FAQ sections; billing is untouched
+        Files.writeString(faq, section("Single sign-on") + section("Calendar sync"));
+        RefreshResult result = indexer.refresh();
+
+        Assertions.assertEquals(1, result.changedSources());
+        Assertions.assertTrue(result.added() > 0);
+        Assertions.assertEquals(result.removed(), deletedIds.size());
+        Assertions.assertTrue(result.removed() > 0);
+        Assertions.assertTrue(remotelyEmbedded.stream().allMatch(text -> text.contains("Calendar sync")),
+                "re-embedded: " + remotelyEmbedded);
+        Assertions.assertTrue(lexicalIndex.search("refunds", 5, metadata -> true).size() > 0);
+        Assertions.assertTrue(lexicalIndex.search("CSV export", 5, metadata -> true).isEmpty());
+        Assertions.assertEquals(1, changes.size());
+        Assertions.assertEquals(Set.of("faq"), changes.get(0).categories());
+        Assertions.assertTrue(changes.get(0).chunkIds().containsAll(deletedIds));
+    }
+
+    @Test
+    public void testLineAddedAtTheTopOnlyReembedsItsOwnSection() throws Exception {
+        RefreshResult initial = indexer.refresh();
+        remotelyEmbedded.clear();
+
+        Files.writeString(faq, "Updated for the spring release.\n" + section("Single sign-on") + section("CSV export"));
+        RefreshResult result = indexer.refresh();
+
+        Assertions.assertTrue(initial.added() > 3, "chunks: " + initial.added());
+        Assertions.assertTrue(remotelyEmbedded.size() >= 1 && remotelyEmbedded.size() <= 2,
+                "re-embedded: " + remotelyEmbedded.size());
+        Assertions.assertTrue(remotelyEmbedded.stream().noneMatch(text -> text.contains("CSV export")),
+                "re-embedded: " + remotelyEmbedded);
+        Assertions.assertEquals(result.added(), result.removed());
+    }
+
+    @Test
+    public void testSnapshotIsSavedOnceOffThePublishPath() {
+        indexer.refresh();
+        indexer.apply(List.of(new Document("article-1", "Calendar sync runs hourly.", Map.of())), List.of());
+        indexer.apply(List.of(new Document("article-2", "Webhooks retry three times.", Map.of())), List.of());
+        indexer.apply(List.of(), List.of("article-1"));
+
+        // Within the save delay nothing has been written yet
+        Assertions.assertFalse(Files.exists(snapshotFile));
+
+        indexer.close();
+
+        EmbeddingSnapshot saved = EmbeddingSnapshot.open(snapshotFile, "model-a");
+        Assertions.assertNotNull(saved.get(new Document("Webhooks retry three times.")
+                .getFormattedContent(MetadataMode.EMBED)));
+        Assertions.assertNull(saved.get(new Document("Calendar sync runs hourly.")
+                .getFormattedContent(MetadataMode.EMBED)));
+        Assertions.assertEquals(lexicalIndex.size(), saved.size());
+    }
+
+    /**
+     * A section long enough to be split into its own chunks.
+     */
+    private static String section(String title) {
+        StringBuilder text = new StringBuilder(title).append(".\n");
+        for (int i = 0; i < 120; i++) {
+            text.append(title).append(" paragraph ").append(i).append(" explains how TaskFlow handles this. ");
+        }
+        return text.append("\n\n").toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.advisor.supportbot.keyword;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit Test for KeywordLexicon.
+ * Covers swapping in an edited lexicon file, keeping the previous matcher
+ * when the file is invalid, falling back to the built-in lexicon while the
+ * file is missing, and lock-free reads during reloads.
+ */
+public class KeywordLexiconTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEditedFileIsSwappedIn() throws IOException {
+        Path file = tempDir.resolve("lexicon.json");
+        Files.writeString(file, lexicon("\"competitor\""));
+        KeywordLexicon lexicon = new KeywordLexicon(SupportLexicon.defaultMatcher(), new FileSystemResource(file));
+
+        Assertions.assertTrue(lexicon.reload());
+        Assertions.assertFalse(lexicon.reload(), "Unchanged file is not recompiled");
+        Assertions.assertFalse(lexicon.current().match("what does the roadmap say").has(KeywordTag.BLOCKED));
+
+        Files.writeString(file, lexicon("\"competitor\", \"roadmap\""));
+        Assertions.assertTrue(lexicon.reload());
+        Assertions.assertTrue(lexicon.current().match("what does the roadmap say").has(KeywordTag.BLOCKED));
+    }
+
+    @Test
+    public void testInvalidFileKeepsPreviousMatcher() throws IOException {
+        Path file = tempDir.resolve("lexicon.json");
+        Files.writeString(file, lexicon("\"competitor\""));
+        KeywordLexicon lexicon = new KeywordLexicon(SupportLexicon.defaultMatcher(), new FileSystemResource(file));
+        lexicon.reload();
+        KeywordMatcher loaded = lexicon.current();
+
+        for (String broken : List.of("{\"BLOCKED\": [\"competitor\"", // truncated
+                "{\"BLOCKED\": [\"competitor\"]}", // missing tags
+                lexicon("\"competitor\"").replace("\"FAQ\"", "\"FAQS\""), // unknown tag
+                lexicon("\"competitor\", \" \""))) { // blank keyword
+            Files.writeString(file, broken);
+            Assertions.assertFalse(lexicon.reload(), broken);
+            Assertions.assertSame(loaded, lexicon.current());
+        }
+
+        Files.delete(file);
+        Assertions.assertFalse(lexicon.reload());
+        Assertions.assertSame(loaded, lexicon.current());
+    }
+
+    @Test
+    public void testBuiltInLexiconIsUsedUntilTheFileExists() throws IOException {
+        Path file = tempDir.resolve("lexicon.json");
+        KeywordLexicon lexicon = new KeywordLexicon(KeywordMatcher.builder().build(), new FileSystemResource(file),
+                new ClassPathResource(SupportLexicon.DEFAULT_LOCATION));
+
+        Assertions.assertTrue(lexicon.reload());
+        Assertions.assertEquals(SupportLexicon.defaultMatcher().size(), lexicon.current().size());
+        Assertions.assertTrue(lexicon.current().match("I want to talk to a lawyer").has(KeywordTag.ESCALATION));
+
+        Files.writeString(file, lexicon("\"competitor\", \"roadmap\""));
+        Assertions.assertTrue(lexicon.reload());
+        Assertions.assertEquals(file.toString(), lexicon.location().getFile().getPath());
+        Assertions.assertTrue(lexicon.current().match("what does the roadmap say").has(KeywordTag.BLOCKED));
+    }
+
+    @Test
+    public void testReadersNeverSeeAMissingMatcher() throws Exception {
+        Path file = tempDir.resolve("lexicon.json");
+        KeywordLexicon lexicon = new KeywordLexicon(SupportLexicon.defaultMatcher(), new FileSystemResource(file));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger misses = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    if (!lexicon.current().match("I want to talk to a lawyer").has(KeywordTag.ESCALATION)) {
+                        misses.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (int version = 0; version < 50; version++) {
+            Files.writeString(file, lexicon("\"competitor\", \"word" + version + "\""));
+            Assertions.assertTrue(lexicon.reload());
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        Assertions.assertEquals(0, misses.get());
+    }
+
+    /**
+     * A complete lexicon with the given BLOCKED keywords.
+     */
+    private static String lexicon(String blocked) {
+        return """
+                {"BLOCKED": [%s], "ABUSIVE": ["stupid bot"], "ANGRY": ["furious"], "FRUSTRATED": ["annoying"],
+                 "POSITIVE": ["thanks"], "ESCALATION": ["lawyer"], "BILLING": ["refund"],
+                 "TROUBLESHOOTING": ["error"], "FAQ": ["how do"]}
+                """.formatted(blocked);
+    }
+}
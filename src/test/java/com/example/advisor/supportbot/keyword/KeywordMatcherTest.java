@@ -0,0 +1,73 @@
+package com.example.advisor.supportbot.keyword;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Unit Test for KeywordMatcher.
+ * Verifies the single-pass automaton against per-keyword String.contains
+ * scans, including overlapping keywords and list-order priority.
+ */
+public class KeywordMatcherTest {
+
+    private final KeywordMatcher matcher = SupportLexicon.defaultMatcher();
+
+    @Test
+    public void testOverlappingKeywordsAreAllFound() {
+        KeywordMatcher overlapping = KeywordMatcher.builder()
+                .add(KeywordTag.BILLING, List.of("cancel my subscription", "subscription"))
+                .add(KeywordTag.ESCALATION, List.of("cancel my subscription"))
+                .add(KeywordTag.ANGRY, List.of("hate", "whatever"))
+                .build();
+
+        KeywordMatches matches = overlapping.match("I want to CANCEL MY SUBSCRIPTION, whatever.");
+
+        Assertions.assertEquals(Optional.of("cancel my subscription"), matches.first(KeywordTag.BILLING));
+        Assertions.assertEquals(Optional.of("cancel my subscription"), matches.first(KeywordTag.ESCALATION));
+        Assertions.assertEquals(Optional.of("hate"), matches.first(KeywordTag.ANGRY));
+        Assertions.assertFalse(matches.has(KeywordTag.POSITIVE));
+    }
+
+    @Test
+    public void testFirstListedKeywordWinsNotFirstInText() {
+        KeywordMatches matches = matcher.match("Get me a lawyer or your manager, I want to speak to someone");
+
+        // "speak to someone" is listed before "manager" and "lawyer"
+        Assertions.assertEquals(Optional.of("speak to someone"), matches.first(KeywordTag.ESCALATION));
+    }
+
+    @Test
+    public void testAgreesWithContainsScans() {
+        Map<KeywordTag, List<String>> lists = Map.of(
+                KeywordTag.BLOCKED, matcher.keywords(KeywordTag.BLOCKED),
+                KeywordTag.ABUSIVE, matcher.keywords(KeywordTag.ABUSIVE),
+                KeywordTag.ANGRY, matcher.keywords(KeywordTag.ANGRY),
+                KeywordTag.ESCALATION, matcher.keywords(KeywordTag.ESCALATION),
+                KeywordTag.BILLING, matcher.keywords(KeywordTag.BILLING),
+                KeywordTag.FAQ, matcher.keywords(KeywordTag.FAQ));
+        List<String> words = lists.values().stream().flatMap(List::stream).toList();
+        Random random = new Random(13);
+
+        for (int m = 0; m < 500; m++) {
+            StringBuilder message = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                String word = random.nextInt(3) == 0 ? words.get(random.nextInt(words.size())) : "lorem ipsum";
+                message.append(random.nextBoolean() ? word.toUpperCase(Locale.ROOT) : word).append(' ');
+            }
+            String text = message.toString();
+            KeywordMatches matches = matcher.match(text);
+            for (Map.Entry<KeywordTag, List<String>> entry : lists.entrySet()) {
+                Optional<String> expected = entry.getValue().stream()
+                        .filter(keyword -> text.toLowerCase().contains(keyword))
+                        .findFirst();
+                Assertions.assertEquals(expected, matches.first(entry.getKey()), entry.getKey() + " in " + text);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.advisor.supportbot.repository;
+
+import com.example.advisor.supportbot.model.entity.Article;
+import com.example.advisor.supportbot.model.entity.ArticleOutboxEvent;
+import com.example.advisor.supportbot.model.enums.ArticleChangeType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Unit Test for the article outbox.
+ * Verifies that the entity listener records article changes in the same
+ * transaction as the change.
+ */
+@DataJpaTest
+public class ArticleOutboxRepositoryTest {
+
+    @Autowired
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private ArticleOutboxRepository outboxRepository;
+
+    @Test
+    public void testArticleChangesAreRecorded() {
+        Article article = articleRepository.saveAndFlush(new Article("Refunds", "Refunds take 14 days.", "billing"));
+        article.setContent("Refunds take 7 days.");
+        articleRepository.saveAndFlush(article);
+        article.setPublished(false);
+        articleRepository.saveAndFlush(article);
+        articleRepository.delete(article);
+        articleRepository.flush();
+
+        List<ArticleOutboxEvent> events = outboxRepository.findByOrderByIdAsc(PageRequest.of(0, 10));
+        Assertions.assertEquals(List.of(ArticleChangeType.UPSERT, ArticleChangeType.UPSERT,
+                ArticleChangeType.DELETE, ArticleChangeType.DELETE),
+                events.stream().map(ArticleOutboxEvent::getChangeType).toList());
+        Assertions.assertTrue(events.stream().allMatch(event -> article.getId().equals(event.getArticleId())));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseIndexer;
+import com.example.advisor.supportbot.model.entity.Article;
+import com.example.advisor.supportbot.model.entity.ArticleOutboxEvent;
+import com.example.advisor.supportbot.repository.ArticleOutboxRepository;
+import com.example.advisor.supportbot.repository.ArticleRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.document.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for ArticleSyncService.
+ * Uses mocked repositories and indexer to check how article changes become
+ * chunk upserts and deletes.
+ */
+public class ArticleSyncServiceTest {
+
+    private final Map<Long, Article> articles = new HashMap<>();
+    private final List<ArticleOutboxEvent> outbox = new ArrayList<>();
+    private KnowledgeBaseIndexer indexer;
+    private ArticleSyncService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ArticleRepository articleRepository = mock(ArticleRepository.class);
+        when(articleRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Article> found = new ArrayList<>();
+            for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+                if (articles.containsKey(id)) {
+                    found.add(articles.get(id));
+                }
+            }
+            return found;
+        });
+        when(articleRepository.findByPublishedTrue()).thenAnswer(invocation ->
+                articles.values().stream().filter(Article::isPublished).toList());
+
+        ArticleOutboxRepository outboxRepository = mock(ArticleOutboxRepository.class);
+        when(outboxRepository.findByOrderByIdAsc(any(Pageable.class))).thenAnswer(invocation ->
+                List.copyOf(outbox.subList(0, Math.min(outbox.size(),
+                        invocation.<Pageable>getArgument(0).getPageSize()))));
+        doAnswer(invocation -> outbox.removeAll(invocation.<Collection<?>>getArgument(0)))
+                .when(outboxRepository).deleteAllInBatch(any());
+
+        indexer = mock(KnowledgeBaseIndexer.class);
+        service = new ArticleSyncService(articleRepository, outboxRepository, indexer);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+    }
+
+    @Test
+    public void testUpdatedArticleReplacesChunksInPlace() {
+        articles.put(1L, article(1L, "Single sign-on", 60));
+        service.syncAll();
+
+        // The article shrinks: leading chunks keep their ids, the tail is deleted
+        articles.put(1L, article(1L, "Single sign-on", 20));
+        outbox.add(mock(ArticleOutboxEvent.class));
+        when(outbox.get(0).getArticleId()).thenReturn(1L);
+        Assertions.assertEquals(1, service.drainOutbox());
+
+        ArgumentCaptor<List<Document>> upserts = ArgumentCaptor.captor();
+        ArgumentCaptor<List<String>> deletes = ArgumentCaptor.captor();
+        verify(indexer, times(2)).apply(upserts.capture(), deletes.capture());
+        List<String> before = upserts.getAllValues().get(0).stream().map(Document::getId).toList();
+        List<String> after = upserts.getAllValues().get(1).stream().map(Document::getId).toList();
+
+        Assertions.assertTrue(before.size() > after.size());
+        Assertions.assertEquals(before.subList(0, after.size()), after);
+        Assertions.assertEquals(before.subList(after.size(), before.size()), deletes.getAllValues().get(1));
+        Assertions.assertEquals(1L, upserts.getAllValues().get(1).get(0).getMetadata().get("articleId"));
+        Assertions.assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void testUnpublishedArticleIsRemovedAndUnchangedArticleSkipped() {
+        articles.put(1L, article(1L, "Refunds", 10));
+        articles.put(2L, article(2L, "CSV export", 10));
+        service.syncAll();
+        List<String> refundChunks = List.of(ArticleSyncService.chunkId(1L, 0));
+
+        articles.get(1L).setPublished(false);
+        articles.get(2L).incrementViewCount();
+        for (long id : new long[] { 1L, 2L, 1L }) {
+            ArticleOutboxEvent event = mock(ArticleOutboxEvent.class);
+            when(event.getArticleId()).thenReturn(id);
+            outbox.add(event);
+        }
+        service.drainOutbox();
+
+        ArgumentCaptor<List<Document>> upserts = ArgumentCaptor.captor();
+        ArgumentCaptor<List<String>> deletes = ArgumentCaptor.captor();
+        verify(indexer, times(2)).apply(upserts.capture(), deletes.capture());
+        Assertions.assertTrue(upserts.getAllValues().get(1).isEmpty());
+        Assertions.assertEquals(refundChunks, deletes.getAllValues().get(1));
+    }
+
+    @Test
+    public void testFailedBatchStaysInOutbox() {
+        articles.put(1L, article(1L, "Calendar sync", 10));
+        ArticleOutboxEvent event = mock(ArticleOutboxEvent.class);
+        when(event.getArticleId()).thenReturn(1L);
+        outbox.add(event);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("embedding API down");
+        }).when(indexer).apply(anyList(), anyList());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> service.drainOutbox());
+        Assertions.assertEquals(1, outbox.size());
+    }
+
+    private static Article article(Long id, String title, int sentences) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            content.append(title).append(" step ").append(i).append(" explains how TaskFlow handles this case. ");
+            content.append("Admins can change the setting from the workspace settings page at any time. ");
+        }
+        Article article = new Article(title, content.toString(), "faq");
+        article.setId(id);
+        return article;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.advisor.SentimentAnalysisAdvisor;
+import com.example.advisor.supportbot.model.entity.Customer;
+import com.example.advisor.supportbot.model.enums.SentimentType;
+import com.example.advisor.supportbot.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for ChatEnrichmentService.
+ * Uses a mocked knowledge base and customer repository with artificial
+ * latency.
+ */
+public class ChatEnrichmentServiceTest {
+
+    private KnowledgeBaseService knowledgeBaseService;
+    private CustomerRepository customerRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatEnrichmentService service;
+
+    private final Document article = new Document("export", "Use CSV export from the project menu.", java.util.Map.of());
+
+    @BeforeEach
+    void setUp() {
+        knowledgeBaseService = mock(KnowledgeBaseService.class);
+        customerRepository = mock(CustomerRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ChatEnrichmentService(knowledgeBaseService, customerRepository, new SentimentAnalysisAdvisor(),
+                meterRegistry);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMillis(500));
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("faq");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testStepsRunInParallel() {
+        Customer customer = new Customer();
+        customer.setId(7L);
+        when(knowledgeBaseService.searchArticles(anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return List.of(article);
+        });
+        when(customerRepository.findById(7L)).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return Optional.of(customer);
+        });
+
+        long started = System.nanoTime();
+        ChatEnrichment enrichment = service.enrich("Thanks, how do I export?", 7L);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        Assertions.assertEquals(List.of(article), enrichment.sources());
+        Assertions.assertEquals(Optional.of(customer), enrichment.customer());
+        Assertions.assertEquals("faq", enrichment.category());
+        Assertions.assertEquals(SentimentType.POSITIVE, enrichment.sentiment());
+        Assertions.assertTrue(elapsedMillis < 380, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testSlowRetrievalIsDroppedAtTheDeadline() {
+        when(knowledgeBaseService.searchArticles(anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return List.of(article);
+        });
+        when(customerRepository.findById(7L)).thenReturn(Optional.of(new Customer()));
+
+        long started = System.nanoTime();
+        ChatEnrichment enrichment = service.enrich("How do I export?", 7L);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        Assertions.assertTrue(enrichment.sources().isEmpty());
+        Assertions.assertTrue(enrichment.customer().isPresent());
+        Assertions.assertTrue(elapsedMillis < 1_500, "took " + elapsedMillis + " ms");
+        Assertions.assertEquals(1.0, meterRegistry.get("supportbot.enrichment.degraded")
+                .tag("step", "retrieval").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    public void testFailedLookupDegradesToNoCustomer() {
+        when(knowledgeBaseService.searchArticles(anyString(), anyInt())).thenReturn(List.of(article));
+        when(customerRepository.findById(7L)).thenThrow(new IllegalStateException("Connection refused"));
+
+        ChatEnrichment enrichment = service.enrich("How do I export?", 7L);
+
+        Assertions.assertEquals(List.of(article), enrichment.sources());
+        Assertions.assertTrue(enrichment.customer().isEmpty());
+        Assertions.assertEquals(1.0, meterRegistry.get("supportbot.enrichment.degraded")
+                .tag("step", "customer").tag("reason", "error").counter().count());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.exception.KnowledgeBaseException;
+import com.example.advisor.supportbot.ingestion.KnowledgeBaseLock;
+import com.example.advisor.supportbot.keyword.KeywordLexicon;
+import com.example.advisor.supportbot.keyword.SupportLexicon;
+import com.example.advisor.supportbot.search.Bm25Index;
+import com.example.advisor.supportbot.vectorstore.EmbeddedQuerySearch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit Test for KnowledgeBaseService hybrid retrieval.
+ * Uses a mocked VectorStore and a real BM25 index.
+ */
+public class KnowledgeBaseServiceTest {
+
+    private VectorStore vectorStore;
+    private Bm25Index lexicalIndex;
+    private KnowledgeBaseLock knowledgeBaseLock;
+    private KnowledgeBaseService service;
+
+    private final Document sso = new Document("sso", "Enterprise plans support single sign-on via SAML 2.0.",
+            Map.of("category", "faq"));
+    private final Document forbidden = new Document("403", "Error 403 means your role lacks permission for the project.",
+            Map.of("category", "troubleshooting"));
+    private final Document export = new Document("export", "Use CSV export from the project menu to download tasks.",
+            Map.of("category", "faq"));
+    private final Document refund = new Document("refund", "Refunds are issued within 14 days of purchase.",
+            Map.of("category", "billing"));
+
+    @BeforeEach
+    void setUp() {
+        vectorStore = mock(VectorStore.class);
+        lexicalIndex = new Bm25Index();
+        lexicalIndex.add(List.of(sso, forbidden, export, refund));
+        knowledgeBaseLock = new KnowledgeBaseLock();
+        service = knowledgeBaseService(vectorStore);
+    }
+
+    @Test
+    public void testExactTermsAreFusedWithVectorResults() {
+        // Embeddings rank the error-code chunk last; BM25 ranks it first
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(sso, export, forbidden));
+
+        List<Document> results = service.searchArticles("error 403 on project", 2);
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("403", results.get(0).getId());
+    }
+
+    @Test
+    public void testLexicalFallbackWhenEmbeddingFails() {
+        when(vectorStore.similaritySearch(any(SearchRequest.class)))
+                .thenThrow(new IllegalStateException("Connection refused"));
+
+        List<Document> results = service.searchByCategory("how do I get a CSV export", "faq", 3);
+
+        Assertions.assertEquals(List.of("export"), results.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void testFailureWithoutLexicalMatchesIsReported() {
+        when(vectorStore.similaritySearch(any(SearchRequest.class)))
+                .thenThrow(new IllegalStateException("Connection refused"));
+
+        Assertions.assertThrows(KnowledgeBaseException.class, () -> service.searchArticles("zebra", 3));
+    }
+
+    @Test
+    public void testQueryIsEmbeddedOutsideTheLock() {
+        VectorStore store = mock(VectorStore.class, withSettings().extraInterfaces(EmbeddedQuerySearch.class));
+        EmbeddedQuerySearch embeddedSearch = (EmbeddedQuerySearch) store;
+        float[] embedding = {1f, 0f};
+        // A refresh published while the query is being embedded must not wait for the search
+        when(embeddedSearch.embedQuery(anyString())).thenAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> knowledgeBaseLock.publish(() -> { })).get(5, TimeUnit.SECONDS);
+            return embedding;
+        });
+        when(embeddedSearch.similaritySearch(any(SearchRequest.class), any(float[].class))).thenReturn(List.of(sso));
+        KnowledgeBaseService embeddingService = knowledgeBaseService(store);
+
+        List<Document> results = embeddingService.searchArticles("single sign-on", 1);
+
+        Assertions.assertEquals(List.of("sso"), results.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void testLexicalFallbackWhenQueryCannotBeEmbedded() {
+        VectorStore store = mock(VectorStore.class, withSettings().extraInterfaces(EmbeddedQuerySearch.class));
+        when(((EmbeddedQuerySearch) store).embedQuery(anyString()))
+                .thenThrow(new IllegalStateException("Connection refused"));
+        KnowledgeBaseService embeddingService = knowledgeBaseService(store);
+
+        List<Document> results = embeddingService.searchByCategory("how do I get a CSV export", "faq", 3);
+
+        Assertions.assertEquals(List.of("export"), results.stream().map(Document::getId).toList());
+    }
+
+    private KnowledgeBaseService knowledgeBaseService(VectorStore store) {
+        KnowledgeBaseService knowledgeBaseService = new KnowledgeBaseService(store, lexicalIndex, knowledgeBaseLock,
+                KeywordLexicon.of(SupportLexicon.defaultMatcher()));
+        ReflectionTestUtils.setField(knowledgeBaseService, "rrfK", 60);
+        ReflectionTestUtils.setField(knowledgeBaseService, "candidates", 20);
+        return knowledgeBaseService;
+    }
+}
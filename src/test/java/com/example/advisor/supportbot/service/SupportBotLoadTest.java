@@ -0,0 +1,113 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.model.dto.ChatRequest;
+import com.example.advisor.supportbot.repository.CustomerRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load Test for SupportBotService on platform vs virtual threads.
+ * The model is a stub that blocks for a fixed time, like a remote LLM call,
+ * and records how many calls were in flight at once.
+ */
+public class SupportBotLoadTest {
+
+    private static final int REQUESTS = 200;
+    private static final long MODEL_LATENCY_MILLIS = 200;
+    // Stands in for the servlet container's worker pool
+    private static final int PLATFORM_THREADS = 20;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private SupportBotService service;
+
+    @BeforeEach
+    void setUp() {
+        ChatModel slowModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(MODEL_LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return ToolCallingChatOptions.builder().build();
+            }
+        };
+        KnowledgeBaseService knowledgeBaseService = mock(KnowledgeBaseService.class);
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+
+        service = SupportBotServiceFixture.builder(ChatClient.builder(slowModel), knowledgeBaseService,
+                mock(CustomerRepository.class)).capacity(REQUESTS).build();
+    }
+
+    @Test
+    public void testVirtualThreadsRemoveThePoolCeiling() throws Exception {
+        long platformMillis = runLoad(Executors.newFixedThreadPool(PLATFORM_THREADS));
+        int platformPeak = peakInFlight.getAndSet(0);
+
+        long virtualMillis = runLoad(Executors.newVirtualThreadPerTaskExecutor());
+        int virtualPeak = peakInFlight.get();
+
+        // A bounded pool caps the model calls in flight at its size
+        Assertions.assertTrue(platformPeak <= PLATFORM_THREADS, "platform peak " + platformPeak);
+        Assertions.assertTrue(platformMillis >= REQUESTS / PLATFORM_THREADS * MODEL_LATENCY_MILLIS,
+                "platform took " + platformMillis + " ms");
+
+        // With a virtual thread per request most of them wait on the model
+        // together; what is left of the elapsed time is CPU work
+        Assertions.assertTrue(virtualPeak > REQUESTS / 2, "virtual peak " + virtualPeak);
+        Assertions.assertTrue(virtualMillis < platformMillis,
+                "virtual took " + virtualMillis + " ms, platform " + platformMillis + " ms");
+    }
+
+    /**
+     * Sends all requests at once and waits for the responses.
+     *
+     * @return elapsed milliseconds
+     */
+    private long runLoad(ExecutorService executor) throws Exception {
+        long started = System.nanoTime();
+        try (executor) {
+            List<Future<?>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                ChatRequest request = new ChatRequest("How do I export tasks? #" + i, String.valueOf(i), null);
+                responses.add(executor.submit(() -> service.chat(request)));
+            }
+            for (Future<?> response : responses) {
+                response.get();
+            }
+        }
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.advisor.CustomerContextAdvisor;
+import com.example.advisor.supportbot.advisor.ModelConcurrencyAdvisor;
+import com.example.advisor.supportbot.advisor.ResponseFormattingAdvisor;
+import com.example.advisor.supportbot.advisor.SentimentAnalysisAdvisor;
+import com.example.advisor.supportbot.advisor.SupportSafetyAdvisor;
+import com.example.advisor.supportbot.cache.SemanticAnswerCache;
+import com.example.advisor.supportbot.concurrency.AdaptiveConcurrencyLimiter;
+import com.example.advisor.supportbot.concurrency.PlanAdmissionScheduler;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
+import com.example.advisor.supportbot.repository.CustomerRepository;
+import com.example.advisor.supportbot.repository.TicketRepository;
+import com.example.advisor.supportbot.tool.TicketTools;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Builds a SupportBotService with the real advisors around the given chat
+ * client, knowledge base and customer repository. Limiter and admission
+ * have room for {@code capacity} requests unless replaced.
+ */
+final class SupportBotServiceFixture {
+
+    private final ChatClient.Builder chatClientBuilder;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final CustomerRepository customerRepository;
+    private int capacity = 64;
+    private ChatMemory chatMemory;
+    private SemanticAnswerCache answerCache;
+    private TicketTools ticketTools;
+    private PlanAdmissionScheduler admissionScheduler;
+    private MeterRegistry meterRegistry;
+
+    private SupportBotServiceFixture(ChatClient.Builder chatClientBuilder, KnowledgeBaseService knowledgeBaseService,
+            CustomerRepository customerRepository) {
+        this.chatClientBuilder = chatClientBuilder;
+        this.knowledgeBaseService = knowledgeBaseService;
+        this.customerRepository = customerRepository;
+    }
+
+    static SupportBotServiceFixture builder(ChatClient.Builder chatClientBuilder,
+            KnowledgeBaseService knowledgeBaseService, CustomerRepository customerRepository) {
+        return new SupportBotServiceFixture(chatClientBuilder, knowledgeBaseService, customerRepository);
+    }
+
+    SupportBotServiceFixture capacity(int capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    SupportBotServiceFixture chatMemory(ChatMemory chatMemory) {
+        this.chatMemory = chatMemory;
+        return this;
+    }
+
+    SupportBotServiceFixture answerCache(SemanticAnswerCache answerCache) {
+        this.answerCache = answerCache;
+        return this;
+    }
+
+    SupportBotServiceFixture ticketTools(TicketTools ticketTools) {
+        this.ticketTools = ticketTools;
+        return this;
+    }
+
+    SupportBotServiceFixture admissionScheduler(PlanAdmissionScheduler admissionScheduler) {
+        this.admissionScheduler = admissionScheduler;
+        return this;
+    }
+
+    SupportBotServiceFixture meterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        return this;
+    }
+
+    SupportBotService build() {
+        ChatMemory memory = chatMemory != null ? chatMemory : MessageWindowChatMemory.builder().build();
+        MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+        ChatEnrichmentService enrichment = new ChatEnrichmentService(knowledgeBaseService, customerRepository,
+                new SentimentAnalysisAdvisor(), registry);
+        ReflectionTestUtils.setField(enrichment, "timeout", Duration.ofSeconds(2));
+        SupportBotService service = new SupportBotService(chatClientBuilder, knowledgeBaseService,
+                new SupportSafetyAdvisor(), new CustomerContextAdvisor(customerRepository),
+                new SentimentAnalysisAdvisor(),
+                ticketTools != null ? ticketTools : new TicketTools(mock(TicketRepository.class), customerRepository),
+                new ResponseFormattingAdvisor(), modelConcurrencyAdvisor(capacity),
+                MessageChatMemoryAdvisor.builder(memory).build(), memory,
+                answerCache != null ? answerCache : mock(SemanticAnswerCache.class),
+                enrichment, admissionScheduler != null ? admissionScheduler : admissionScheduler(capacity), registry);
+        ReflectionTestUtils.setField(service, "systemPromptResource", new ClassPathResource("prompts/system.st"));
+        ReflectionTestUtils.setField(service, "answerCacheEnabled", true);
+        ReflectionTestUtils.setField(service, "coalescingEnabled", true);
+        return service;
+    }
+
+    /**
+     * Room for {@code capacity} calls and never backs off, so the limiter
+     * never turns one away.
+     */
+    static ModelConcurrencyAdvisor modelConcurrencyAdvisor(int capacity) {
+        return new ModelConcurrencyAdvisor(new AdaptiveConcurrencyLimiter("chat",
+                new AdaptiveConcurrencyLimiter.Settings(capacity, 1, capacity, Double.MAX_VALUE, 0.9)));
+    }
+
+    /**
+     * Room for {@code capacity} requests, so admission never turns one away.
+     */
+    static PlanAdmissionScheduler admissionScheduler(int capacity) {
+        PlanAdmissionScheduler.Lane lane = new PlanAdmissionScheduler.Lane(1, capacity, Duration.ofSeconds(10), false);
+        return new PlanAdmissionScheduler(capacity,
+                Map.of(CustomerPlan.FREE, lane, CustomerPlan.PREMIUM, lane, CustomerPlan.ENTERPRISE, lane));
+    }
+}
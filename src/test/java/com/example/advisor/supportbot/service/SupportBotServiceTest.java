@@ -0,0 +1,455 @@
+package com.example.advisor.supportbot.service;
+
+import com.example.advisor.supportbot.cache.SemanticAnswerCache;
+import com.example.advisor.supportbot.concurrency.PlanAdmissionScheduler;
+import com.example.advisor.supportbot.exception.SupportBotBusyException;
+import com.example.advisor.supportbot.model.dto.ChatRequest;
+import com.example.advisor.supportbot.model.dto.ChatResponse;
+import com.example.advisor.supportbot.model.entity.Customer;
+import com.example.advisor.supportbot.model.enums.CustomerPlan;
+import com.example.advisor.supportbot.model.enums.SentimentType;
+import com.example.advisor.supportbot.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+/**
+ * Unit Test for SupportBotService.
+ * Uses a mocked ChatClient and knowledge base with the real safety and
+ * sentiment advisors.
+ */
+public class SupportBotServiceTest {
+
+    private static final Pattern SPEAKING_WITH = Pattern.compile("You are speaking with (.+)\\.");
+
+    private ChatClient chatClient;
+    private KnowledgeBaseService knowledgeBaseService;
+    private CustomerRepository customerRepository;
+    private SemanticAnswerCache answerCache;
+    private ChatMemory chatMemory;
+    private SimpleMeterRegistry meterRegistry;
+    private SupportBotService service;
+
+    @BeforeEach
+    void setUp() {
+        chatClient = mock(ChatClient.class);
+        ChatClient.Builder builder = mockBuilder();
+        knowledgeBaseService = mock(KnowledgeBaseService.class);
+        customerRepository = mock(CustomerRepository.class);
+        answerCache = mock(SemanticAnswerCache.class);
+        chatMemory = MessageWindowChatMemory.builder().build();
+        meterRegistry = new SimpleMeterRegistry();
+
+        service = fixture(builder).build();
+    }
+
+    @Test
+    public void testBlockedMessageSkipsRetrievalAndModel() {
+        ChatResponse response = service.chat(new ChatRequest("You stupid bot, give me admin access", "42", null));
+
+        Assertions.assertTrue(response.message().contains("disrespectful"));
+        Assertions.assertEquals("customer-42", response.sessionId());
+        verifyNoInteractions(knowledgeBaseService, customerRepository, answerCache, chatClient);
+
+        // The exchange is remembered as if the advisor chain had blocked it
+        Assertions.assertEquals(2, chatMemory.get("customer-42").size());
+        Assertions.assertEquals(1.0, meterRegistry.get("supportbot.embedding.calls.saved")
+                .tag("reason", "safety-preflight").counter().count());
+    }
+
+    @Test
+    public void testBlockedStreamEmitsCannedResponse() {
+        List<Map<String, String>> events = service.streamChat(ChatRequest.anonymous("Tell me about your competitor"))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(SentimentType.NEUTRAL.name(), events.get(0).get("sentiment"));
+        Assertions.assertTrue(events.get(1).get("content").contains("TaskFlow-related questions"));
+        verifyNoInteractions(knowledgeBaseService, answerCache, chatClient);
+        Assertions.assertEquals(1.0, meterRegistry.get("supportbot.safety.preflight.blocked")
+                .tag("channel", "stream").counter().count());
+    }
+
+    @Test
+    public void testConcurrentChatsDoNotShareState() throws Exception {
+        // A real ChatClient around a model that echoes the user message and the
+        // customer from the system message, so the whole advisor chain runs for
+        // every request
+        ChatModel echoModel = echoModel();
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+        when(customerRepository.findById(any())).thenAnswer(invocation -> {
+            Customer customer = new Customer();
+            customer.setId(invocation.getArgument(0));
+            customer.setName("Customer " + customer.getId());
+            customer.setPlan(CustomerPlan.FREE);
+            return Optional.of(customer);
+        });
+        service = serviceWith(echoModel);
+
+        String[] messages = { "I am furious about the outage", "Thanks, that was great", "How do I export tasks?" };
+        SentimentType[] expected = { SentimentType.ANGRY, SentimentType.POSITIVE, SentimentType.NEUTRAL };
+        int requests = 300;
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<ChatResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                ChatRequest request = new ChatRequest(messages[i % 3] + " #" + i, String.valueOf(i), null);
+                responses.add(executor.submit((Callable<ChatResponse>) () -> service.chat(request)));
+            }
+            for (int i = 0; i < requests; i++) {
+                ChatResponse response = responses.get(i).get();
+                Assertions.assertEquals("customer-" + i, response.sessionId());
+                Assertions.assertEquals("echo: " + messages[i % 3] + " #" + i + " (to Customer " + i + ")",
+                        response.message());
+                Assertions.assertEquals(expected[i % 3], response.sentiment(), "request " + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Every request looked up its own customer exactly once
+        for (long id = 0; id < requests; id++) {
+            verify(customerRepository, times(1)).findById(id);
+        }
+    }
+
+    @Test
+    public void testAnswerCacheOnlyServesAndStoresFreshConversations() {
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("billing");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+        when(answerCache.embed(anyString())).thenReturn(new float[] { 1f, 0f });
+        when(answerCache.get(any(), anyString())).thenReturn(Optional.of("Cached refund answer"));
+        service = serviceWith(echoModel());
+        String question = "How do I get a refund for that?";
+
+        // One session already talked about an invoice, the other is new
+        chatMemory.add("session-a", List.of(new UserMessage("I was charged twice for invoice 1001"),
+                new AssistantMessage("Sorry about that.")));
+
+        ChatResponse withHistory = service.chat(new ChatRequest(question, null, "session-a"));
+        ChatResponse fresh = service.chat(new ChatRequest(question, null, "session-b"));
+
+        // The follow-up is answered from its own conversation and not stored
+        Assertions.assertEquals("echo: " + question, withHistory.message());
+        Assertions.assertEquals("Cached refund answer", fresh.message());
+        verify(answerCache, times(1)).get(any(), anyString());
+        verify(answerCache, times(0)).put(any(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    public void testIdenticalAnonymousChatsShareOneCompletion() throws Exception {
+        int requests = 8;
+        AtomicInteger modelCalls = new AtomicInteger();
+        CountDownLatch followersWaiting = new CountDownLatch(1);
+        // Holds the first completion until every other request has joined it
+        ChatModel slowModel = new ChatModel() {
+            @Override
+            public org.springframework.ai.chat.model.ChatResponse call(Prompt prompt) {
+                modelCalls.incrementAndGet();
+                try {
+                    followersWaiting.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new org.springframework.ai.chat.model.ChatResponse(List.of(new Generation(
+                        new AssistantMessage("Use CSV export from the project menu."))));
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return ToolCallingChatOptions.builder().build();
+            }
+        };
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+        service = serviceWith(slowModel);
+        ReflectionTestUtils.setField(service, "answerCacheEnabled", false);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<ChatResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                // Same question, worded slightly differently, from separate sessions
+                ChatRequest request = new ChatRequest(i % 2 == 0 ? "How do I export tasks?" : "how do I  export tasks",
+                        null, "session-" + i);
+                responses.add(executor.submit((Callable<ChatResponse>) () -> service.chat(request)));
+            }
+            while (meterRegistry.get("supportbot.singleflight.coalesced").tag("flight", "chat").counter()
+                    .count() < requests - 1) {
+                Thread.sleep(10);
+            }
+            followersWaiting.countDown();
+            for (int i = 0; i < requests; i++) {
+                ChatResponse response = responses.get(i).get(5, TimeUnit.SECONDS);
+                Assertions.assertEquals("session-" + i, response.sessionId());
+                Assertions.assertTrue(response.message().contains("CSV export"));
+                // Every session remembers its own exchange
+                Assertions.assertEquals(2, chatMemory.get("session-" + i).size(), "session " + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(1, modelCalls.get());
+        verify(knowledgeBaseService, times(1)).searchArticles(anyString(), anyInt());
+        Assertions.assertEquals(requests - 1, meterRegistry.get("supportbot.embedding.calls.saved")
+                .tag("reason", "coalesced").counter().count());
+    }
+
+    @Test
+    public void testIdenticalAnonymousStreamsShareOneUpstream() throws Exception {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        ChatClient.ChatClientRequestSpec spec = mock(ChatClient.ChatClientRequestSpec.class,
+                org.mockito.Answers.RETURNS_SELF);
+        ChatClient.StreamResponseSpec streamSpec = mock(ChatClient.StreamResponseSpec.class);
+        when(chatClient.prompt()).thenReturn(spec);
+        when(spec.stream()).thenReturn(streamSpec);
+        when(streamSpec.content()).thenReturn(upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+
+        CompletableFuture<String> first = contentOf(
+                service.streamChat(new ChatRequest("How do I export tasks?", null, "session-1")));
+        awaitSubscriptions(subscriptions, 1);
+        upstream.tryEmitNext("Use CSV ");
+        // Joins late and still gets the whole answer
+        CompletableFuture<String> second = contentOf(
+                service.streamChat(new ChatRequest("How do I export tasks?", null, "session-2")));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("supportbot.singleflight.coalesced").tag("flight", "stream").counter().count() < 1
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        upstream.tryEmitNext("export.");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals("Use CSV export.", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("Use CSV export.", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, subscriptions.get());
+        // The leader's exchange is recorded by the memory advisor, which is
+        // mocked away here; the follower records its own
+        Assertions.assertEquals(2, chatMemory.get("session-2").size());
+    }
+
+    @Test
+    public void testFollowerAsksAgainOnceTheSharedStreamCallsATool() throws Exception {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        List<ToolCallback[]> toolCallbacks = new CopyOnWriteArrayList<>();
+        ChatClient.ChatClientRequestSpec spec = mock(ChatClient.ChatClientRequestSpec.class,
+                org.mockito.Answers.RETURNS_SELF);
+        when(spec.toolCallbacks(any(ToolCallback[].class))).thenAnswer(invocation -> {
+            toolCallbacks.add((ToolCallback[]) invocation.getRawArguments()[0]);
+            return spec;
+        });
+        ChatClient.StreamResponseSpec streamSpec = mock(ChatClient.StreamResponseSpec.class);
+        when(chatClient.prompt()).thenReturn(spec);
+        when(spec.stream()).thenReturn(streamSpec);
+        when(streamSpec.content()).thenReturn(
+                upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet()),
+                Flux.just("Please sign in to open a ticket."));
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+
+        CompletableFuture<String> leader = contentOf(
+                service.streamChat(new ChatRequest("I need a refund for invoice 1001", null, "session-1")));
+        awaitSubscriptions(subscriptions, 1);
+        CompletableFuture<String> follower = contentOf(
+                service.streamChat(new ChatRequest("I need a refund for invoice 1001", null, "session-2")));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("supportbot.singleflight.coalesced").tag("flight", "stream").counter().count() < 1
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // The model calls a tool for the leader's request, then answers with its result
+        toolCallbacks.get(0)[0].call("{\"customerId\": 7, \"subject\": \"Refund for invoice 1001\"}");
+        upstream.tryEmitNext("Ticket #12 is open for your refund.");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals("Ticket #12 is open for your refund.", leader.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("Please sign in to open a ticket.", follower.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, toolCallbacks.size());
+        // Nothing of the leader's ticket reached the follower's memory
+        Assertions.assertTrue(chatMemory.get("session-2").stream().noneMatch(message -> message.getText()
+                .contains("Ticket #12")));
+        Assertions.assertEquals(0.0, meterRegistry.get("supportbot.embedding.calls.saved").tag("reason", "coalesced")
+                .counter().count());
+    }
+
+    @Test
+    public void testStreamsWithDifferentHistoriesAreNotShared() throws Exception {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().multicast().onBackpressureBuffer();
+        ChatClient.ChatClientRequestSpec spec = mock(ChatClient.ChatClientRequestSpec.class,
+                org.mockito.Answers.RETURNS_SELF);
+        ChatClient.StreamResponseSpec streamSpec = mock(ChatClient.StreamResponseSpec.class);
+        when(chatClient.prompt()).thenReturn(spec);
+        when(spec.stream()).thenReturn(streamSpec);
+        when(streamSpec.content()).thenReturn(upstream.asFlux().doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+        chatMemory.add("session-2", List.of(new UserMessage("My export to Excel failed"),
+                new AssistantMessage("Which project were you exporting?")));
+
+        CompletableFuture<String> fresh = contentOf(
+                service.streamChat(new ChatRequest("How do I export tasks?", null, "session-1")));
+        CompletableFuture<String> followUp = contentOf(
+                service.streamChat(new ChatRequest("How do I export tasks?", null, "session-2")));
+        awaitSubscriptions(subscriptions, 2);
+        upstream.tryEmitNext("Use CSV export.");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals("Use CSV export.", fresh.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("Use CSV export.", followUp.get(5, TimeUnit.SECONDS));
+        // The follow-up ran its own completion, and nothing of the other
+        // session's was recorded in its memory
+        Assertions.assertEquals(2, subscriptions.get());
+        Assertions.assertEquals(2, chatMemory.get("session-2").size());
+        Assertions.assertEquals(0.0, meterRegistry.get("supportbot.singleflight.coalesced").tag("flight", "stream")
+                .counter().count());
+    }
+
+    @Test
+    public void testBusyChatIsTurnedAwayBeforeTheModel() {
+        PlanAdmissionScheduler full = mock(PlanAdmissionScheduler.class);
+        when(full.acquire(any())).thenThrow(new SupportBotBusyException("busy", Duration.ofSeconds(3)));
+        when(full.acquireAsync(any())).thenReturn(Mono.error(new SupportBotBusyException("busy", Duration.ofSeconds(3))));
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.formatContext(any())).thenReturn("");
+        service = fixture(mockBuilder()).admissionScheduler(full).build();
+
+        Assertions.assertThrows(SupportBotBusyException.class,
+                () -> service.chat(new ChatRequest("How do I export tasks?", "7", null)));
+        List<Map<String, String>> events = service.streamChat(new ChatRequest("How do I export tasks?", "7", null))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(SupportBotService.BUSY_MESSAGE, events.get(events.size() - 1).get("content"));
+        verifyNoInteractions(chatClient);
+    }
+
+    @Test
+    public void testStreamDoesNotBlockTheSubscriber() throws Exception {
+        when(knowledgeBaseService.categorizeQuery(anyString())).thenReturn("general");
+        when(knowledgeBaseService.searchArticles(anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return List.of();
+        });
+        List<Map<String, String>> events = new CopyOnWriteArrayList<>();
+
+        long started = System.nanoTime();
+        service.streamChat(new ChatRequest("How do I export tasks?", "7", null)).subscribe(events::add);
+        long subscribeMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // Retrieval is still running, but the client already knows
+        Assertions.assertTrue(subscribeMillis < 250, "subscribe took " + subscribeMillis + " ms");
+        Assertions.assertEquals(List.of(Map.of("sentiment", "NEUTRAL"), Map.of("status", "retrieving")), events);
+        verifyNoInteractions(chatClient);
+    }
+
+    /**
+     * Waits until the model stream has been subscribed {@code count} times.
+     */
+    private static void awaitSubscriptions(AtomicInteger subscriptions, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriptions.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(count, subscriptions.get());
+    }
+
+    /**
+     * Subscribes and joins the content events of a stream.
+     */
+    private static CompletableFuture<String> contentOf(Flux<Map<String, String>> stream) {
+        return stream.mapNotNull(event -> event.get("content"))
+                .collect(Collectors.joining())
+                .toFuture();
+    }
+
+    /**
+     * A model that echoes the user message and, when the system message names
+     * a customer, who it was told it is speaking with.
+     */
+    private static ChatModel echoModel() {
+        return new ChatModel() {
+            @Override
+            public org.springframework.ai.chat.model.ChatResponse call(Prompt prompt) {
+                Thread.yield();
+                Matcher customer = SPEAKING_WITH.matcher(prompt.getSystemMessage().getText());
+                String echo = "echo: " + prompt.getUserMessage().getText()
+                        + (customer.find() ? " (to " + customer.group(1) + ")" : "");
+                return new org.springframework.ai.chat.model.ChatResponse(List.of(new Generation(
+                        new AssistantMessage(echo))));
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return ToolCallingChatOptions.builder().build();
+            }
+        };
+    }
+
+    private SupportBotService serviceWith(ChatModel chatModel) {
+        return fixture(ChatClient.builder(chatModel)).build();
+    }
+
+    private SupportBotServiceFixture fixture(ChatClient.Builder builder) {
+        return SupportBotServiceFixture.builder(builder, knowledgeBaseService, customerRepository)
+                .chatMemory(chatMemory)
+                .answerCache(answerCache)
+                .meterRegistry(meterRegistry);
+    }
+
+    private ChatClient.Builder mockBuilder() {
+        ChatClient.Builder builder = mock(ChatClient.Builder.class);
+        when(builder.build()).thenReturn(chatClient);
+        return builder;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.advisor.supportbot.streaming;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Unit Test for StreamGuard.
+ * Checks that cancellation reaches the model stream and is counted.
+ */
+public class StreamGuardTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StreamGuard guard = new StreamGuard(4).bindTo(registry);
+
+    @Test
+    public void testCompletedStreamPassesThrough() {
+        List<Map<String, String>> frames = guarded(tokens(3), Function.identity()).collectList().block();
+
+        Assertions.assertEquals(List.of(content("t0"), content("t1"), content("t2")), frames);
+        Assertions.assertEquals(3.0, guard.expectedTokens());
+        Assertions.assertEquals(0.0, count("supportbot.stream.cancelled"));
+    }
+
+    @Test
+    public void testClientCancelReachesTheModelStream() {
+        // A completed stream of 10 tokens sets the expected length
+        guarded(tokens(10), Function.identity()).blockLast();
+
+        Sinks.Many<Map<String, String>> model = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean modelCancelled = new AtomicBoolean();
+        BaseSubscriber<Map<String, String>> client = new BaseSubscriber<>() {
+        };
+        guarded(model.asFlux().doOnCancel(() -> modelCancelled.set(true)), Function.identity())
+                .subscribe(client);
+
+        model.tryEmitNext(content("a"));
+        model.tryEmitNext(content("b"));
+        model.tryEmitNext(content("c"));
+        client.dispose();
+
+        Assertions.assertTrue(modelCancelled.get());
+        Assertions.assertEquals(1.0, count("supportbot.stream.cancelled"));
+        Assertions.assertEquals(7.0, count("supportbot.stream.tokens.saved"));
+    }
+
+    @Test
+    public void testSlowClientOverflowsAndIsCutOff() {
+        Sinks.Many<Map<String, String>> model = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean modelCancelled = new AtomicBoolean();
+        AtomicBoolean responseEnded = new AtomicBoolean();
+        BaseSubscriber<Map<String, String>> client = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                responseEnded.set(true);
+            }
+        };
+        guarded(model.asFlux().doOnCancel(() -> modelCancelled.set(true)), Function.identity())
+                .subscribe(client);
+
+        // One frame is taken, four are buffered, the sixth overflows
+        for (int i = 0; i < 6; i++) {
+            model.tryEmitNext(content("t" + i));
+        }
+
+        Assertions.assertTrue(modelCancelled.get());
+        Assertions.assertEquals(1.0, count("supportbot.stream.overflows"));
+        Assertions.assertEquals(1.0, count("supportbot.stream.cancelled"));
+
+        // The buffered frames are still delivered before the response ends
+        Assertions.assertFalse(responseEnded.get());
+        client.request(4);
+        Assertions.assertTrue(responseEnded.get());
+    }
+
+    @Test
+    public void testCancelCountsTokensBeforeFraming() {
+        guarded(tokens(4), Function.identity()).blockLast();
+
+        List<Map<String, String>> frames = guarded(tokens(10), events -> events.buffer(5)
+                .map(batch -> content(String.valueOf(batch.size()))))
+                .take(1)
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(List.of(content("5")), frames);
+        Assertions.assertEquals(1.0, count("supportbot.stream.cancelled"));
+        Assertions.assertEquals(0.0, count("supportbot.stream.tokens.saved"));
+    }
+
+    private Flux<Map<String, String>> guarded(Flux<Map<String, String>> events,
+            Function<Flux<Map<String, String>>, Flux<Map<String, String>>> framing) {
+        return guard.bound(guard.generation(events, framing));
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private static Flux<Map<String, String>> tokens(int count) {
+        return Flux.range(0, count).map(i -> content("t" + i));
+    }
+
+    private static Map<String, String> content(String text) {
+        return Map.of("content", text);
+    }
+}
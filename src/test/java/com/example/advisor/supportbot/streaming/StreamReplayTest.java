@@ -0,0 +1,179 @@
+package com.example.advisor.supportbot.streaming;
+
+import com.example.advisor.supportbot.streaming.StreamReplay.StreamEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unit Test for StreamReplay.
+ * Drops and resumes readers of a stream fed through a sink.
+ */
+public class StreamReplayTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testReconnectResumesAfterTheLastEventSeen() {
+        StreamReplay replay = new StreamReplay(16, 10, Duration.ofMinutes(1), Duration.ofMinutes(1))
+                .bindTo(registry);
+        Sinks.Many<Map<String, String>> model = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicInteger generations = new AtomicInteger();
+        AtomicBoolean modelCancelled = new AtomicBoolean();
+
+        List<StreamEvent> first = new CopyOnWriteArrayList<>();
+        Disposable connection = replay.open(null, () -> {
+            generations.incrementAndGet();
+            return model.asFlux().doOnCancel(() -> modelCancelled.set(true));
+        }).subscribe(first::add);
+        model.tryEmitNext(content("a"));
+        model.tryEmitNext(content("b"));
+        connection.dispose();
+
+        // Produced while no client was connected
+        model.tryEmitNext(content("c"));
+
+        List<StreamEvent> second = new CopyOnWriteArrayList<>();
+        replay.open(first.get(1).id(), () -> {
+            generations.incrementAndGet();
+            return Flux.empty();
+        }).subscribe(second::add);
+        model.tryEmitNext(content("d"));
+        model.tryEmitComplete();
+
+        Assertions.assertEquals(List.of(content("a"), content("b")), first.stream().map(StreamEvent::event).toList());
+        Assertions.assertEquals(List.of(content("c"), content("d")), second.stream().map(StreamEvent::event).toList());
+        Assertions.assertEquals(first.get(0).streamId(), second.get(0).streamId());
+        Assertions.assertEquals(3, second.get(0).sequence());
+        Assertions.assertEquals(1, generations.get());
+        Assertions.assertFalse(modelCancelled.get());
+        Assertions.assertEquals(1.0, resumed("replayed"));
+    }
+
+    @Test
+    public void testUnknownIdStartsANewStream() {
+        StreamReplay replay = new StreamReplay(16, 10, Duration.ofMinutes(1), Duration.ofMinutes(1))
+                .bindTo(registry);
+
+        List<StreamEvent> events = replay.open("gone:4", () -> Flux.just(content("fresh"))).collectList().block();
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(1, events.get(0).sequence());
+        Assertions.assertNotEquals("gone", events.get(0).streamId());
+        Assertions.assertEquals(1.0, resumed("missed"));
+    }
+
+    @Test
+    public void testIdOlderThanTheBufferStartsANewStream() {
+        StreamReplay replay = new StreamReplay(2, 10, Duration.ofMinutes(1), Duration.ofMinutes(1))
+                .bindTo(registry);
+        List<StreamEvent> events = replay.open(null, () -> Flux.just(content("a"), content("b"), content("c"),
+                content("d"))).collectList().block();
+
+        // Events 1 and 2 have been evicted, so resuming after 1 would leave a gap
+        List<StreamEvent> resumed = replay.open(events.get(0).id(), () -> Flux.just(content("again")))
+                .collectList().block();
+        List<StreamEvent> tail = replay.open(events.get(1).id(), () -> Flux.just(content("again")))
+                .collectList().block();
+
+        Assertions.assertEquals(List.of(content("again")), resumed.stream().map(StreamEvent::event).toList());
+        Assertions.assertEquals(List.of(content("c"), content("d")), tail.stream().map(StreamEvent::event).toList());
+    }
+
+    @Test
+    public void testGenerationIsCancelledWhenNobodyReconnects() throws Exception {
+        StreamReplay replay = new StreamReplay(16, 10, Duration.ofMillis(50), Duration.ofMinutes(1));
+        Sinks.Many<Map<String, String>> model = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean modelCancelled = new AtomicBoolean();
+
+        Disposable connection = replay.open(null, () -> model.asFlux().doOnCancel(() -> modelCancelled.set(true)))
+                .subscribe();
+        model.tryEmitNext(content("a"));
+        connection.dispose();
+
+        Assertions.assertFalse(modelCancelled.get());
+        awaitTrue(modelCancelled::get);
+        Assertions.assertEquals(0, replay.size());
+    }
+
+    @Test
+    public void testReaderOfAnAbandonedStreamIsNotLeftHanging() throws Exception {
+        StreamReplay replay = new StreamReplay(16, 10, Duration.ofMillis(50), Duration.ofMinutes(1));
+        Sinks.Many<Map<String, String>> model = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean modelCancelled = new AtomicBoolean();
+
+        List<StreamEvent> first = new CopyOnWriteArrayList<>();
+        Disposable connection = replay.open(null, () -> model.asFlux().doOnCancel(() -> modelCancelled.set(true)))
+                .subscribe(first::add);
+        model.tryEmitNext(content("a"));
+        model.tryEmitNext(content("b"));
+        // Looked up before the stream is abandoned, read after
+        Flux<StreamEvent> late = replay.resume(first.get(0).id());
+        Assertions.assertNotNull(late);
+        connection.dispose();
+        awaitTrue(modelCancelled::get);
+
+        List<StreamEvent> seen = new CopyOnWriteArrayList<>();
+        IllegalStateException ended = Assertions.assertThrows(IllegalStateException.class,
+                () -> late.doOnNext(seen::add).blockLast(Duration.ofSeconds(5)));
+        Assertions.assertTrue(ended.getMessage().endsWith("was abandoned"), ended.getMessage());
+        Assertions.assertEquals(List.of(content("b")), seen.stream().map(StreamEvent::event).toList());
+
+        // Once abandoned, the id starts a new stream
+        List<StreamEvent> fresh = replay.open(first.get(0).id(), () -> Flux.just(content("again")))
+                .collectList().block(Duration.ofSeconds(5));
+        Assertions.assertEquals(List.of(content("again")), fresh.stream().map(StreamEvent::event).toList());
+    }
+
+    @Test
+    public void testFinishedStreamIsEvictedAfterRetention() throws Exception {
+        StreamReplay replay = new StreamReplay(16, 10, Duration.ofMinutes(1), Duration.ofMillis(50));
+
+        List<StreamEvent> events = replay.open(null, () -> Flux.just(content("a"), content("b")))
+                .collectList().block();
+        Assertions.assertEquals(1, replay.size());
+
+        // Still resumable right after completion
+        List<StreamEvent> rest = replay.open(events.get(0).id(), Flux::empty).collectList().block();
+        Assertions.assertEquals(List.of(content("b")), rest.stream().map(StreamEvent::event).toList());
+
+        awaitTrue(() -> replay.size() == 0);
+    }
+
+    @Test
+    public void testStreamsPastTheLimitAreNotResumable() {
+        StreamReplay replay = new StreamReplay(16, 0, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        List<StreamEvent> events = replay.open(null, () -> Flux.just(content("a"))).collectList().block();
+
+        Assertions.assertNull(events.get(0).id());
+        Assertions.assertEquals(0, replay.size());
+    }
+
+    private double resumed(String outcome) {
+        return registry.get("supportbot.stream.resumed").tag("outcome", outcome).counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(condition.getAsBoolean());
+    }
+
+    private static Map<String, String> content(String text) {
+        return Map.of("content", text);
+    }
+}
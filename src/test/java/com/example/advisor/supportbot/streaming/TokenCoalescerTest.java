@@ -0,0 +1,101 @@
+package com.example.advisor.supportbot.streaming;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Unit Test for TokenCoalescer.
+ * Feeds token events through a sink and checks the frames that come out.
+ */
+public class TokenCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testTokensWithinTheWindowShareAFrame() throws Exception {
+        TokenCoalescer coalescer = new TokenCoalescer(Duration.ofMillis(200), 1024).bindTo(registry);
+        Sinks.Many<Map<String, String>> source = Sinks.many().unicast().onBackpressureBuffer();
+        List<Map<String, String>> frames = new CopyOnWriteArrayList<>();
+        coalescer.coalesce(source.asFlux()).subscribe(frames::add);
+
+        source.tryEmitNext(content("You"));
+        source.tryEmitNext(content(" can"));
+        source.tryEmitNext(content(" export"));
+        Assertions.assertTrue(frames.isEmpty());
+
+        // The window flushes without waiting for the stream to end
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (frames.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(List.of(content("You can export")), frames);
+        source.tryEmitComplete();
+
+        Assertions.assertEquals(3.0, registry.get("supportbot.stream.tokens").counter().count());
+        Assertions.assertEquals(1.0, registry.get("supportbot.stream.frames").counter().count());
+    }
+
+    @Test
+    public void testFullFrameIsFlushedAtOnce() {
+        TokenCoalescer coalescer = new TokenCoalescer(Duration.ofMinutes(1), 8);
+
+        List<Map<String, String>> frames = coalescer.coalesce(
+                Flux.just(content("abcd"), content("efgh"), content("ij"))).collectList().block();
+
+        Assertions.assertEquals(List.of(content("abcdefgh"), content("ij")), frames);
+    }
+
+    @Test
+    public void testOtherEventsKeepTheirPlace() {
+        TokenCoalescer coalescer = new TokenCoalescer(Duration.ofMinutes(1), 1024);
+
+        List<Map<String, String>> frames = coalescer.coalesce(Flux.just(Map.of("sentiment", "NEUTRAL"),
+                content("Hello"), content(" there"), Map.of("status", "done"), content("!"))).collectList().block();
+
+        Assertions.assertEquals(List.of(Map.of("sentiment", "NEUTRAL"), content("Hello there"),
+                Map.of("status", "done"), content("!")), frames);
+    }
+
+    @Test
+    public void testPendingContentIsFlushedBeforeAnError() {
+        TokenCoalescer coalescer = new TokenCoalescer(Duration.ofMinutes(1), 1024);
+        List<Map<String, String>> frames = new CopyOnWriteArrayList<>();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> coalescer.coalesce(
+                        Flux.just(content("partial")).concatWith(Flux.error(new IllegalStateException("boom"))))
+                .doOnNext(frames::add)
+                .blockLast());
+
+        Assertions.assertEquals(List.of(content("partial")), frames);
+    }
+
+    @Test
+    public void testZeroWindowPassesTokensThrough() {
+        TokenCoalescer coalescer = new TokenCoalescer(Duration.ZERO, 1024);
+
+        List<Map<String, String>> frames = coalescer.coalesce(Flux.just(content("a"), content("b")))
+                .collectList().block();
+
+        Assertions.assertEquals(List.of(content("a"), content("b")), frames);
+    }
+
+    @Test
+    public void testUtf8Length() {
+        Assertions.assertEquals(5, TokenCoalescer.utf8Length("hello"));
+        Assertions.assertEquals(2, TokenCoalescer.utf8Length("é"));
+        Assertions.assertEquals(3, TokenCoalescer.utf8Length("€"));
+        Assertions.assertEquals(4, TokenCoalescer.utf8Length("😀"));
+    }
+
+    private static Map<String, String> content(String text) {
+        return Map.of("content", text);
+    }
+}
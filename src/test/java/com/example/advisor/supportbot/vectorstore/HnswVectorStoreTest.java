@@ -0,0 +1,246 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Recall and concurrency test for HnswVectorStore.
+ * Uses synthetic clustered embeddings so no embedding API is needed.
+ */
+public class HnswVectorStoreTest {
+
+    private static final int DIMENSIONS = 48;
+    private static final int DOCUMENTS = 5_000;
+    private static final int QUERIES = 100;
+    private static final int TOP_K = 10;
+
+    @Test
+    public void testRecallAgainstBruteForceWithConcurrentInserts() throws Exception {
+        Random random = new Random(42);
+        float[][] centers = new float[40][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = randomVector(random, 1.0f, null);
+        }
+
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            String text = "doc-" + i;
+            embeddingModel.vectors.put(text, randomVector(random, 0.3f, centers[i % centers.length]));
+            documents.add(new Document("id-" + i, text, Map.of("category", i % 2 == 0 ? "faq" : "billing")));
+        }
+
+        HnswVectorStore store = HnswVectorStore.builder(embeddingModel)
+                .m(16)
+                .efConstruction(100)
+                .efSearch(64)
+                .build();
+
+        // Four writers insert disjoint batches while a reader keeps querying
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger readerQueries = new AtomicInteger();
+        embeddingModel.vectors.put("probe", centers[0]);
+        Future<?> reader = executor.submit(() -> {
+            while (writing.get()) {
+                store.similaritySearch(SearchRequest.builder().query("probe").topK(TOP_K).build());
+                readerQueries.incrementAndGet();
+            }
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        int batchSize = 250;
+        for (int start = 0; start < DOCUMENTS; start += batchSize) {
+            List<Document> batch = documents.subList(start, Math.min(DOCUMENTS, start + batchSize));
+            writers.add(executor.submit(() -> store.add(batch)));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        reader.get();
+        executor.shutdown();
+
+        Assertions.assertEquals(DOCUMENTS, store.size());
+        Assertions.assertTrue(readerQueries.get() > 0, "reader should have queried during inserts");
+
+        // Compare against an exact scan
+        List<float[]> unitVectors = documents.stream()
+                .map(doc -> VectorMath.normalize(embeddingModel.vectors.get(doc.getText())))
+                .toList();
+        double totalRecall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            String queryText = "query-" + q;
+            float[] query = randomVector(random, 0.3f, centers[random.nextInt(centers.length)]);
+            embeddingModel.vectors.put(queryText, query);
+
+            Set<String> expected = bruteForceTopK(unitVectors, documents, query);
+            Set<String> actual = new HashSet<>();
+            store.similaritySearch(SearchRequest.builder().query(queryText).topK(TOP_K).build())
+                    .forEach(doc -> actual.add(doc.getId()));
+
+            actual.retainAll(expected);
+            totalRecall += actual.size() / (double) TOP_K;
+        }
+        double recall = totalRecall / QUERIES;
+        Assertions.assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    public void testFilterAndDelete() {
+        // Like SimpleVectorStore, results below similarity 0 are dropped, so
+        // keep all vectors in the positive orthant
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        Random random = new Random(7);
+        float[] positive = new float[DIMENSIONS];
+        Arrays.fill(positive, 3f);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            embeddingModel.vectors.put("doc-" + i, randomVector(random, 1.0f, positive));
+            documents.add(new Document("id-" + i, "doc-" + i, Map.of("category", i < 5 ? "billing" : "faq")));
+        }
+        HnswVectorStore store = HnswVectorStore.builder(embeddingModel).build();
+        store.add(documents);
+        embeddingModel.vectors.put("q", randomVector(random, 1.0f, positive));
+
+        List<Document> billing = store.similaritySearch(SearchRequest.builder()
+                .query("q").topK(10).filterExpression("category == 'billing'").build());
+        Assertions.assertEquals(5, billing.size());
+        Assertions.assertTrue(billing.stream().allMatch(doc -> "billing".equals(doc.getMetadata().get("category"))));
+
+        store.delete(List.of("id-0", "id-1"));
+        List<Document> afterDelete = store.similaritySearch(SearchRequest.builder()
+                .query("q").topK(10).filterExpression("category == 'billing'").build());
+        Assertions.assertEquals(3, afterDelete.size());
+        Assertions.assertEquals(198, store.size());
+    }
+
+    @Test
+    public void testRareCategoryReturnsFullTopK() {
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        Random random = new Random(5);
+        float[] positive = new float[DIMENSIONS];
+        Arrays.fill(positive, 3f);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            embeddingModel.vectors.put("doc-" + i, randomVector(random, 1.0f, positive));
+            // 30 billing chunks are scored directly; 2,970 faq chunks go through the graph
+            documents.add(new Document("id-" + i, "doc-" + i, Map.of("category", i % 100 == 0 ? "billing" : "faq")));
+        }
+        HnswVectorStore store = HnswVectorStore.builder(embeddingModel).m(8).efSearch(16).build();
+        store.add(documents);
+        embeddingModel.vectors.put("q", randomVector(random, 1.0f, positive));
+
+        List<Document> billing = store.similaritySearch(SearchRequest.builder()
+                .query("q").topK(10).filterExpression("category == 'billing'").build());
+        Assertions.assertEquals(10, billing.size());
+        Assertions.assertTrue(billing.stream().allMatch(doc -> "billing".equals(doc.getMetadata().get("category"))));
+
+        List<Document> faq = store.similaritySearch(SearchRequest.builder()
+                .query("q").topK(10).filterExpression("category == 'faq'").build());
+        Assertions.assertEquals(10, faq.size());
+    }
+
+    @Test
+    public void testRepeatedUpsertsAreCompacted() {
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        Random random = new Random(9);
+        float[] positive = new float[DIMENSIONS];
+        Arrays.fill(positive, 3f);
+        HnswVectorStore store = HnswVectorStore.builder(embeddingModel).maxDeletedRatio(0.25).build();
+        for (int i = 0; i < 20; i++) {
+            store.add("id-" + i, "doc-" + i, Map.of("category", i < 5 ? "billing" : "faq"),
+                    randomVector(random, 1.0f, positive));
+        }
+
+        // The same chunk edited over and over
+        float[] latest = null;
+        for (int version = 0; version < 1_000; version++) {
+            latest = randomVector(random, 1.0f, positive);
+            store.add("id-0", "doc-0 v" + version, Map.of("category", "billing"), latest);
+        }
+
+        Assertions.assertEquals(20, store.size());
+        Assertions.assertTrue(store.nodeCount() <= 20 / 0.75 + 1, "nodes: " + store.nodeCount());
+        embeddingModel.vectors.put("q", latest);
+        List<Document> billing = store.similaritySearch(SearchRequest.builder()
+                .query("q").topK(10).filterExpression("category == 'billing'").build());
+        Assertions.assertEquals(5, billing.size());
+        Assertions.assertEquals("doc-0 v999", billing.get(0).getText());
+        Assertions.assertEquals(1, billing.stream().filter(doc -> "id-0".equals(doc.getId())).count());
+    }
+
+    private static Set<String> bruteForceTopK(List<float[]> unitVectors, List<Document> documents, float[] query) {
+        float[] unitQuery = VectorMath.normalize(query);
+        Set<String> ids = new HashSet<>();
+        IntStream.range(0, documents.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -VectorMath.dot(unitQuery, unitVectors.get(i))))
+                .limit(TOP_K)
+                .forEach(i -> ids.add(documents.get(i).getId()));
+        return ids;
+    }
+
+    private static float[] randomVector(Random random, float spread, float[] center) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (center != null ? center[d] : 0f) + (float) random.nextGaussian() * spread;
+        }
+        return vector;
+    }
+
+    /**
+     * Embedding model that returns pre-generated vectors by text.
+     */
+    static class FixedEmbeddingModel implements EmbeddingModel {
+
+        final Map<String, float[]> vectors = new ConcurrentHashMap<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vectors.get(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectors.get(document.getText());
+        }
+
+        @Override
+        public List<float[]> embed(List<Document> documents, EmbeddingOptions options,
+                BatchingStrategy batchingStrategy) {
+            return documents.stream().map(this::embed).toList();
+        }
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Unit Test for MetadataBitmapIndex.
+ * Verifies that supported filter expressions resolve to the same chunks as
+ * the per-chunk SpEL filter and that unsupported ones are declined.
+ */
+public class MetadataBitmapIndexTest {
+
+    private final FilterExpressionTextParser parser = new FilterExpressionTextParser();
+
+    @Test
+    public void testBooleanCombinations() {
+        MetadataBitmapIndex index = new MetadataBitmapIndex(MetadataBitmapIndex.DEFAULT_KEYS);
+        index.add(0, Map.of("category", "billing", "published", true, "tenant", "acme"));
+        index.add(1, Map.of("category", "billing", "published", false, "tenant", "globex"));
+        index.add(2, Map.of("category", "faq", "published", true, "tenant", "acme"));
+        index.add(3, Map.of("category", "troubleshooting", "published", true));
+
+        Assertions.assertEquals(bits(0, 1), match(index, "category == 'billing'"));
+        Assertions.assertEquals(bits(0), match(index, "category == 'billing' && published == true"));
+        Assertions.assertEquals(bits(0, 2, 3), match(index, "category in ['faq', 'troubleshooting'] || tenant == 'acme'"));
+        Assertions.assertEquals(bits(1, 3), match(index, "tenant != 'acme'"));
+        Assertions.assertEquals(bits(2, 3), match(index, "NOT(category == 'billing')"));
+
+        index.remove(0);
+        Assertions.assertEquals(bits(1), match(index, "category == 'billing'"));
+        Assertions.assertEquals(bits(2, 3), match(index, "category nin ['billing']"));
+    }
+
+    @Test
+    public void testUnsupportedExpressionsFallBack() {
+        MetadataBitmapIndex index = new MetadataBitmapIndex(MetadataBitmapIndex.DEFAULT_KEYS);
+        index.add(0, Map.of("category", "billing", "year", 2024));
+
+        Assertions.assertNull(match(index, "year == 2024"));
+        Assertions.assertNull(match(index, "category == 'billing' && year > 2020"));
+    }
+
+    private BitSet match(MetadataBitmapIndex index, String filter) {
+        return index.match(parser.parse(filter));
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet bits = new BitSet();
+        for (int ordinal : ordinals) {
+            bits.set(ordinal);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit Test for MetadataFilter.
+ * Verifies that filters evaluated without SpEL agree with the SpEL
+ * translation used by SimpleVectorStore.
+ */
+public class MetadataFilterTest {
+
+    private final FilterExpressionTextParser parser = new FilterExpressionTextParser();
+
+    private final List<Map<String, Object>> chunks = List.of(
+            Map.of("category", "billing", "published", true, "tenant", "acme"),
+            Map.of("category", "billing", "published", false, "tenant", "globex"),
+            Map.of("category", "faq", "published", true, "tenant", "acme"),
+            Map.of("category", "troubleshooting", "year", 2024),
+            Map.of());
+
+    @Test
+    public void testDirectEvaluationMatchesSpel() {
+        for (String filter : List.of("category == 'billing'",
+                "category != 'billing'",
+                "category in ['faq', 'troubleshooting'] || tenant == 'acme'",
+                "category nin ['billing'] && tenant == 'acme'",
+                "NOT(category == 'billing')",
+                "category == 'billing' && published == true",
+                "year >= 2020")) {
+            Filter.Expression expression = parser.parse(filter);
+            for (Map<String, Object> metadata : chunks) {
+                Assertions.assertEquals(spel(expression, metadata), MetadataFilter.compile(expression).test(metadata),
+                        filter + " on " + metadata);
+            }
+        }
+    }
+
+    private static boolean spel(Filter.Expression expression, Map<String, Object> metadata) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable("metadata", metadata);
+        return Boolean.TRUE.equals(new SpelExpressionParser()
+                .parseExpression(new SimpleVectorStoreFilterExpressionConverter().convertExpression(expression))
+                .getValue(context, Boolean.class));
+    }
+}
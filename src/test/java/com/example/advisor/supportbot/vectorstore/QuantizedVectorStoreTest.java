@@ -0,0 +1,142 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import com.example.advisor.supportbot.vectorstore.HnswVectorStoreTest.FixedEmbeddingModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Unit Test for QuantizedVectorStore.
+ * Checks that int8 scanning plus full-precision rescoring returns the exact
+ * nearest neighbours, and that text and metadata round-trip through the
+ * mapped side file.
+ */
+public class QuantizedVectorStoreTest {
+
+    private static final int DIMENSIONS = 48;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testResultsMatchExactSearch() {
+        Random random = new Random(11);
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        List<Document> documents = new ArrayList<>();
+        List<float[]> unitVectors = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            float[] vector = positiveVector(random);
+            embeddingModel.vectors.put("doc-" + i, vector);
+            unitVectors.add(VectorMath.normalize(vector));
+            documents.add(new Document("id-" + i, "doc-" + i, Map.of("category", i % 3 == 0 ? "billing" : "faq")));
+        }
+
+        try (QuantizedVectorStore store = QuantizedVectorStore.builder(embeddingModel, tempDir).build()) {
+            store.add(documents);
+
+            for (int q = 0; q < 20; q++) {
+                float[] query = positiveVector(random);
+                embeddingModel.vectors.put("query-" + q, query);
+                float[] unitQuery = VectorMath.normalize(query);
+                List<String> expected = IntStream.range(0, documents.size()).boxed()
+                        .sorted(Comparator.comparingDouble(
+                                (Integer i) -> -VectorMath.dot(unitQuery, unitVectors.get(i))))
+                        .limit(5)
+                        .map(i -> "id-" + i)
+                        .toList();
+
+                List<Document> results = store.similaritySearch(
+                        SearchRequest.builder().query("query-" + q).topK(5).build());
+                Assertions.assertEquals(expected, results.stream().map(Document::getId).toList());
+            }
+            Assertions.assertTrue(store.mappedBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testTextMetadataFilterAndDelete() {
+        Random random = new Random(3);
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            embeddingModel.vectors.put("Chunk über " + i, positiveVector(random));
+            documents.add(new Document("id-" + i, "Chunk über " + i,
+                    Map.of("category", i < 4 ? "billing" : "faq", "source", "doc-" + i)));
+        }
+        embeddingModel.vectors.put("q", positiveVector(random));
+
+        try (QuantizedVectorStore store = QuantizedVectorStore.builder(embeddingModel, tempDir).build()) {
+            store.add(documents);
+
+            List<Document> billing = store.similaritySearch(SearchRequest.builder()
+                    .query("q").topK(10).filterExpression("category == 'billing'").build());
+            Assertions.assertEquals(4, billing.size());
+            Document first = billing.get(0);
+            int index = Integer.parseInt(first.getId().substring(3));
+            Assertions.assertEquals("Chunk über " + index, first.getText());
+            Assertions.assertEquals("doc-" + index, first.getMetadata().get("source"));
+
+            store.delete(List.of("id-0"));
+            store.add("id-1", "replaced", Map.of("category", "faq"), positiveVector(random));
+            List<Document> afterChanges = store.similaritySearch(SearchRequest.builder()
+                    .query("q").topK(10).filterExpression("category == 'billing'").build());
+            Assertions.assertEquals(2, afterChanges.size());
+            Assertions.assertEquals(49, store.size());
+        }
+    }
+
+    @Test
+    public void testRepeatedUpsertsReuseFreedSpace() throws Exception {
+        Random random = new Random(5);
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+
+        try (QuantizedVectorStore store = QuantizedVectorStore.builder(embeddingModel, tempDir)
+                .maxDeletedRatio(0.25).build()) {
+            for (int i = 0; i < 20; i++) {
+                store.add("id-" + i, "Chunk " + i, Map.of("category", i < 5 ? "billing" : "faq"),
+                        positiveVector(random));
+            }
+            long chunkFileSize = Files.size(tempDir.resolve("chunks.dat"));
+
+            // The same chunk edited over and over
+            float[] latest = null;
+            for (int version = 0; version < 1_000; version++) {
+                latest = positiveVector(random);
+                store.add("id-0", "Chunk 0 v" + version, Map.of("category", "billing"), latest);
+            }
+
+            Assertions.assertEquals(20, store.size());
+            Assertions.assertTrue(store.recordCount() <= 20 / 0.75 + 1, "records: " + store.recordCount());
+            Assertions.assertTrue(Files.size(tempDir.resolve("chunks.dat")) <= 2 * chunkFileSize);
+            embeddingModel.vectors.put("q", latest);
+            List<Document> billing = store.similaritySearch(SearchRequest.builder()
+                    .query("q").topK(10).filterExpression("category == 'billing'").build());
+            Assertions.assertEquals(5, billing.size());
+            Assertions.assertEquals("Chunk 0 v999", billing.get(0).getText());
+            Assertions.assertEquals("Chunk 4", store.similaritySearch(SearchRequest.builder()
+                    .query("q").topK(20).build()).stream()
+                    .filter(doc -> "id-4".equals(doc.getId())).findFirst().orElseThrow().getText());
+        }
+    }
+
+    private static float[] positiveVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        Arrays.fill(vector, 3f);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] += (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
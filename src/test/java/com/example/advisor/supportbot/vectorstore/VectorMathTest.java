@@ -0,0 +1,88 @@
+package com.example.advisor.supportbot.vectorstore;
+
+import com.example.advisor.supportbot.vectorstore.HnswVectorStoreTest.FixedEmbeddingModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit Test for VectorMath and ExactVectorStore.
+ * Checks the SIMD kernel against the scalar loop (including lengths that
+ * leave a tail), and that the exact store ranks like SimpleVectorStore.
+ */
+public class VectorMathTest {
+
+    private final SimilarityKernel scalar = new ScalarSimilarityKernel();
+
+    @Test
+    public void testSimdKernelMatchesScalar() {
+        Assertions.assertTrue(VectorMath.kernelName().startsWith("simd"),
+                "Tests run with --add-modules jdk.incubator.vector");
+        SimilarityKernel simd = VectorMath.selectKernel();
+        Random random = new Random(3);
+        for (int length : new int[] { 1, 7, 16, 33, 384, 768, 1536, 1543 }) {
+            float[] a = randomVector(random, length);
+            float[] b = randomVector(random, length);
+            byte[] codes = new byte[length];
+            random.nextBytes(codes);
+
+            Assertions.assertEquals(scalar.dot(a, b), simd.dot(a, b), 1e-3f * length, "float dot, length " + length);
+            Assertions.assertEquals(scalar.dot(a, codes), simd.dot(a, codes), 1e-1f * length,
+                    "int8 dot, length " + length);
+        }
+    }
+
+    @Test
+    public void testNormalizedDotIsCosine() {
+        float[] a = { 3f, 4f, 0f };
+        float[] b = { 4f, 3f, 0f };
+        Assertions.assertEquals(SimpleVectorStore.EmbeddingMath.cosineSimilarity(a, b),
+                VectorMath.dot(VectorMath.normalize(a), VectorMath.normalize(b)), 1e-6);
+        Assertions.assertArrayEquals(new float[3], VectorMath.normalize(new float[3]));
+    }
+
+    @Test
+    public void testExactStoreRanksLikeSimpleVectorStore() {
+        Random random = new Random(5);
+        FixedEmbeddingModel embeddingModel = new FixedEmbeddingModel();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            embeddingModel.vectors.put("doc-" + i, randomVector(random, 48));
+            documents.add(new Document("id-" + i, "doc-" + i, Map.of("category", i % 4 == 0 ? "billing" : "faq")));
+        }
+        SimpleVectorStore reference = SimpleVectorStore.builder(embeddingModel).build();
+        ExactVectorStore store = new ExactVectorStore(embeddingModel);
+        reference.add(documents);
+        store.add(documents);
+
+        for (int q = 0; q < 10; q++) {
+            embeddingModel.vectors.put("query-" + q, randomVector(random, 48));
+            SearchRequest request = SearchRequest.builder()
+                    .query("query-" + q)
+                    .topK(5)
+                    .filterExpression(new FilterExpressionBuilder().eq("category", "billing").build())
+                    .build();
+            Assertions.assertEquals(ids(reference.similaritySearch(request)), ids(store.similaritySearch(request)));
+        }
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+
+    private static float[] randomVector(Random random, int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}